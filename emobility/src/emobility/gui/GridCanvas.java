@@ -0,0 +1,460 @@
+package emobility.gui;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.*;
+import emobility.utility.*;
+
+/**
+ * Single component which paints the city grid, the colours of its zones and the vehicles on it.
+ * <p>The grid isn't built from components: each cell is painted with {@code Graphics2D} into a back buffer which
+ * covers only the visible part of the grid, so the cost of painting depends on the size of the viewport, not of
+ * the map. Changes to cells only mark them as dirty; once per frame, {@link #flush()} paints the dirty cells which
+ * are visible into the buffer and repaints their area. Cells outside of the viewport are painted when they're
+ * scrolled into view. Cells stretch to fill the viewport when the whole grid fits into it.</p>
+ * <p>Vehicles are kept per cell, and a cell shows as many of them as fit, followed by the number of the others.
+ * Hovering over a cell lists all of its vehicles. All methods must be called on the event dispatch thread.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public class GridCanvas extends JComponent implements Scrollable{
+	private static final long serialVersionUID = 1L;
+	
+	/** Preferred width and height of a cell in pixels. */
+	private static final int CELL_SIZE = 40;
+	
+	/** Minimum size of a cell in pixels for which the vehicles are written out instead of drawn as dots. */
+	private static final int MIN_TEXT_CELL_SIZE = 24;
+	
+	/** Height of one line of text in a cell in pixels. */
+	private static final int LINE_HEIGHT = 11;
+	
+	/** Colours of the cells in each zone, by zone index; zones beyond the palette repeat it. */
+	private static final Color[] ZONE_COLORS = {new Color(122,86,58), new Color(181,144,116), new Color(150,112,84), new Color(204,176,150), new Color(98,68,44)};
+	
+	/** Colour of the cells with vehicles on them. */
+	private static final Color VEHICLE_COLOR = new Color(194,179,167);
+	
+	/** Colour of the cells in which a vehicle stopped because of a fault. */
+	private static final Color FAULTY_COLOR = new Color(89,66,58);
+	
+	/** Colour of the cells in which a vehicle finished its rental. */
+	private static final Color FINISHED_COLOR = new Color(74,36,13);
+	
+	/** Colour of the cells' borders. */
+	private static final Color BORDER_COLOR = new Color(82,43,5);
+	
+	/** Colour of the text in cells with vehicles on them. */
+	private static final Color TEXT_COLOR = new Color(51,51,51);
+	
+	/** Font of the text in the cells. */
+	private static final Font FONT = new Font("Arial",Font.PLAIN,10);
+	
+	/** A cell without a mark. */
+	private static final byte NO_MARK = 0;
+	
+	/** A cell in which a vehicle stopped because of a fault. */
+	private static final byte FAULTY_MARK = 1;
+	
+	/** A cell in which a vehicle finished its rental. */
+	private static final byte FINISHED_MARK = 2;
+	
+	/** A vehicle shown on the grid, updated in place when the vehicle moves. */
+	private static final class VehicleMarker{
+		/** Index of the vehicle's cell. */
+		private int cell;
+		
+		/** Vehicle's battery level. */
+		private int batteryLevel;
+		
+		/**
+		 * Constructs a {@code VehicleMarker} in the specified cell.
+		 * @param cell index of the vehicle's cell
+		 * @param batteryLevel vehicle's battery level
+		 */
+		private VehicleMarker(int cell, int batteryLevel){
+			this.cell = cell;
+			this.batteryLevel = batteryLevel;
+		}
+	}
+	
+	/** Zones of the grid's cells. */
+	private final ZoneMap zoneMap;
+	
+	/** The size of the grid (number of rows and columns). */
+	private final int gridSize;
+	
+	/** Vehicles shown on the grid, keyed by vehicle's ID. */
+	private Map<String, VehicleMarker> vehicles;
+	
+	/** IDs of the vehicles in each cell which has any, keyed by cell's index. */
+	private Map<Integer, List<String>> vehiclesPerCell;
+	
+	/** Mark of each cell, indexed by cell's index. */
+	private byte[] marks;
+	
+	/** Text shown in each marked cell, keyed by cell's index. */
+	private Map<Integer, String> markLabels;
+	
+	/** Cells which changed since the last frame. */
+	private BitSet dirtyCells;
+	
+	/** Back buffer with the painted cells, covering the visible part of the grid, or {@code null} if there is none yet. */
+	private BufferedImage buffer;
+	
+	/** Part of the grid covered by the back buffer, in the component's coordinates. */
+	private Rectangle bufferBounds;
+	
+	/**
+	 * Constructs an empty {@code GridCanvas}.
+	 * @param zoneMap the grid and the zones of its cells
+	 */
+	public GridCanvas(ZoneMap zoneMap){
+		this.zoneMap = zoneMap;
+		this.gridSize = zoneMap.getGridSize();
+		this.vehicles = new HashMap<>();
+		this.vehiclesPerCell = new HashMap<>();
+		this.marks = new byte[gridSize * gridSize];
+		this.markLabels = new HashMap<>();
+		this.dirtyCells = new BitSet(gridSize * gridSize);
+		this.bufferBounds = new Rectangle();
+		setOpaque(true);
+		setToolTipText("");
+	}
+	
+	/**
+	 * Shows a vehicle on a new position, removing it from its previous one.
+	 * @param vehicleID vehicle's ID
+	 * @param position vehicle's new position
+	 * @param batteryLevel vehicle's battery level on the new position
+	 */
+	public void moveVehicle(String vehicleID, Point position, Integer batteryLevel){
+		int cell = cellIndex(position);
+		VehicleMarker marker = vehicles.get(vehicleID);
+		if(marker == null){
+			marker = new VehicleMarker(cell, batteryLevel);
+			vehicles.put(vehicleID, marker);
+			vehiclesPerCell.computeIfAbsent(cell, key -> new ArrayList<>(1)).add(vehicleID);
+		} else if(marker.cell != cell){
+			removeFromCell(vehicleID, marker.cell);
+			marker.cell = cell;
+			vehiclesPerCell.computeIfAbsent(cell, key -> new ArrayList<>(1)).add(vehicleID);
+		}
+		marker.batteryLevel = batteryLevel;
+		dirtyCells.set(cell);
+	}
+	
+	/**
+	 * Removes a vehicle from the grid, and marks the position on which it stopped as faulty or finished.
+	 * The mark is shown while there are no vehicles on the position, until the grid is cleared.
+	 * @param vehicleID vehicle's ID
+	 * @param position position on which the vehicle stopped
+	 * @param batteryLevel vehicle's battery level
+	 * @param faulty {@code true} if the vehicle stopped because of a fault, otherwise {@code false}
+	 */
+	public void stopVehicle(String vehicleID, Point position, Integer batteryLevel, Boolean faulty){
+		VehicleMarker marker = vehicles.remove(vehicleID);
+		if(marker != null){
+			removeFromCell(vehicleID, marker.cell);
+		}
+		int cell = cellIndex(position);
+		marks[cell] = faulty ? FAULTY_MARK : FINISHED_MARK;
+		markLabels.put(cell, vehicleID + " (" + batteryLevel + "%)");
+		dirtyCells.set(cell);
+	}
+	
+	/** Removes all vehicles and marks from the grid, and repaints it. */
+	public void clear(){
+		vehicles.clear();
+		vehiclesPerCell.clear();
+		Arrays.fill(marks, NO_MARK);
+		markLabels.clear();
+		dirtyCells.clear();
+		// the buffer no longer matches the visible part of the grid, so it's painted again
+		bufferBounds = new Rectangle();
+		repaint();
+	}
+	
+	/**
+	 * Paints the visible cells which changed since the last frame into the back buffer, and repaints their area once.
+	 * Changed cells which aren't visible are painted when they're scrolled into view.
+	 */
+	public void flush(){
+		if(dirtyCells.isEmpty()){
+			return;
+		}
+		if(buffer == null || !bufferBounds.equals(getVisibleRect())){
+			// the whole visible part of the grid is painted anyway
+			dirtyCells.clear();
+			repaint();
+			return;
+		}
+		
+		int cellWidth = getCellWidth();
+		int cellHeight = getCellHeight();
+		int firstColumn = Math.max(0, bufferBounds.x / cellWidth);
+		int lastColumn = Math.min(gridSize - 1, (bufferBounds.x + bufferBounds.width - 1) / cellWidth);
+		int firstRow = Math.max(0, bufferBounds.y / cellHeight);
+		int lastRow = Math.min(gridSize - 1, (bufferBounds.y + bufferBounds.height - 1) / cellHeight);
+		
+		Rectangle dirtyArea = null;
+		Graphics2D g = buffer.createGraphics();
+		g.translate(-bufferBounds.x, -bufferBounds.y);
+		// cells are indexed column by column, so only the visible range of each visible column is checked
+		for(int x = firstColumn; x <= lastColumn; x++){
+			int columnEnd = x * gridSize + lastRow + 1;
+			for(int cell = dirtyCells.nextSetBit(x * gridSize + firstRow); cell >= 0 && cell < columnEnd; cell = dirtyCells.nextSetBit(cell + 1)){
+				Rectangle cellBounds = new Rectangle(x * cellWidth, (cell % gridSize) * cellHeight, cellWidth, cellHeight);
+				paintCell(g, cell, cellBounds);
+				dirtyArea = dirtyArea == null ? cellBounds : dirtyArea.union(cellBounds);
+			}
+		}
+		g.dispose();
+		dirtyCells.clear();
+		
+		if(dirtyArea != null){
+			repaint(dirtyArea);
+		}
+	}
+	
+	/**
+	 * Paints the requested part of the grid from the back buffer, first painting the buffer
+	 * if the visible part of the grid has changed.
+	 * @param g the graphics context
+	 */
+	@Override
+	protected void paintComponent(Graphics g){
+		Rectangle visible = getVisibleRect();
+		if(visible.isEmpty()){
+			return;
+		}
+		if(buffer == null || !bufferBounds.equals(visible)){
+			paintBuffer(visible);
+		}
+		g.drawImage(buffer, visible.x, visible.y, visible.x + visible.width, visible.y + visible.height, 0, 0, visible.width, visible.height, null);
+	}
+	
+	/**
+	 * Paints all cells in the visible part of the grid into a new back buffer.
+	 * @param visible the visible part of the grid, in the component's coordinates
+	 */
+	private void paintBuffer(Rectangle visible){
+		if(buffer == null || buffer.getWidth() < visible.width || buffer.getHeight() < visible.height){
+			buffer = new BufferedImage(visible.width, visible.height, BufferedImage.TYPE_INT_RGB);
+		}
+		bufferBounds = new Rectangle(visible);
+		
+		int cellWidth = getCellWidth();
+		int cellHeight = getCellHeight();
+		int firstColumn = Math.max(0, visible.x / cellWidth);
+		int lastColumn = Math.min(gridSize - 1, (visible.x + visible.width - 1) / cellWidth);
+		int firstRow = Math.max(0, visible.y / cellHeight);
+		int lastRow = Math.min(gridSize - 1, (visible.y + visible.height - 1) / cellHeight);
+		
+		Graphics2D g = buffer.createGraphics();
+		g.setColor(getParent() != null ? getParent().getBackground() : Color.WHITE);
+		g.fillRect(0, 0, visible.width, visible.height);
+		g.translate(-visible.x, -visible.y);
+		for(int x = firstColumn; x <= lastColumn; x++){
+			for(int y = firstRow; y <= lastRow; y++){
+				paintCell(g, x * gridSize + y, new Rectangle(x * cellWidth, y * cellHeight, cellWidth, cellHeight));
+			}
+		}
+		g.dispose();
+	}
+	
+	/**
+	 * Paints a cell: its background, its border, and the vehicles on it or its mark.
+	 * @param g the graphics context
+	 * @param cell index of the cell
+	 * @param bounds bounds of the cell, in the component's coordinates
+	 */
+	private void paintCell(Graphics2D g, int cell, Rectangle bounds){
+		List<String> vehiclesInCell = vehiclesPerCell.get(cell);
+		boolean hasVehicles = vehiclesInCell != null && !vehiclesInCell.isEmpty();
+		
+		Color background;
+		if(hasVehicles){
+			background = VEHICLE_COLOR;
+		} else if(marks[cell] == FAULTY_MARK){
+			background = FAULTY_COLOR;
+		} else if(marks[cell] == FINISHED_MARK){
+			background = FINISHED_COLOR;
+		} else{
+			background = ZONE_COLORS[zoneMap.getZone(cell / gridSize, cell % gridSize) % ZONE_COLORS.length];
+		}
+		g.setColor(background);
+		g.fillRect(bounds.x, bounds.y, bounds.width, bounds.height);
+		g.setColor(BORDER_COLOR);
+		g.drawRect(bounds.x, bounds.y, bounds.width - 1, bounds.height - 1);
+		
+		if(!hasVehicles && marks[cell] == NO_MARK){
+			return;
+		}
+		
+		if(bounds.width < MIN_TEXT_CELL_SIZE || bounds.height < MIN_TEXT_CELL_SIZE){
+			// too small for text, vehicles and marks are shown as dots
+			g.setColor(hasVehicles ? TEXT_COLOR : Color.WHITE);
+			int dotSize = Math.max(2, Math.min(bounds.width, bounds.height) / 3);
+			g.fillOval(bounds.x + (bounds.width - dotSize) / 2, bounds.y + (bounds.height - dotSize) / 2, dotSize, dotSize);
+			return;
+		}
+		
+		Shape clip = g.getClip();
+		g.clipRect(bounds.x + 1, bounds.y + 1, bounds.width - 2, bounds.height - 2);
+		g.setFont(FONT);
+		int baseline = bounds.y + LINE_HEIGHT;
+		if(hasVehicles){
+			g.setColor(TEXT_COLOR);
+			int lines = Math.max(1, (bounds.height - 2) / LINE_HEIGHT);
+			int shown = vehiclesInCell.size() <= lines ? vehiclesInCell.size() : lines - 1;
+			for(int i = 0; i < shown; i++){
+				g.drawString(getLabel(vehiclesInCell.get(i)), bounds.x + 2, baseline + i * LINE_HEIGHT);
+			}
+			if(shown < vehiclesInCell.size()){
+				g.drawString("+" + (vehiclesInCell.size() - shown) + " more", bounds.x + 2, baseline + shown * LINE_HEIGHT);
+			}
+		} else{
+			g.setColor(Color.WHITE);
+			g.drawString(markLabels.get(cell), bounds.x + 2, baseline);
+		}
+		g.setClip(clip);
+	}
+	
+	/**
+	 * Lists the vehicles in the cell under the mouse.
+	 * @param event the mouse event
+	 * @return the vehicles in the cell, or {@code null} if there are none
+	 */
+	@Override
+	public String getToolTipText(MouseEvent event){
+		int x = event.getX() / getCellWidth();
+		int y = event.getY() / getCellHeight();
+		if(x < 0 || x >= gridSize || y < 0 || y >= gridSize){
+			return null;
+		}
+		List<String> vehiclesInCell = vehiclesPerCell.get(x * gridSize + y);
+		if(vehiclesInCell == null || vehiclesInCell.isEmpty()){
+			return markLabels.get(x * gridSize + y);
+		}
+		StringJoiner text = new StringJoiner("<br>", "<html>", "</html>");
+		for(String vehicleID : vehiclesInCell){
+			text.add(getLabel(vehicleID));
+		}
+		return text.toString();
+	}
+	
+	/**
+	 * Gets the text shown for a vehicle on the grid.
+	 * @param vehicleID vehicle's ID
+	 * @return vehicle's ID and battery level
+	 */
+	private String getLabel(String vehicleID){
+		return vehicleID + " (" + vehicles.get(vehicleID).batteryLevel + "%)";
+	}
+	
+	/**
+	 * Removes a vehicle from the list of vehicles in a cell.
+	 * @param vehicleID vehicle's ID
+	 * @param cell index of the cell
+	 */
+	private void removeFromCell(String vehicleID, int cell){
+		List<String> vehiclesInCell = vehiclesPerCell.get(cell);
+		if(vehiclesInCell != null){
+			vehiclesInCell.remove(vehicleID);
+			if(vehiclesInCell.isEmpty()){
+				vehiclesPerCell.remove(cell);
+			}
+		}
+		dirtyCells.set(cell);
+	}
+	
+	/**
+	 * Gets the index of the cell on a position.
+	 * @param position position on the grid, with x as the column and y as the row
+	 * @return index of the cell
+	 */
+	private int cellIndex(Point position){
+		return position.x * gridSize + position.y;
+	}
+	
+	/**
+	 * Gets the current width of a cell, which is stretched if the grid is narrower than the viewport.
+	 * @return width of a cell in pixels
+	 */
+	private int getCellWidth(){
+		return Math.max(CELL_SIZE, getWidth() / gridSize);
+	}
+	
+	/**
+	 * Gets the current height of a cell, which is stretched if the grid is lower than the viewport.
+	 * @return height of a cell in pixels
+	 */
+	private int getCellHeight(){
+		return Math.max(CELL_SIZE, getHeight() / gridSize);
+	}
+	
+	/**
+	 * Gets the preferred size of the grid, with cells of the preferred size.
+	 * @return preferred size of the grid
+	 */
+	@Override
+	public Dimension getPreferredSize(){
+		return new Dimension(gridSize * CELL_SIZE, gridSize * CELL_SIZE);
+	}
+	
+	/**
+	 * Gets the preferred size of the viewport showing the grid.
+	 * @return the preferred size
+	 */
+	@Override
+	public Dimension getPreferredScrollableViewportSize(){
+		return getPreferredSize();
+	}
+	
+	/**
+	 * Scrolls by one cell.
+	 * @param visibleRect the visible part of the grid
+	 * @param orientation {@link SwingConstants#VERTICAL} or {@link SwingConstants#HORIZONTAL}
+	 * @param direction negative to scroll up or left, positive to scroll down or right
+	 * @return the size of a cell
+	 */
+	@Override
+	public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction){
+		return orientation == SwingConstants.VERTICAL ? getCellHeight() : getCellWidth();
+	}
+	
+	/**
+	 * Scrolls by the visible part of the grid.
+	 * @param visibleRect the visible part of the grid
+	 * @param orientation {@link SwingConstants#VERTICAL} or {@link SwingConstants#HORIZONTAL}
+	 * @param direction negative to scroll up or left, positive to scroll down or right
+	 * @return the size of the visible part of the grid
+	 */
+	@Override
+	public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction){
+		return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+	}
+	
+	/**
+	 * Stretches the grid to the viewport's width if the whole grid fits into it.
+	 * @return {@code true} if the grid is stretched, otherwise {@code false}
+	 */
+	@Override
+	public boolean getScrollableTracksViewportWidth(){
+		return getParent() instanceof JViewport viewport && viewport.getWidth() > getPreferredSize().width;
+	}
+	
+	/**
+	 * Stretches the grid to the viewport's height if the whole grid fits into it.
+	 * @return {@code true} if the grid is stretched, otherwise {@code false}
+	 */
+	@Override
+	public boolean getScrollableTracksViewportHeight(){
+		return getParent() instanceof JViewport viewport && viewport.getHeight() > getPreferredSize().height;
+	}
+}
\ No newline at end of file
@@ -6,11 +6,18 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
-import java.text.SimpleDateFormat;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import emobility.vehicles.*;
 import emobility.rental.*;
 import emobility.reporting.*;
 import emobility.utility.*;
+import emobility.simulation.*;
 
 /**
  * Serves as the central hub for the eMobility application, managing the user interface, 
@@ -48,6 +55,30 @@ public class MainDisplay{
 	/** The directory path of loss analysis data. */
 	private String lossAnalysisDirectoryPath;
 	
+	/** Indicates whether rentals and bills are parsed in parallel. */
+	private Boolean parallelIngest;
+	
+	/** Indicates whether bills are stored in a segmented archive instead of one text file per bill. */
+	private Boolean archiveBills;
+	
+	/** The directory path where archived bills are exported as text files after a simulation, or {@code null} if they aren't exported. */
+	private String billExportDirectoryPath;
+	
+	/** Asynchronous writer of bill files, or {@code null} if bill files aren't written. */
+	private BillWriter billWriter;
+	
+	/** Follower of the rentals file, or {@code null} if the file isn't followed. */
+	private RentalFollower rentalFollower;
+	
+	/** Rentals appended to the rentals file, waiting to be included in the running simulation. */
+	private BlockingQueue<Rental> appendedRentals = new LinkedBlockingQueue<>();
+	
+	/** Engine simulating the rentals of the current simulation. */
+	private SimulationEngine simulationEngine;
+	
+	/** Clock pacing the simulations, whose speed is chosen on the map display. */
+	private SimulationClock simulationClock;
+	
 	/**
 	 * Constructs the {@code MainDisplay} object, initializing the user interface and loading initial data. 
 	 * The main components include the map display, vehicles display, and simulation control.
@@ -56,20 +87,49 @@ public class MainDisplay{
 		this.frame = new JFrame("eMobility App");
 		this.cardLayout = new CardLayout();
 		this.mainPanel = new JPanel(cardLayout);
+		this.simulationClock = new SimulationClock(SimulationClock.Speed.valueOf(ConfigService.config().getString("SIMULATION_SPEED", "REAL_TIME").toUpperCase()));
 		
 		this.mapDisplay = new MapDisplay(cardLayout, mainPanel, this);
 		
 		mainPanel.add(new MainMenuPanel(cardLayout, mainPanel),"MainDisplay");
 		mainPanel.add(mapDisplay, "MapDisplay");
 		
-		String configFilePath = "src/emobility/utility/config.properties";
-		PropertiesReader config = new PropertiesReader(configFilePath);
+		ConfigSnapshot config = ConfigService.config();
+		
+		String vehiclesFilePath = config.getString("VEHICLES_FILE_PATH");
+		this.rentalsFilePath = config.getString("RENTALS_FILE_PATH");
+		this.pricingPropertiesPath = config.getString("PRICING_PROPERTIES_FILE_PATH");
+		this.billsDirectoryPath = config.getString("BILLS_DIRECTORY");
+		this.lossAnalysisDirectoryPath = config.getString("LOSS_ANALYSIS_DIRECTORY");
+		
+		try{
+			PricingSnapshot.watch(pricingPropertiesPath);
+		} catch(IOException e){
+			System.out.println("Pricing file couldn't be watched, prices won't be reloaded when it changes.");
+			e.printStackTrace();
+		}
+		
+		// coefficients of the reports are read from the current snapshots, so they can be changed during a simulation
+		try{
+			ConfigService.watch(ConfigService.CONFIG_FILE_PATH);
+			ReportGenerator.watchRepairProperties();
+		} catch(IOException e){
+			System.out.println("Configuration files couldn't be watched, changes will only apply after a restart.");
+			e.printStackTrace();
+		}
 		
-		String vehiclesFilePath = config.getProperty("VEHICLES_FILE_PATH");
-		this.rentalsFilePath = config.getProperty("RENTALS_FILE_PATH");
-		this.pricingPropertiesPath = config.getProperty("PRICING_PROPERTIES_FILE_PATH");
-		this.billsDirectoryPath = config.getProperty("BILLS_DIRECTORY");
-		this.lossAnalysisDirectoryPath = config.getProperty("LOSS_ANALYSIS_DIRECTORY");
+		this.archiveBills = "ARCHIVE".equalsIgnoreCase(config.getString("BILL_STORE"));
+		String billExportDirectory = config.getString("BILL_ARCHIVE_EXPORT_DIRECTORY", "");
+		this.billExportDirectoryPath = billExportDirectory.isBlank() ? null : billExportDirectory;
+		Boolean writeBillFiles = config.getBoolean("WRITE_BILL_FILES", true);
+		RentalManagement.setWriteBillFiles(writeBillFiles);
+		RentalManagement.setArchiveBills(archiveBills);
+		if(archiveBills){
+			continueBillIDs();
+		}
+		if(writeBillFiles){
+			startBillWriter(config);
+		}
 		
 		VehicleParser.parseVehicleCSV(vehiclesFilePath);
 		List<Car> cars = VehicleParser.getCars();
@@ -77,8 +137,23 @@ public class MainDisplay{
         List<ElectricScooter> scooters = VehicleParser.getScooters();
         mainPanel.add(new VehiclesDisplay(cars,bicycles,scooters,cardLayout, mainPanel),"VehiclesDisplay");
         
-        RentalParser.parseRentalCSV(rentalsFilePath);
-        Rental.processRentals();
+        // faults are registered while the rentals are read, each vehicle drawing from its own stream of the seed
+        Long faultSeed = config.getLong("SIMULATION_SEED", null);
+        if(faultSeed != null){
+        	Fault.setMasterSeed(faultSeed);
+        }
+        System.out.println("Fault seed: " + Fault.getMasterSeed());
+
+        this.parallelIngest = config.getBoolean("PARALLEL_INGEST", false);
+        if(parallelIngest){
+        	RentalParser.parseRentalCSVParallel(rentalsFilePath);
+        } else{
+        	RentalParser.parseRentalCSV(rentalsFilePath);
+        }
+		
+        if(config.getBoolean("FOLLOW_RENTALS", false)){
+        	startRentalFollower();
+        }
 		
 		frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 		frame.add(mainPanel);
@@ -87,6 +162,85 @@ public class MainDisplay{
 		frame.setVisible(true);
 	}
 	
+	/**
+	 * Starts the asynchronous writer of bill files, configured by the flush policy, flush interval and queue capacity from the configuration.
+	 * Bills are written into a {@link SegmentedBillArchive} if the bill store is set to "ARCHIVE", otherwise one text file is written per bill.
+	 * If the writer can't be started, bill files are written directly by the rentals' threads.
+	 * @param config the configuration
+	 */
+	private void startBillWriter(ConfigSnapshot config){
+		try{
+			BillSink sink;
+			if(archiveBills){
+				sink = new SegmentedBillArchive(billsDirectoryPath, config.getLong("BILL_SEGMENT_SIZE_MB", SegmentedBillArchive.DEFAULT_SEGMENT_SIZE >> 20) << 20);
+			} else{
+				sink = new TextFileBillSink(billsDirectoryPath);
+			}
+			BillWriter writer = new BillWriter(sink,
+					BillWriter.FlushPolicy.valueOf(config.getString("BILL_FLUSH_POLICY", "INTERVAL").toUpperCase()),
+					config.getLong("BILL_FLUSH_INTERVAL_MS", 1000L),
+					config.getInteger("BILL_QUEUE_CAPACITY", BillWriter.DEFAULT_CAPACITY));
+			this.billWriter = writer;
+			RentalManagement.setBillWriter(writer);
+			
+			// bills still waiting in the queue are written when the application exits
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try{
+					writer.close();
+				} catch(IOException e){
+					e.printStackTrace();
+				}
+			}));
+		} catch(IOException | IllegalArgumentException e){
+			System.out.println("Bill writer couldn't be started, bills will be written directly.");
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Continues bill IDs after the highest ID already used in the bills directory, so bills of earlier runs are kept
+	 * in the archive. Bill files are included, as bills are written into them when they can't be archived.
+	 */
+	private void continueBillIDs(){
+		if(!Files.isDirectory(Paths.get(billsDirectoryPath))){
+			return;
+		}
+		try{
+			Integer lastArchivedID = new BillArchiveReader(billsDirectoryPath).getLastBillID();
+			Rental.continueRentalIDs(Math.max(lastArchivedID, TextFileBillSink.getLastBillID(billsDirectoryPath)));
+		} catch(IOException e){
+			System.out.println("Bills directory couldn't be read, bill IDs may repeat the IDs of earlier runs.");
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Exports the bills of the archive to the export directory, one text file per bill, for tools which read the legacy layout.
+	 */
+	private void exportArchivedBills(){
+		try{
+			Integer exported = new BillArchiveReader(billsDirectoryPath).exportText(billExportDirectoryPath);
+			System.out.println(exported + " bills exported to " + billExportDirectoryPath);
+		} catch(IOException e){
+			System.out.println("Bills couldn't be exported to " + billExportDirectoryPath);
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Starts following the rentals file, so rentals appended to it are ingested and added to the running simulation.
+	 */
+	private void startRentalFollower(){
+		rentalFollower = new RentalFollower(rentalsFilePath);
+		rentalFollower.addListener(appendedRentals::add);
+		try{
+			rentalFollower.start();
+		} catch(IOException e){
+			System.out.println("Rentals file can't be followed: " + rentalsFilePath);
+			e.printStackTrace();
+		}
+	}
+	
 	/**
 	 * Starts the simulation of vehicles' rentals. If simulation is already running, an info message is shown. 
 	 * The simulation runs in a separate thread, allowing the user interface to remain responsive.
@@ -102,6 +256,12 @@ public class MainDisplay{
 		
 		new Thread(() -> {
             runSimulation(pricingPropertiesPath, billsDirectoryPath);
+            if(billWriter != null){
+            	billWriter.flush();
+            }
+            if(archiveBills && billExportDirectoryPath != null){
+            	exportArchivedBills();
+            }
             Map<Vehicle, List<Fault>> vehicleFaultsMap = Rental.getVehicleFaultsMap();
             initializeFaultsDisplay(vehicleFaultsMap);
             processSimulationResults(billsDirectoryPath, lossAnalysisDirectoryPath);
@@ -114,82 +274,116 @@ public class MainDisplay{
 	}
 	
 	/**
-	 * Runs the simulation of vehicles' rentals, processing rentals grouped by date and time. 
-	 * Each rental is simulated in a separate thread.
+	 * Gets the clock pacing the simulations. Its speed can be changed while a simulation is running.
+	 * @return the simulation clock
+	 */
+	public SimulationClock getSimulationClock(){
+		return simulationClock;
+	}
+	
+	/**
+	 * Runs the simulation of vehicles' rentals, submitting rentals grouped by date and time.
+	 * Rentals are simulated by a {@link SimulationEngine} in simulated time, observed by the map display.
+	 * Rentals of different vehicles overlap, and each rental only waits for the previous rental of its vehicle.
+	 * Vehicles are returned on virtual threads, at most as many at once as the configured limit allows.
+	 * The simulation is paced by the shared {@link SimulationClock}, at the speed chosen on the map display.
+	 * <p>If the {@code SIMULATION_MODE} is {@code PARALLEL}, the rentals are simulated by a {@link ParallelSimulation} instead.</p>
 	 * @param pricingPropertiesPath the pricing properties file path
 	 * @param billsDirectoryPath the directory where the bills are stored
 	 */
 	private void runSimulation(String pricingPropertiesPath, String billsDirectoryPath){
-		Map<Date, List<List<Rental>>> groupedRentalsByDateAndTime = RentalManagement.getRentalsGroupedByDateAndTime();
+		if("PARALLEL".equalsIgnoreCase(ConfigService.config().getString("SIMULATION_MODE"))){
+			runParallelSimulation(pricingPropertiesPath, billsDirectoryPath);
+			return;
+		}
+		Integer maxConcurrentReturns = ConfigService.config().getInteger("SIMULATION_MAX_CONCURRENT_RETURNS", 0);
+		simulationEngine = new SimulationEngine(pricingPropertiesPath, billsDirectoryPath, maxConcurrentReturns, simulationClock);
+		simulationEngine.addObserver(mapDisplay);
 		
-		SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy.");
-		SimpleDateFormat rentalDateTimeFormat = new SimpleDateFormat("dd.MM.yyyy. HH:mm");
+		// rentals appended before this point are already included in the grouped rentals
+		appendedRentals.clear();
+		Map<Date, List<List<Rental>>> groupedRentalsByDateAndTime = RentalManagement.getRentalsGroupedByDateAndTime();
 		
-		for(Map.Entry<Date, List<List<Rental>>> entry : groupedRentalsByDateAndTime.entrySet()){
-			Date rentalDate = entry.getKey();
-			
-			System.out.println("\nProcessing rentals for: " + dateFormat.format(rentalDate) + "\n");
-            List<List<Rental>> rentalsGroupedByTime = entry.getValue();
-            
+		for(List<List<Rental>> rentalsGroupedByTime : groupedRentalsByDateAndTime.values()){
             for(List<Rental> rentalsAtSameTime : rentalsGroupedByTime){
-            	List<Thread> threads = new ArrayList<>();
-                            	
-            	for(Rental rental : rentalsAtSameTime){
-            		RentalManagement rentalManagement = new RentalManagement(pricingPropertiesPath,billsDirectoryPath,rental);
-            		System.out.println(" Date/Time: " + rentalDateTimeFormat.format(rental.getRentalDateTime()) + " - vehicle: " + rental.getID() + "\n");
-            		            		
-            		Date nextRentalDate = getNextRentalDate(rentalsGroupedByTime,rentalManagement);
-                    Thread rentalThread = new Thread(new RentSimulator(rentalManagement, nextRentalDate, mapDisplay));
-                    rentalThread.start();
-                    threads.add(rentalThread);
-            	}
-                
-            	// wait for all threads in the current time group to finish
-                for (Thread thread : threads){
-                	try {
-                		thread.join();
-                	} catch(InterruptedException e){
-                		e.printStackTrace();
-                	}
-                }
-                
-                try{
-                    Thread.sleep(5000);
-                } catch(InterruptedException e){
-                    e.printStackTrace();
-                }
+            	simulationEngine.submit(rentalsAtSameTime);
             }
         }
+		
+		simulationEngine.run(() -> simulateAppendedRentals(groupedRentalsByDateAndTime, simulationEngine::submit));
+		simulationEngine.close();
+		
+		// bills are recorded by several threads
+		BillLedger.sortByID();
 	}
 	
 	/**
-	 * Determines the next rental date and time after the current rental.
-	 * @param allRentalsAtSameDay list of all rentals happening on the same day
-	 * @param currentRental rental currently being processed
-	 * @return date and time of the next rental, or {@code null} if there is none
+	 * Runs the simulation of vehicles' rentals with the rentals of different vehicles simulated in parallel,
+	 * by a {@link ParallelSimulation} using the configured number of threads. The results don't depend on
+	 * the number of threads. Vehicles aren't shown moving on the map.
+	 * Rentals appended while the simulation was running are simulated once it's done.
+	 * @param pricingPropertiesPath the pricing properties file path
+	 * @param billsDirectoryPath the directory where the bills are stored
 	 */
-	private static Date getNextRentalDate(List<List<Rental>> allRentalsAtSameDay, RentalManagement currentRental){
-		Date currentRentalDateTime = currentRental.getRentalDateTime();
-		Date currentRentalTime = FormatDate.getTimeOnlyCalendar(currentRentalDateTime);
-		Date closestNextRentalDateTime = null;
-		
-		for(List<Rental> rentalsAtSameTime : allRentalsAtSameDay){
-			for(Rental rental : rentalsAtSameTime){
-				Date rentalDateTime = rental.getRentalDateTime();
-				Date rentalTime = FormatDate.getTimeOnlyCalendar(rentalDateTime);
-				
-				if(FormatDate.isSameDay(currentRentalDateTime,rentalDateTime) && currentRentalTime.before(rentalTime)){
-					Date closestNextRentalTime = FormatDate.getTimeOnlyCalendar(closestNextRentalDateTime);
-					
-					if(closestNextRentalDateTime == null || rentalTime.before(closestNextRentalTime)){
-						closestNextRentalDateTime = rentalDateTime;
-						return closestNextRentalDateTime;
-					}
+	private void runParallelSimulation(String pricingPropertiesPath, String billsDirectoryPath){
+		Integer parallelism = ConfigService.config().getInteger("SIMULATION_PARALLELISM", 0);
+		try(ParallelSimulation simulation = new ParallelSimulation(pricingPropertiesPath, billsDirectoryPath, parallelism)){
+			appendedRentals.clear();
+			Map<Date, List<List<Rental>>> groupedRentalsByDateAndTime = RentalManagement.getRentalsGroupedByDateAndTime();
+			
+			for(List<List<Rental>> rentalsGroupedByTime : groupedRentalsByDateAndTime.values()){
+				for(List<Rental> rentalsAtSameTime : rentalsGroupedByTime){
+					simulation.submit(rentalsAtSameTime);
 				}
 			}
+			simulation.run();
+			
+			simulateAppendedRentals(groupedRentalsByDateAndTime, simulation::submit);
+			simulation.run();
+		}
+		
+		BillLedger.sortByID();
+	}
+	
+	/**
+	 * Submits rentals which were appended to the rentals file while the simulation was running, grouped by their time.
+	 * @param groupedRentalsByDateAndTime rentals the simulation was started with, used to skip rentals which are already included
+	 * @param submitter submits rentals which happen at the same time
+	 */
+	private void simulateAppendedRentals(Map<Date, List<List<Rental>>> groupedRentalsByDateAndTime, Consumer<List<Rental>> submitter){
+		List<Rental> appended = new ArrayList<>();
+		appendedRentals.drainTo(appended);
+		if(appended.isEmpty())
+			return;
+		
+		TreeMap<Date, List<Rental>> appendedByTime = new TreeMap<>();
+		for(Rental rental : appended){
+			if(!isScheduled(groupedRentalsByDateAndTime, rental)){
+				appendedByTime.computeIfAbsent(rental.getRentalDateTime(), key -> new ArrayList<>()).add(rental);
+			}
 		}
 		
-		return closestNextRentalDateTime;
+		for(List<Rental> rentalsAtSameTime : appendedByTime.values()){
+			submitter.accept(rentalsAtSameTime);
+		}
+	}
+	
+	/**
+	 * Checks whether a rental is already included in the rentals the simulation was started with.
+	 * @param groupedRentalsByDateAndTime rentals the simulation was started with
+	 * @param rental rental to check
+	 * @return {@code true} if the rental is already included, otherwise {@code false}
+	 */
+	private static boolean isScheduled(Map<Date, List<List<Rental>>> groupedRentalsByDateAndTime, Rental rental){
+		List<List<Rental>> rentalsOnSameDay = groupedRentalsByDateAndTime.get(FormatDate.truncateTime(rental.getRentalDateTime()));
+		if(rentalsOnSameDay != null){
+			for(List<Rental> rentalsAtSameTime : rentalsOnSameDay){
+				if(rentalsAtSameTime.contains(rental)){
+					return true;
+				}
+			}
+		}
+		return false;
 	}
 	
 	/**
@@ -203,11 +397,20 @@ public class MainDisplay{
 	
 	/**
 	 * Processes the simulation results by generating reports and displaying them.
+	 * Reports are computed from the {@link BillLedger}, so bill files or the bill archive are only parsed if no bills were recorded during the run.
 	 * @param billsDirectoryPath the directory where the bills are stored
 	 * @param lossAnalysisDirectoryPath the directory where the loss analysis data is stored
 	 */
 	private void processSimulationResults(String billsDirectoryPath, String lossAnalysisDirectoryPath){
-		BillParser.parseBills(billsDirectoryPath);
+		if(BillLedger.isEmpty()){
+			if(archiveBills){
+				BillParser.parseArchive(billsDirectoryPath);
+			} else if(parallelIngest){
+				BillParser.parseBillsParallel(billsDirectoryPath);
+			} else{
+				BillParser.parseBills(billsDirectoryPath);
+			}
+		}
 		
 		DailyReportGenerator dailyReports = new DailyReportGenerator();
 		SummaryReportGenerator summaryReport = new SummaryReportGenerator();
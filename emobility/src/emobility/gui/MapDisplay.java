@@ -2,29 +2,29 @@ package emobility.gui;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.List;
-import java.util.*;
+import emobility.rental.*;
+import emobility.simulation.*;
+import emobility.utility.*;
 
 /**
  * Displays a grid map representing positions vehicles can have during rental simulation and controls for the simulation.
+ * <p>The grid is painted by a single {@link GridCanvas} in a scroll pane, which only paints the cells in view.</p>
+ * <p>The map observes the {@link SimulationEngine}, and publishes its events to a {@link VehicleUpdateBus}, which keeps
+ * only the latest update of each vehicle, so the simulation never waits for the user interface. A timer drains the bus
+ * on the event dispatch thread at the configured frame rate, and applies each frame's updates to the canvas,
+ * which repaints only the cells which changed.</p>
  * 
  * @author Aleksandra Vucicevic
  * @version 1.0
  */
-public class MapDisplay extends JPanel{
+public class MapDisplay extends JPanel implements SimulationObserver{
 	private static final long serialVersionUID = 1L;
 	
-	/** The size of the grid (number of rows and columns). */
-	private static final int GRID_SIZE = 20;
+	/** Default number of frames per second in which the map is updated. */
+	private static final int DEFAULT_FRAMES_PER_SECOND = 30;
 	
-	/** The matrix representing the grid panels for each cell in the grid. */
-	private JPanel[][] gridPanels;
-	
-	/** A map that stores the current position of each vehicle on the grid, keyed by vehicle's ID. */
-	private Map<String, Point> vehiclePositions;
-	
-	/** A map that stores a list of vehicles' IDs at each position on the grid. */
-	private Map<Point, List<String>> vehiclesPerPosition;
+	/** The component painting the grid and the vehicles on it. */
+	private GridCanvas gridCanvas;
 	
 	/** The button used to return to the main display. */
 	private JButton backButton;
@@ -32,6 +32,12 @@ public class MapDisplay extends JPanel{
 	/** The main display for controlling the application. */
 	private MainDisplay mainDisplay;
 	
+	/** Latest updates of vehicles published by the simulation, waiting for the next frame. */
+	private VehicleUpdateBus updateBus;
+	
+	/** Timer applying the published updates to the map once per frame. */
+	private Timer frameTimer;
+	
 	/**
 	 * Constructs a {@code MapDisplay} panel for visualizing vehicle positions on a grid.
 	 * @param cardLayout {@code CardLayout} used to switch between different views
@@ -42,27 +48,11 @@ public class MapDisplay extends JPanel{
 		this.mainDisplay = mainDisplay;
 		
 		setLayout(new BorderLayout());
-		JPanel gridPanel = new JPanel(new GridLayout(GRID_SIZE,GRID_SIZE));
-		this.gridPanels = new JPanel[GRID_SIZE][GRID_SIZE];
-		this.vehiclePositions = new HashMap<>();
-		this.vehiclesPerPosition = new HashMap<>();
-		
-		for(int col = 0; col < GRID_SIZE; col++){
-			for(int row = 0; row < GRID_SIZE; row++){
-				JPanel panel = new JPanel();
-				panel.setLayout(new BoxLayout(panel,BoxLayout.Y_AXIS));
-				JScrollPane scrollPane = new JScrollPane(panel);
-				scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
-				scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
-				scrollPane.setBorder(BorderFactory.createEmptyBorder());
-				panel.setBorder(BorderFactory.createLineBorder(new Color(82,43,5)));
-				panel.setBackground(getCellColor(row,col));
-				this.gridPanels[row][col] = panel;
-				gridPanel.add(scrollPane);
-			}
-		}
+		this.gridCanvas = new GridCanvas(ZoneMap.get());
+		JScrollPane gridScrollPane = new JScrollPane(gridCanvas);
+		gridScrollPane.setBorder(BorderFactory.createEmptyBorder());
 		
-		add(gridPanel, BorderLayout.CENTER);
+		add(gridScrollPane, BorderLayout.CENTER);
 		
 		JPanel controlPanel = new JPanel();
 		controlPanel.setLayout(new BoxLayout(controlPanel, BoxLayout.Y_AXIS));
@@ -74,191 +64,97 @@ public class MapDisplay extends JPanel{
 		backButton = CustomButton.createStyledButton("Back to MAIN DISPLAY",300,30);
 		backButton.addActionListener(e -> cardLayout.show(mainPanel,"MainDisplay"));
 		
+		// the speed can be changed at any time, also while the simulation is running
+		SimulationClock simulationClock = mainDisplay.getSimulationClock();
+		JComboBox<SimulationClock.Speed> speedComboBox = new JComboBox<>(SimulationClock.Speed.values());
+		speedComboBox.setSelectedItem(simulationClock.getSpeed());
+		speedComboBox.setMaximumSize(new Dimension(300,30));
+		speedComboBox.setAlignmentX(Component.CENTER_ALIGNMENT);
+		speedComboBox.setToolTipText("Simulation speed");
+		speedComboBox.addActionListener(e -> simulationClock.setSpeed((SimulationClock.Speed) speedComboBox.getSelectedItem()));
+		
+		controlPanel.add(speedComboBox);
+		controlPanel.add(Box.createRigidArea(new Dimension(0,10)));
 		controlPanel.add(startSimulationButton);
 		controlPanel.add(Box.createRigidArea(new Dimension(0,10)));
 		controlPanel.add(backButton);
 		
 		add(controlPanel, BorderLayout.SOUTH);
+		
+		this.updateBus = new VehicleUpdateBus();
+		Integer framesPerSecond = ConfigService.config().getInteger("MAP_FRAMES_PER_SECOND", DEFAULT_FRAMES_PER_SECOND);
+		this.frameTimer = new Timer(1000 / Math.max(1, framesPerSecond), e -> applyUpdates());
+		frameTimer.setCoalesce(true);
 	}
 	
 	/** Starts the simulation and disables the button for returning to the main display. */
 	private void startSimulation(){
 		backButton.setEnabled(false);
+		frameTimer.start();
 		mainDisplay.startSimulation();
 	}
 	
 	/** Marks the simulation as finished and re-enables the button for returning to the main display. */
 	public void simulationFinished(){
 		SwingUtilities.invokeLater(() -> {
-	        clearMapAfterSimulation();
+			frameTimer.stop();
+			updateBus.clear();
+	        gridCanvas.clear();
 	        backButton.setEnabled(true);
 	    });
 	}
 	
-	/**
-	 * Gets the color of a specific grid cell based on its position in the grid.
-	 * @param row row index of the cell
-	 * @param col column index of the cell
-	 * @return the color of the cell
-	 */
-	private Color getCellColor(int row, int col){
-		if(isInWideArea(row,col)){
-			return new Color(122,86,58);
-		} else{
-			return new Color(181,144,116);
+	/** Applies the updates published since the previous frame to the map, and repaints the cells which changed. */
+	private void applyUpdates(){
+		VehicleUpdateBus.Frame frame = updateBus.drain();
+		if(frame.cleared()){
+			gridCanvas.clear();
 		}
-	}
-	
-	/**
-	 * Determines if a specific cell is in the wide area of the grid.
-	 * @param row row index of the cell
-	 * @param col column index of the cell
-	 * @return {@code true} if the cell is in the wide area of the grid, otherwise {@code false}
-	 */
-	private boolean isInWideArea(Integer row, Integer col){
-		return ((int)row < 5 || (int)row > 14 || (int)col < 5 || (int)col > 14);
-	}
-	
-	/**
-	 * Removes a vehicle from a specific panel in the grid.
-	 * @param vehicleID vehicle's ID
-	 * @param position vehicle's position on the grid
-	 */
-	public void removeVehicleFromPanel(String vehicleID, Point position){
-		JPanel panel = gridPanels[position.x][position.y];
-		
-		List<String> vehiclesAtPosition = vehiclesPerPosition.get(position);
-		if(vehiclesAtPosition != null){
-			vehiclesAtPosition.remove(vehicleID);
-			panel.removeAll();
-			
-			for(String vehicle : vehiclesAtPosition){
-				JLabel label = new JLabel(vehicle);
-				panel.add(label);
+		for(VehicleUpdateBus.VehicleUpdate update : frame.updates()){
+			switch(update.state()){
+				case MOVING -> gridCanvas.moveVehicle(update.vehicleID(), update.position(), update.batteryLevel());
+				case FAULTY -> gridCanvas.stopVehicle(update.vehicleID(), update.position(), update.batteryLevel(), true);
+				case FINISHED -> gridCanvas.stopVehicle(update.vehicleID(), update.position(), update.batteryLevel(), false);
 			}
-			
-			if(vehiclesAtPosition.isEmpty()){
-				vehiclesPerPosition.remove(position);
-				panel.setBackground(getCellColor(position.x,position.y));
-			}
-		
-			panel.revalidate();
-			panel.repaint();
-		}
-	}
-	
-	/**
-	 * Adds vehicle to a specific panel in the grid.
-	 * @param vehicleID vehicle's ID
-	 * @param batteryLevel vehicle's current battery level
-	 * @param position vehicle's position on the grid
-	 */
-	private void addVehicleToPanel(String vehicleID, Integer batteryLevel, Point position){
-		JPanel panel = gridPanels[position.x][position.y];
-		panel.setBackground(new Color(194,179,167));
-		
-		vehiclesPerPosition.putIfAbsent(position, new ArrayList<>());
-		
-		List<String> vehiclesList = vehiclesPerPosition.get(position);
-		String vehicleInfo = vehicleID + " (" + batteryLevel + "%)";
-		
-		if(!vehiclesList.contains(vehicleInfo)){
-			vehiclesList.add(vehicleInfo);
-		}
-		
-		panel.removeAll();
-			
-		for(String vehicle : vehiclesList){
-			JLabel label = new JLabel(vehicle);
-			label.setFont(new Font("Arial",Font.PLAIN,10));
-			panel.add(label);
 		}
-		
-		panel.revalidate();
-		panel.repaint();
+		gridCanvas.flush();
 	}
 	
 	/**
-	 * Updates the position of a vehicle on the grid.
+	 * Publishes the vehicle's new position, which is shown in the next frame.
 	 * @param vehicleID vehicle's ID
-	 * @param x x-coordinate of the vehicle's new position
-	 * @param y y-coordinate of the vehicle's new position
-	 * @param batteryLevel vehicle's current battery level
+	 * @param previousPosition vehicle's previous position
+	 * @param position vehicle's new position
+	 * @param batteryLevel vehicle's battery level on the new position
 	 */
-	public void updateVehiclePosition(String vehicleID, Integer x, Integer y, Integer batteryLevel){
-		Point newPosition = new Point(x,y);
-		if(vehiclePositions.containsKey(vehicleID)){
-			Point oldPosition = vehiclePositions.get(vehicleID);
-			resetPositionColor(oldPosition);
-		}
-		
-		vehiclePositions.put(vehicleID, newPosition);
-		addVehicleToPanel(vehicleID,batteryLevel,newPosition);
-	}
-	
-	/** Clears the map after the simulation is finished. */
-	public void clearMapAfterSimulation(){
-		for(int row = 0; row < GRID_SIZE; row++){
-            for(int col = 0; col < GRID_SIZE; col++){
-                JPanel panel = gridPanels[row][col];
-                panel.removeAll();
-                panel.setBackground(getCellColor(row, col));
-                panel.revalidate();
-                panel.repaint();
-            }
-        }
-	}
-	
-	/**
-	 * Marks a specific position as faulty.
-	 * @param vehicleID vehicle's ID
-	 * @param position position to mark
-	 * @param batteryLevel vehicle's current battery level
-	 */
-	public void markPositionAsFaulty(String vehicleID, Point position, Integer batteryLevel){
-		JPanel panel = gridPanels[position.x][position.y];
-		panel.setBackground(new Color(89,66,58));
-		panel.removeAll();
-		
-		JLabel label = new JLabel(vehicleID + " (" + batteryLevel + "%)");
-		label.setFont(new Font("Arial",Font.PLAIN,10));
-		label.setForeground(Color.WHITE);
-		panel.add(label);
-		
-		panel.revalidate();
-		panel.repaint();
+	@Override
+	public void vehicleMoved(String vehicleID, Point previousPosition, Point position, Integer batteryLevel){
+		updateBus.publish(vehicleID, position, batteryLevel, VehicleUpdateBus.VehicleState.MOVING);
 	}
 	
 	/**
-	 * Marks a specific position as finished.
+	 * Publishes that the vehicle stopped, so the position is marked as faulty or finished in the next frame,
+	 * and the vehicle is removed from the map.
 	 * @param vehicleID vehicle's ID
-	 * @param position position to mark
-	 * @param batteryLevel vehicle's current battery level
+	 * @param previousPosition vehicle's previous position
+	 * @param position position on which the vehicle stopped
+	 * @param batteryLevel vehicle's battery level
+	 * @param faulty {@code true} if the vehicle stopped because of a fault, otherwise {@code false}
 	 */
-	public void markPositionAsFinished(String vehicleID, Point position, Integer batteryLevel){
-		JPanel panel = gridPanels[position.x][position.y];
-		panel.setBackground(new Color(74,36,13));
-		panel.removeAll();
-		
-		JLabel label = new JLabel(vehicleID + " (" + batteryLevel + "%)");
-		label.setFont(new Font("Arial",Font.PLAIN,10));
-		label.setForeground(Color.WHITE);
-		panel.add(label);
-		
-		panel.revalidate();
-		panel.repaint();
+	@Override
+	public void vehicleStopped(String vehicleID, Point previousPosition, Point position, Integer batteryLevel, Boolean faulty){
+		updateBus.publish(vehicleID, position, batteryLevel, faulty ? VehicleUpdateBus.VehicleState.FAULTY : VehicleUpdateBus.VehicleState.FINISHED);
 	}
 	
 	/**
-	 * Resets the color of a specific position in the grid to its default color.
-	 * @param position position to reset
+	 * Requests the map to be cleared in the next frame once a vehicle which reached its goal has been returned.
+	 * @param rentalManagement the finished rental
+	 * @param reachedGoal {@code true} if the vehicle reached its goal location, otherwise {@code false}
 	 */
-	public void resetPositionColor(Point position){
-		JPanel panel = gridPanels[position.x][position.y];
-		panel.setBackground(getCellColor(position.x,position.y));
-		panel.removeAll();
-		vehiclesPerPosition.remove(position);
-		panel.revalidate();
-		panel.repaint();
+	@Override
+	public void rentalFinished(RentalManagement rentalManagement, Boolean reachedGoal){
+		if(reachedGoal){
+			updateBus.publishClear();
+		}
 	}
 }
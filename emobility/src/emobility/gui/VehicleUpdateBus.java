@@ -0,0 +1,107 @@
+package emobility.gui;
+
+import java.awt.Point;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Passes updates of vehicles' positions and battery levels from the simulation to the map display.
+ * <p>Only the latest update of each vehicle is kept: a newer update replaces the one which hasn't been
+ * displayed yet, so the number of pending updates never exceeds the number of vehicles, however fast the
+ * simulation runs. Publishing an update never blocks and never waits for the user interface. The map display
+ * drains the pending updates once per frame and applies them all at once.</p>
+ * <p>A request to clear the map drops the updates published before it, and is applied before the updates
+ * published after it.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public class VehicleUpdateBus{
+	/**
+	 * Defines the state of a vehicle after an update.
+	 */
+	public enum VehicleState{
+		/** The vehicle is moving. */
+		MOVING,
+		
+		/** The vehicle stopped because of a fault. */
+		FAULTY,
+		
+		/** The vehicle stopped on its goal location, or because of low battery level. */
+		FINISHED
+	}
+	
+	/**
+	 * The latest update of a vehicle.
+	 * @param vehicleID vehicle's ID
+	 * @param position vehicle's position
+	 * @param batteryLevel vehicle's battery level on the position
+	 * @param state vehicle's state
+	 * @param sequence sequence number of the update, used to order it against requests to clear the map
+	 */
+	public record VehicleUpdate(String vehicleID, Point position, Integer batteryLevel, VehicleState state, long sequence){}
+	
+	/**
+	 * Updates which should be displayed in one frame.
+	 * @param cleared {@code true} if the map should be cleared before applying the updates
+	 * @param updates the latest update of each vehicle which changed since the previous frame
+	 */
+	public record Frame(Boolean cleared, List<VehicleUpdate> updates){}
+	
+	/** Value of the pending clear request when there is none. */
+	private static final long NO_CLEAR = -1;
+	
+	/** The latest update of each vehicle which hasn't been displayed yet, keyed by vehicle's ID. */
+	private final ConcurrentMap<String, VehicleUpdate> latestUpdates = new ConcurrentHashMap<>();
+	
+	/** Sequence number of the next update or clear request. */
+	private final AtomicLong nextSequence = new AtomicLong();
+	
+	/** Sequence number of the latest pending clear request, or {@link #NO_CLEAR} if there is none. */
+	private final AtomicLong clearSequence = new AtomicLong(NO_CLEAR);
+	
+	/**
+	 * Publishes an update of a vehicle, replacing its previous update if it hasn't been displayed yet.
+	 * Can be called from any thread.
+	 * @param vehicleID vehicle's ID
+	 * @param position vehicle's position
+	 * @param batteryLevel vehicle's battery level on the position
+	 * @param state vehicle's state
+	 */
+	public void publish(String vehicleID, Point position, Integer batteryLevel, VehicleState state){
+		latestUpdates.put(vehicleID, new VehicleUpdate(vehicleID, position, batteryLevel, state, nextSequence.getAndIncrement()));
+	}
+	
+	/**
+	 * Requests the map to be cleared before the updates published after this call are displayed.
+	 * Can be called from any thread.
+	 */
+	public void publishClear(){
+		clearSequence.accumulateAndGet(nextSequence.getAndIncrement(), Math::max);
+	}
+	
+	/**
+	 * Takes the pending updates which should be displayed in the next frame.
+	 * @return the next frame's updates
+	 */
+	public Frame drain(){
+		long cleared = clearSequence.getAndSet(NO_CLEAR);
+		List<VehicleUpdate> updates = new ArrayList<>();
+		for(String vehicleID : latestUpdates.keySet()){
+			VehicleUpdate update = latestUpdates.remove(vehicleID);
+			if(update != null && update.sequence() > cleared){
+				updates.add(update);
+			}
+		}
+		// updates of different vehicles are applied in the order in which they were published
+		updates.sort(Comparator.comparingLong(VehicleUpdate::sequence));
+		return new Frame(cleared != NO_CLEAR, updates);
+	}
+	
+	/** Drops all pending updates and clear requests. */
+	public void clear(){
+		latestUpdates.clear();
+		clearSequence.set(NO_CLEAR);
+	}
+}
\ No newline at end of file
@@ -1,14 +1,22 @@
 package emobility.gui;
 
 import javax.swing.*;
+import javax.swing.event.AncestorEvent;
+import javax.swing.event.AncestorListener;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.text.SimpleDateFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import emobility.vehicles.*;
 
 /**
  * Displays tables with information about cars, electric bicycles, and electric scooters.
+ * <p>Battery level, status and position of the vehicles are read from the {@link FleetState} of the vehicle registry,
+ * and refreshed periodically while the panel is shown, so a running simulation can be followed from the tables.
+ * The state is read without locking, so the tables never hold up the simulation.</p>
  * 
  * @author Aleksandra Vucicevic
  * @version 1.0
@@ -16,6 +24,18 @@ import emobility.vehicles.*;
 public class VehiclesDisplay extends JPanel{
 	private static final long serialVersionUID = 1L;
 	
+	/** Index of the battery level column, which is the same in all tables. */
+	private static final int BATTERY_LEVEL_COLUMN = 3;
+	
+	/** Interval between refreshes of the vehicles' state, in milliseconds. */
+	private static final int REFRESH_INTERVAL_MILLIS = 500;
+	
+	/** Vehicles shown in each table, in the order of the table's rows, by table model. */
+	private Map<DefaultTableModel, List<? extends Vehicle>> shownVehicles = new LinkedHashMap<>();
+	
+	/** Timer refreshing the vehicles' state while the panel is shown. */
+	private Timer refreshTimer;
+	
 	/**
 	 * Constructs a {@code VehiclesDisplay} panel with tables showing all available vehicles.
 	 * @param cars list of cars to display
@@ -70,6 +90,61 @@ public class VehiclesDisplay extends JPanel{
 		
 		add(tablesPanel, BorderLayout.CENTER);
 		add(buttonPanel, BorderLayout.SOUTH);
+		
+		refreshTimer = new Timer(REFRESH_INTERVAL_MILLIS, e -> refreshState());
+		addAncestorListener(new AncestorListener(){
+			@Override
+			public void ancestorAdded(AncestorEvent event){
+				refreshState();
+				refreshTimer.start();
+			}
+			
+			@Override
+			public void ancestorRemoved(AncestorEvent event){
+				refreshTimer.stop();
+			}
+			
+			@Override
+			public void ancestorMoved(AncestorEvent event){
+			}
+		});
+	}
+	
+	/**
+	 * Copies the current battery level, status and position of all shown vehicles into the tables,
+	 * from one snapshot of the fleet's state.
+	 */
+	private void refreshState(){
+		List<FleetState.Entry> fleet = VehicleParser.getRegistry().getFleetState().snapshot();
+		for(Map.Entry<DefaultTableModel, List<? extends Vehicle>> table : shownVehicles.entrySet()){
+			DefaultTableModel model = table.getKey();
+			int statusColumn = model.getColumnCount() - 2;
+			List<? extends Vehicle> vehicles = table.getValue();
+			for(int row = 0; row < vehicles.size(); row++){
+				int number = vehicles.get(row).getFleetNumber();
+				if(number < 0 || number >= fleet.size()){
+					continue;
+				}
+				FleetState.Entry state = fleet.get(number);
+				String position = state.x() == FleetState.UNKNOWN_POSITION ? "-" : state.x() + "," + state.y();
+				setIfChanged(model, state.batteryLevel(), row, BATTERY_LEVEL_COLUMN);
+				setIfChanged(model, state.status(), row, statusColumn);
+				setIfChanged(model, position, row, statusColumn + 1);
+			}
+		}
+	}
+	
+	/**
+	 * Sets the value of a cell, unless it already holds the value, so unchanged rows aren't repainted.
+	 * @param model model of the table
+	 * @param value the new value
+	 * @param row row of the cell
+	 * @param column column of the cell
+	 */
+	private static void setIfChanged(DefaultTableModel model, Object value, int row, int column){
+		if(!Objects.equals(model.getValueAt(row, column), value)){
+			model.setValueAt(value, row, column);
+		}
 	}
 	
 	/**
@@ -78,14 +153,15 @@ public class VehiclesDisplay extends JPanel{
 	 * @return {@code JTable} containing car data
 	 */
 	private JTable createCarsTable(List<Car> cars){
-		String columnNames[] = {"ID","Model","Manufcturer","Battery Level","Purchase Price","Purchase Date","Description","More Seats"};
+		String columnNames[] = {"ID","Model","Manufcturer","Battery Level","Purchase Price","Purchase Date","Description","More Seats","Status","Position"};
 		DefaultTableModel model = new DefaultTableModel(columnNames,0);
 		SimpleDateFormat sdf = new SimpleDateFormat("dd.MM.yyyy.");
 		
 		for(Car car : cars){
-			Object rowData[] = {car.getID(),car.getModel(),car.getManufacturer(),car.getBatteryLevel(),String.format("%.2f",car.getPurchasePrice()),sdf.format(car.getPurchaseDate()),car.getDescription(),car.getMoreSeats()};
+			Object rowData[] = {car.getID(),car.getModel(),car.getManufacturer(),car.getBatteryLevel(),String.format("%.2f",car.getPurchasePrice()),sdf.format(car.getPurchaseDate()),car.getDescription(),car.getMoreSeats(),null,null};
 			model.addRow(rowData);
 		}
+		shownVehicles.put(model, cars);
 		
 		return new JTable(model);
 	}
@@ -96,13 +172,14 @@ public class VehiclesDisplay extends JPanel{
 	 * @return {@code JTable} containing bicycle data
 	 */
 	private JTable createBicyclesTable(List<ElectricBicycle> bicycles){
-		String columnNames[] = {"ID","Model","Manufcturer","BatteryLevel","Purchase Price","Autonomy"};
+		String columnNames[] = {"ID","Model","Manufcturer","BatteryLevel","Purchase Price","Autonomy","Status","Position"};
 		DefaultTableModel model = new DefaultTableModel(columnNames,0);
 		
 		for(ElectricBicycle bicycle : bicycles){
-			Object rowData[] = {bicycle.getID(),bicycle.getModel(),bicycle.getManufacturer(),bicycle.getBatteryLevel(),String.format("%.2f",bicycle.getPurchasePrice()),bicycle.getAutonomy()};
+			Object rowData[] = {bicycle.getID(),bicycle.getModel(),bicycle.getManufacturer(),bicycle.getBatteryLevel(),String.format("%.2f",bicycle.getPurchasePrice()),bicycle.getAutonomy(),null,null};
 			model.addRow(rowData);
 		}
+		shownVehicles.put(model, bicycles);
 		
 		return new JTable(model);
 	}
@@ -113,13 +190,14 @@ public class VehiclesDisplay extends JPanel{
 	 * @return {@code JTable} containing scooter data
 	 */
 	private JTable createScootersTable(List<ElectricScooter> scooters){
-		String columnNames[] = {"ID","Model","Manufcturer","BatteryLevel","Purchase Price","Maximum Speed"};
+		String columnNames[] = {"ID","Model","Manufcturer","BatteryLevel","Purchase Price","Maximum Speed","Status","Position"};
 		DefaultTableModel model = new DefaultTableModel(columnNames,0);
 		
 		for(ElectricScooter scooter : scooters){
-			Object rowData[] = {scooter.getID(),scooter.getModel(),scooter.getManufacturer(),scooter.getBatteryLevel(),String.format("%.2f",scooter.getPurchasePrice()),scooter.getMaxSpeed()};
+			Object rowData[] = {scooter.getID(),scooter.getModel(),scooter.getManufacturer(),scooter.getBatteryLevel(),String.format("%.2f",scooter.getPurchasePrice()),scooter.getMaxSpeed(),null,null};
 			model.addRow(rowData);
 		}
+		shownVehicles.put(model, scooters);
 		
 		return new JTable(model);
 	}
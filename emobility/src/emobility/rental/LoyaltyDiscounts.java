@@ -0,0 +1,92 @@
+package emobility.rental;
+
+import java.util.*;
+
+/**
+ * Assigns the loyalty discount to every 10th rental of each user, as the rentals are added.
+ * <p>Rentals of each user are kept in a list ordered by their date and time, with rentals at the same time
+ * in the order in which they were added. A rental which is later than all previous rentals of its user is
+ * appended, and only its own discount is decided, so rentals read in order take constant time.
+ * A late rental, which happened before some of the user's rentals that were already added, is inserted at its
+ * place and moves the rentals after it by one, so only their discounts are assigned again.</p>
+ * <p>All discounts can also be recalculated from scratch; users are independent, so they are processed in parallel.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+final class LoyaltyDiscounts{
+	/** Every rental whose number among the user's rentals is a multiple of this gets the discount. */
+	static final int DISCOUNTED_RENTAL = 10;
+	
+	/** Rentals of each user, ordered by their date and time. */
+	private final Map<User, List<Rental>> rentalsByUser = new HashMap<>();
+	
+	/**
+	 * Adds a rental to its user's rentals and assigns the discounts which change because of it.
+	 * @param rental the rental
+	 */
+	synchronized void add(Rental rental){
+		User user = rental.getUser();
+		List<Rental> rentals = rentalsByUser.computeIfAbsent(user, key -> new ArrayList<>());
+		int position = insertionPoint(rentals, rental.getRentalDateTime().getTime());
+		rentals.add(position, rental);
+		user.incrementRentCounter();
+		
+		for(int i = position; i < rentals.size(); i++){
+			assign(rentals.get(i), i);
+		}
+	}
+	
+	/**
+	 * Assigns the discounts of all rentals again, processing different users in parallel.
+	 */
+	synchronized void recalculate(){
+		rentalsByUser.entrySet().parallelStream().forEach(entry -> recalculate(entry.getKey(), entry.getValue()));
+	}
+	
+	/**
+	 * Assigns the discounts of a user's rentals, and counts the user's rentals again.
+	 * @param user the user
+	 * @param rentals user's rentals, ordered by their date and time
+	 */
+	private static void recalculate(User user, List<Rental> rentals){
+		user.resetRentCounter();
+		for(int i = 0; i < rentals.size(); i++){
+			user.incrementRentCounter();
+			assign(rentals.get(i), i);
+		}
+	}
+	
+	/**
+	 * Decides whether a rental gets the discount, based on its position among its user's rentals.
+	 * @param rental the rental
+	 * @param position position of the rental among the user's rentals, starting from 0
+	 */
+	private static void assign(Rental rental, int position){
+		rental.discount = (position + 1) % DISCOUNTED_RENTAL == 0;
+	}
+	
+	/**
+	 * Finds the position of a new rental among a user's rentals: after all rentals which don't happen later.
+	 * For a rental which is later than all others this is the end of the list, found without a search.
+	 * @param rentals user's rentals, ordered by their date and time
+	 * @param time time of the new rental, in milliseconds since the epoch
+	 * @return position at which the new rental is inserted
+	 */
+	private static int insertionPoint(List<Rental> rentals, long time){
+		int high = rentals.size();
+		if(high == 0 || rentals.get(high - 1).getRentalDateTime().getTime() <= time){
+			return high;
+		}
+		int low = 0;
+		while(low < high){
+			int middle = (low + high) >>> 1;
+			if(rentals.get(middle).getRentalDateTime().getTime() <= time){
+				low = middle + 1;
+			} else{
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
\ No newline at end of file
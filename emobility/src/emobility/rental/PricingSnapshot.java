@@ -0,0 +1,238 @@
+package emobility.rental;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.io.*;
+import java.nio.file.*;
+import emobility.utility.*;
+import emobility.vehicles.*;
+
+/**
+ * Immutable set of prices and factors read from a pricing properties file, shared by all rentals.
+ * <p>The pricing file is read once, into a flat table of unit prices indexed by vehicle type and a few factors,
+ * instead of being opened and parsed for every rental. Distance factors are read for each zone of the {@link ZoneMap},
+ * from the {@code DISTANCE_<ZONE>} keys. The current snapshot of each pricing file is replaced
+ * as a whole when the file is reloaded, so a bill computed with one snapshot always sees one consistent set of prices,
+ * even if the file changes while the bill is being computed. A snapshot is only replaced if the changed file
+ * contains all prices and each of them can be parsed, so a partially written file or a mistyped price
+ * never replaces a complete set of prices.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public final class PricingSnapshot{
+	/** Index of cars in the table of unit prices. */
+	public static final int CAR = 0;
+	
+	/** Index of electric bicycles in the table of unit prices. */
+	public static final int BICYCLE = 1;
+	
+	/** Index of electric scooters in the table of unit prices. */
+	public static final int SCOOTER = 2;
+	
+	/** Keys of the unit prices, by vehicle type index. */
+	private static final String[] UNIT_PRICE_KEYS = {"CAR_UNIT_PRICE", "BIKE_UNIT_PRICE", "SCOOTER_UNIT_PRICE"};
+	
+	/** Keys of the factors, besides the distance factors of the zones. */
+	private static final String[] FACTOR_KEYS = {"DISCOUNT", "DISCOUNT_PROM"};
+	
+	/** Current snapshots by the path of the pricing file. */
+	private static Map<Path, PricingSnapshot> snapshots = new ConcurrentHashMap<>();
+	
+	/** Watchers of pricing files reloaded when they change, by the path of the pricing file. */
+	private static Map<Path, FileWatcher> watchers = new ConcurrentHashMap<>();
+	
+	/** Unit prices, by vehicle type index. */
+	private final double[] unitPrices;
+	
+	/** Distance factors of the zones, by zone index. */
+	private final double[] distanceFactors;
+	
+	/** Discount factor for users who qualify for a discount. */
+	private final double discountFactor;
+	
+	/** Promotional discount factor. */
+	private final double promoFactor;
+	
+	/**
+	 * Constructs a {@code PricingSnapshot} from the values of a pricing file.
+	 * @param pr reader of the pricing file
+	 */
+	private PricingSnapshot(PricingReader pr){
+		this.unitPrices = new double[UNIT_PRICE_KEYS.length];
+		for(int type = 0; type < UNIT_PRICE_KEYS.length; type++){
+			unitPrices[type] = value(pr, UNIT_PRICE_KEYS[type]);
+		}
+		ZoneMap zoneMap = ZoneMap.get();
+		this.distanceFactors = new double[zoneMap.getZoneCount()];
+		for(int zone = 0; zone < distanceFactors.length; zone++){
+			distanceFactors[zone] = value(pr, distanceKey(zoneMap.getZoneName(zone)));
+		}
+		this.discountFactor = value(pr, "DISCOUNT") / 100.0;
+		this.promoFactor = value(pr, "DISCOUNT_PROM") / 100.0;
+	}
+	
+	/**
+	 * Gets the current snapshot of the specified pricing file, reading the file the first time.
+	 * @param filePath path of the pricing file
+	 * @return the current {@code PricingSnapshot}
+	 */
+	public static PricingSnapshot get(String filePath){
+		Path path = Paths.get(filePath).toAbsolutePath().normalize();
+		PricingSnapshot snapshot = snapshots.get(path);
+		if(snapshot == null){
+			snapshot = snapshots.computeIfAbsent(path, key -> new PricingSnapshot(new PricingReader(key.toString())));
+		}
+		return snapshot;
+	}
+	
+	/**
+	 * Reads the specified pricing file again and replaces its current snapshot,
+	 * unless the file doesn't contain all prices or one of them can't be parsed.
+	 * @param filePath path of the pricing file
+	 * @return the current {@code PricingSnapshot}
+	 */
+	public static PricingSnapshot reload(String filePath){
+		Path path = Paths.get(filePath).toAbsolutePath().normalize();
+		PricingReader pr = new PricingReader(path.toString());
+		String invalidKey = findInvalidKey(pr);
+		if(invalidKey != null){
+			System.out.println("Pricing file " + filePath + " has a missing or invalid value of " + invalidKey + ", the previous prices are kept.");
+			return get(filePath);
+		}
+		PricingSnapshot snapshot = new PricingSnapshot(pr);
+		snapshots.put(path, snapshot);
+		return snapshot;
+	}
+	
+	/**
+	 * Starts watching the specified pricing file, so its snapshot is reloaded whenever the file changes on disk.
+	 * @param filePath path of the pricing file
+	 * @throws IOException if the file's directory can't be watched
+	 */
+	public static void watch(String filePath) throws IOException{
+		Path path = Paths.get(filePath).toAbsolutePath().normalize();
+		FileWatcher watcher = new FileWatcher(path, () -> reload(filePath));
+		if(watchers.putIfAbsent(path, watcher) == null){
+			watcher.start();
+		}
+	}
+	
+	/**
+	 * Finds the first price or factor which is missing from a pricing file, or can't be parsed as a number.
+	 * @param pr reader of the pricing file
+	 * @return key of the invalid value, or {@code null} if all values are present and valid
+	 */
+	private static String findInvalidKey(PricingReader pr){
+		for(String key : UNIT_PRICE_KEYS){
+			if(parse(pr, key) == null){
+				return key;
+			}
+		}
+		for(String key : FACTOR_KEYS){
+			if(parse(pr, key) == null){
+				return key;
+			}
+		}
+		ZoneMap zoneMap = ZoneMap.get();
+		for(int zone = 0; zone < zoneMap.getZoneCount(); zone++){
+			String key = distanceKey(zoneMap.getZoneName(zone));
+			if(parse(pr, key) == null){
+				return key;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Parses a value from a pricing file.
+	 * @param pr reader of the pricing file
+	 * @param key property key
+	 * @return the value, or {@code null} if it's missing, can't be parsed or isn't a finite number
+	 */
+	private static Double parse(PricingReader pr, String key){
+		String text = pr.getProperty(key);
+		if(text == null){
+			return null;
+		}
+		try{
+			double value = Double.parseDouble(text);
+			return Double.isFinite(value) ? value : null;
+		} catch(NumberFormatException e){
+			return null;
+		}
+	}
+	
+	/**
+	 * Gets the key of a zone's distance factor.
+	 * @param zoneName name of the zone
+	 * @return key of the distance factor
+	 */
+	private static String distanceKey(String zoneName){
+		return "DISTANCE_" + zoneName.toUpperCase();
+	}
+	
+	/**
+	 * Reads a value from a pricing file.
+	 * @param pr reader of the pricing file
+	 * @param key property key
+	 * @return the value, or {@code 0.0} if it's missing or can't be parsed
+	 */
+	private static double value(PricingReader pr, String key){
+		if(pr.getProperty(key) == null){
+			System.out.println("Missing pricing property: " + key);
+			return 0.0;
+		}
+		return pr.getDoubleProperty(key);
+	}
+	
+	/**
+	 * Returns the index of the vehicle's type in the table of unit prices.
+	 * @param vehicle the vehicle
+	 * @return index of the vehicle's type, or -1 if the vehicle's type isn't priced
+	 */
+	public static int typeIndex(Vehicle vehicle){
+		if(vehicle instanceof Car){
+			return CAR;
+		} else if(vehicle instanceof ElectricBicycle){
+			return BICYCLE;
+		} else if(vehicle instanceof ElectricScooter){
+			return SCOOTER;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Gets the unit price of a vehicle type.
+	 * @param type index of the vehicle's type
+	 * @return unit price of the type
+	 */
+	public double getUnitPrice(int type){
+		return unitPrices[type];
+	}
+	
+	/**
+	 * Gets the distance factor of a zone.
+	 * @param zone index of the {@link ZoneMap} zone
+	 * @return distance factor of the zone
+	 */
+	public double getDistanceFactor(int zone){
+		return distanceFactors[zone];
+	}
+	
+	/**
+	 * Gets the discount factor for users who qualify for a discount.
+	 * @return the discount factor
+	 */
+	public double getDiscountFactor(){
+		return discountFactor;
+	}
+	
+	/**
+	 * Gets the promotional discount factor.
+	 * @return the promo factor
+	 */
+	public double getPromoFactor(){
+		return promoFactor;
+	}
+}
\ No newline at end of file
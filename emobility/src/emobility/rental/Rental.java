@@ -2,6 +2,7 @@ package emobility.rental;
 
 import java.util.*;
 import java.text.SimpleDateFormat;
+import emobility.utility.*;
 import emobility.vehicles.*;
 
 /**
@@ -20,8 +21,8 @@ public class Rental{
 	/** A map that stores all users by their ID documents. */
 	protected static Map<String, User> users = new HashMap<>();
 	
-	/** A map that stores all rentals of a user sorted by date and time of the rental. */
-	protected static Map<User, TreeMap<Date, List<Rental>>> rentalsByUser = new HashMap<>();
+	/** Rentals of all users, which assign the additional discount for every user's every 10th rental. */
+	private static LoyaltyDiscounts loyaltyDiscounts = new LoyaltyDiscounts();
 	
 	/** Date and time of the rental. */
 	protected Date rentalDateTime;
@@ -32,11 +33,20 @@ public class Rental{
 	/** Vehicle's ID. */
 	protected String ID;
 	
-	/** Rental's start location. */
-	protected String startLocation;
+	/** X-coordinate of rental's start location. */
+	protected int startX;
 	
-	/** Rental's goal location. */
-	protected String goalLocation;
+	/** Y-coordinate of rental's start location. */
+	protected int startY;
+	
+	/** X-coordinate of rental's goal location. */
+	protected int goalX;
+	
+	/** Y-coordinate of rental's goal location. */
+	protected int goalY;
+	
+	/** Index of the {@link ZoneMap} zone the rental belongs to. */
+	protected int zone;
 	
 	/** Rental's duration in seconds. */
 	protected Long duration;
@@ -58,22 +68,28 @@ public class Rental{
 	
 	
 	/**
-	 * Constructs a new Rental with specified details.
+	 * Constructs a new Rental with specified details. Both locations must be on the grid of the {@link ZoneMap},
+	 * which decides the rental's zone.
 	 * @param rentalDateTime date and time of the rental
 	 * @param user user that rents the vehicle
 	 * @param ID ID of the vehicle being rented
-	 * @param startLocation rental's start location
-	 * @param goalLocation rental's goal location
+	 * @param startX x-coordinate of rental's start location
+	 * @param startY y-coordinate of rental's start location
+	 * @param goalX x-coordinate of rental's goal location
+	 * @param goalY y-coordinate of rental's goal location
 	 * @param fault information if the fault occurred or not
 	 * @param duration duration of the rental
 	 * @param promo information if there was a promotional discount
 	 */
-	public Rental(Date rentalDateTime, User user, String ID, String startLocation, String goalLocation, Boolean fault, Long duration, Boolean promo){
+	public Rental(Date rentalDateTime, User user, String ID, int startX, int startY, int goalX, int goalY, Boolean fault, Long duration, Boolean promo){
 		this.rentalDateTime = rentalDateTime;
 		this.user = getOrCreateUser(user.getIdDocument(),user.getDriverLicenseNumber());
 		this.ID = ID;
-		this.startLocation = startLocation;
-		this.goalLocation = goalLocation;
+		this.startX = startX;
+		this.startY = startY;
+		this.goalX = goalX;
+		this.goalY = goalY;
+		this.zone = ZoneMap.get().getRentalZone(startX, startY, goalX, goalY);
 		this.fault = fault;
 		this.duration = duration;
 		this.promo = promo;
@@ -86,7 +102,7 @@ public class Rental{
 			updateVehicleFaultsMap(vehicle, registeredFault);
 		}
 		
-		addToUserRentalMap();
+		loyaltyDiscounts.add(this);
 	}
 	
 	/**
@@ -97,8 +113,11 @@ public class Rental{
 		this.rentalDateTime = rental.rentalDateTime;
 		this.user = rental.user;
 		this.ID = rental.ID;
-		this.startLocation = rental.startLocation;
-		this.goalLocation = rental.goalLocation;
+		this.startX = rental.startX;
+		this.startY = rental.startY;
+		this.goalX = rental.goalX;
+		this.goalY = rental.goalY;
+		this.zone = rental.zone;
 		this.fault = rental.fault;
 		this.duration = rental.duration;
 		this.promo = rental.promo;
@@ -113,7 +132,7 @@ public class Rental{
 	@Override
 	public String toString(){
 		SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy HH:mm");
-		return "Rental of the vehicle:" + ID + "\ndate and time:" + dateFormat.format(rentalDateTime) + "\nfrom:" + startLocation + "\nto:" + goalLocation + "\nduration:" + duration
+		return "Rental of the vehicle:" + ID + "\ndate and time:" + dateFormat.format(rentalDateTime) + "\nfrom:" + getStartLocation() + "\nto:" + getGoalLocation() + "\nduration:" + duration
 				+ "\nfault:" + (fault? "yes" : "no") + "\npromo:" + (promo? "yes" : "no") + "\nUser info:" + user.toString();
 	}
 	
@@ -132,34 +151,12 @@ public class Rental{
 		return user;
 	}
 	
-	/** Adds rental to the map that contains all user's rentals sorted by date and time of the rental. */
-	private void addToUserRentalMap(){
-		TreeMap<Date, List<Rental>> userRentals = rentalsByUser.getOrDefault(user, new TreeMap<>());
-		List<Rental> rentalsAtSameTime = userRentals.getOrDefault(rentalDateTime, new ArrayList<>());
-		rentalsAtSameTime.add(this);
-		userRentals.put(rentalDateTime, rentalsAtSameTime);
-		rentalsByUser.put(user, userRentals);
-	}
-	
-	/** Processes rentals by adding additional discount for user's every 10th rental. */
+	/**
+	 * Recalculates the additional discount for every user's every 10th rental from scratch, processing users in parallel.
+	 * Discounts are already assigned as the rentals are created, so this is only needed if they have to be rebuilt.
+	 */
 	public static void processRentals(){
-		for(Map.Entry<User, TreeMap<Date, List<Rental>>> entry : rentalsByUser.entrySet()){
-			User user = entry.getKey();
-			TreeMap<Date, List<Rental>> rentals = entry.getValue();
-			
-			user.resetRentCounter();
-			
-			for(Map.Entry<Date, List<Rental>> rentalEntry : rentals.entrySet()){
-				List<Rental> rentalsAtSameTime = rentalEntry.getValue();
-				for(Rental rental : rentalsAtSameTime){
-					user.incrementRentCounter();
-					
-					if(user.getRentCounter() % 10 == 0){
-						rental.discount = true;
-					}
-				}
-			}
-		}
+		loyaltyDiscounts.recalculate();
 	}
 	
 	/**
@@ -168,7 +165,7 @@ public class Rental{
 	 * @param rentalDateTime date and time of the potential fault
 	 * @return {@link Fault} object if the fault exists, otherwise null
 	 */
-	private static Fault getVehiclesFault(Vehicle vehicle, Date rentalDateTime){
+	private static synchronized Fault getVehiclesFault(Vehicle vehicle, Date rentalDateTime){
 		List<Fault> faultsOnOneVehicle = vehicleFaultsMap.get(vehicle);
 		if(faultsOnOneVehicle != null){
 			for(Fault fault : faultsOnOneVehicle){
@@ -186,7 +183,7 @@ public class Rental{
 	 * @param vehicle vehicle on which the fault occurred
 	 * @param fault fault that occurred
 	 */
-	private static void updateVehicleFaultsMap(Vehicle vehicle, Fault fault){
+	private static synchronized void updateVehicleFaultsMap(Vehicle vehicle, Fault fault){
 		vehicleFaultsMap.putIfAbsent(vehicle, new ArrayList<>());
 		List<Fault> faults = vehicleFaultsMap.get(vehicle);
 	    faults.add(fault);
@@ -223,7 +220,7 @@ public class Rental{
 	 * @return start location
 	 */
 	public String getStartLocation(){
-		return startLocation;
+		return startX + "," + startY;
 	}
 	
 	/**
@@ -231,7 +228,47 @@ public class Rental{
 	 * @return goal location
 	 */
 	public String getGoalLocation(){
-		return goalLocation;
+		return goalX + "," + goalY;
+	}
+	
+	/**
+	 * Returns x-coordinate of rental's start location
+	 * @return x-coordinate of start location
+	 */
+	public int getStartX(){
+		return startX;
+	}
+	
+	/**
+	 * Returns y-coordinate of rental's start location
+	 * @return y-coordinate of start location
+	 */
+	public int getStartY(){
+		return startY;
+	}
+	
+	/**
+	 * Returns x-coordinate of rental's goal location
+	 * @return x-coordinate of goal location
+	 */
+	public int getGoalX(){
+		return goalX;
+	}
+	
+	/**
+	 * Returns y-coordinate of rental's goal location
+	 * @return y-coordinate of goal location
+	 */
+	public int getGoalY(){
+		return goalY;
+	}
+	
+	/**
+	 * Returns the zone of the rental, decided when the rental was created
+	 * @return index of the {@link ZoneMap} zone
+	 */
+	public int getZone(){
+		return zone;
 	}
 	
 	/**
@@ -287,6 +324,25 @@ public class Rental{
 		rentalID++;
 	}
 	
+	/**
+	 * Reserves consecutive rental IDs, as if the ID was incremented the specified number of times.
+	 * @param count number of IDs to reserve
+	 * @return the first reserved ID
+	 */
+	public static Integer reserveRentalIDs(Integer count){
+		Integer firstID = rentalID + 1;
+		rentalID += count;
+		return firstID;
+	}
+	
+	/**
+	 * Continues rental IDs after the specified ID, so new rentals don't reuse IDs which were already given out.
+	 * @param lastID the last ID which was given out
+	 */
+	public static void continueRentalIDs(Integer lastID){
+		rentalID = Math.max(rentalID, lastID);
+	}
+	
 	/**
 	 * Returns map that contains vehicles and their faults
 	 * @return map with vehicles and their faults
@@ -0,0 +1,224 @@
+package emobility.rental;
+
+import java.util.*;
+
+/**
+ * Index of all rentals by their day and time, used to find the rentals which happen on a day or at the same time.
+ * <p>Rentals are kept in one array ordered by their date and time, and split into slots, one per distinct time.
+ * Sorted primitive arrays hold the time and the minute of the day of each slot, and the epoch day of each day with
+ * rentals together with its first slot, so a day, a slot or a range of slots is found by a binary search,
+ * without creating {@link Calendar} objects. Days and minutes are counted in the default time zone, like the
+ * dates of the rentals.</p>
+ * <p>Rentals are added while they are parsed, and later as they are appended to the file. Added rentals are
+ * merged into the arrays in one pass when the index is next queried, so parsing never shifts the arrays.
+ * Rentals which happen at the same time stay in the order in which they were added.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public final class RentalCalendar{
+	/** Number of milliseconds in a day. */
+	private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+	
+	/** Number of milliseconds in a minute. */
+	private static final long MILLIS_PER_MINUTE = 60L * 1000;
+	
+	/** Time zone in which the days are counted. */
+	private static final TimeZone TIME_ZONE = TimeZone.getDefault();
+	
+	/** Rentals added since the arrays were built, in the order they were added. */
+	private List<Rental> pendingRentals = new ArrayList<>();
+	
+	/** All rentals, ordered by their date and time. */
+	private Rental[] rentals = new Rental[0];
+	
+	/** Time of each slot in milliseconds since the epoch, ascending. */
+	private long[] slotTimes = new long[0];
+	
+	/** Minute of the day of each slot. */
+	private int[] slotMinutes = new int[0];
+	
+	/** Index of the first rental of each slot, followed by the number of rentals. */
+	private int[] slotStarts = {0};
+	
+	/** Epoch day of each day with rentals, ascending. */
+	private long[] days = new long[0];
+	
+	/** Index of the first slot of each day, followed by the number of slots. */
+	private int[] dayStarts = {0};
+	
+	/**
+	 * Adds a rental to the index.
+	 * @param rental the rental
+	 */
+	synchronized void add(Rental rental){
+		pendingRentals.add(rental);
+	}
+	
+	/**
+	 * Gets the day of a point in time, counted in days since the epoch.
+	 * @param epochMillis time in milliseconds since the epoch
+	 * @return epoch day of the time
+	 */
+	public static long getEpochDay(long epochMillis){
+		return Math.floorDiv(epochMillis + TIME_ZONE.getOffset(epochMillis), MILLIS_PER_DAY);
+	}
+	
+	/**
+	 * Gets the minute of the day of a point in time.
+	 * @param epochMillis time in milliseconds since the epoch
+	 * @return minute of the day, from 0 to 1439
+	 */
+	public static int getMinuteOfDay(long epochMillis){
+		return (int) (Math.floorMod(epochMillis + TIME_ZONE.getOffset(epochMillis), MILLIS_PER_DAY) / MILLIS_PER_MINUTE);
+	}
+	
+	/**
+	 * Gets all days with rentals.
+	 * @return epoch days with rentals, ascending
+	 */
+	public synchronized long[] getDays(){
+		build();
+		return days.clone();
+	}
+	
+	/**
+	 * Gets all rentals of a day, grouped by their time.
+	 * @param epochDay the day, in days since the epoch
+	 * @return lists of rentals which happen at the same time, in chronological order, empty if there are none
+	 */
+	public synchronized List<List<Rental>> getRentalsOnDay(long epochDay){
+		build();
+		int day = Arrays.binarySearch(days, epochDay);
+		return day < 0 ? List.of() : getSlots(dayStarts[day], dayStarts[day + 1]);
+	}
+	
+	/**
+	 * Gets the minutes of the day at which rentals happen on a day.
+	 * @param epochDay the day, in days since the epoch
+	 * @return minutes of the day with rentals, ascending, empty if there are none
+	 */
+	public synchronized int[] getSlotMinutes(long epochDay){
+		build();
+		int day = Arrays.binarySearch(days, epochDay);
+		return day < 0 ? new int[0] : Arrays.copyOfRange(slotMinutes, dayStarts[day], dayStarts[day + 1]);
+	}
+	
+	/**
+	 * Finds the first time after the specified one at which rentals happen.
+	 * @param dateTime date and time after which to search
+	 * @return date and time of the next rentals, or {@code null} if there are none
+	 */
+	public synchronized Date getNextSlot(Date dateTime){
+		build();
+		int slot = firstSlotAfter(dateTime.getTime());
+		return slot < slotTimes.length ? new Date(slotTimes[slot]) : null;
+	}
+	
+	/**
+	 * Finds the first time after the specified one at which rentals happen on the same day.
+	 * @param dateTime date and time after which to search
+	 * @return date and time of the next rentals on the same day, or {@code null} if there are none
+	 */
+	public synchronized Date getNextSlotOnSameDay(Date dateTime){
+		build();
+		int slot = firstSlotAfter(dateTime.getTime());
+		if(slot < slotTimes.length && getEpochDay(slotTimes[slot]) == getEpochDay(dateTime.getTime())){
+			return new Date(slotTimes[slot]);
+		}
+		return null;
+	}
+	
+	/**
+	 * Gets the rentals which happen in a period, grouped by their time.
+	 * @param from start of the period, inclusive
+	 * @param to end of the period, exclusive
+	 * @return lists of rentals which happen at the same time, in chronological order, empty if there are none
+	 */
+	public synchronized List<List<Rental>> getSlotsBetween(Date from, Date to){
+		build();
+		int first = firstSlotAfter(from.getTime() - 1);
+		int last = Math.max(first, firstSlotAfter(to.getTime() - 1));
+		return getSlots(first, last);
+	}
+	
+	/**
+	 * Finds the first slot after the specified time.
+	 * @param epochMillis time in milliseconds since the epoch
+	 * @return index of the slot, or the number of slots if there is none
+	 */
+	private int firstSlotAfter(long epochMillis){
+		int slot = Arrays.binarySearch(slotTimes, epochMillis);
+		return slot >= 0 ? slot + 1 : -slot - 1;
+	}
+	
+	/**
+	 * Gets the rentals of a range of slots.
+	 * @param first index of the first slot, inclusive
+	 * @param last index of the last slot, exclusive
+	 * @return lists of rentals which happen at the same time, one per slot
+	 */
+	private List<List<Rental>> getSlots(int first, int last){
+		List<List<Rental>> slots = new ArrayList<>(last - first);
+		for(int slot = first; slot < last; slot++){
+			slots.add(List.of(Arrays.copyOfRange(rentals, slotStarts[slot], slotStarts[slot + 1])));
+		}
+		return slots;
+	}
+	
+	/**
+	 * Merges the added rentals into the ordered rentals, and rebuilds the slots and days in one pass.
+	 */
+	private void build(){
+		if(pendingRentals.isEmpty()){
+			return;
+		}
+		List<Rental> added = pendingRentals;
+		pendingRentals = new ArrayList<>();
+		added.sort(Comparator.comparingLong(rental -> rental.getRentalDateTime().getTime()));
+		
+		int count = rentals.length + added.size();
+		Rental[] merged = new Rental[count];
+		long[] times = new long[count];
+		int[] minutes = new int[count];
+		int[] starts = new int[count + 1];
+		long[] mergedDays = new long[count];
+		int[] mergedDayStarts = new int[count + 1];
+		int slots = 0;
+		int dayCount = 0;
+		
+		int existing = 0;
+		int next = 0;
+		for(int i = 0; i < count; i++){
+			// rentals at the same time which were added earlier stay first
+			if(next == added.size() || existing < rentals.length && rentals[existing].getRentalDateTime().getTime() <= added.get(next).getRentalDateTime().getTime()){
+				merged[i] = rentals[existing++];
+			} else{
+				merged[i] = added.get(next++);
+			}
+			
+			long time = merged[i].getRentalDateTime().getTime();
+			if(slots == 0 || time != times[slots - 1]){
+				long day = getEpochDay(time);
+				if(dayCount == 0 || day != mergedDays[dayCount - 1]){
+					mergedDays[dayCount] = day;
+					mergedDayStarts[dayCount] = slots;
+					dayCount++;
+				}
+				times[slots] = time;
+				minutes[slots] = getMinuteOfDay(time);
+				starts[slots] = i;
+				slots++;
+			}
+		}
+		starts[slots] = count;
+		mergedDayStarts[dayCount] = slots;
+		
+		rentals = merged;
+		slotTimes = Arrays.copyOf(times, slots);
+		slotMinutes = Arrays.copyOf(minutes, slots);
+		slotStarts = Arrays.copyOf(starts, slots + 1);
+		days = Arrays.copyOf(mergedDays, dayCount);
+		dayStarts = Arrays.copyOf(mergedDayStarts, dayCount + 1);
+	}
+}
\ No newline at end of file
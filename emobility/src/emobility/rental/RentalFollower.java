@@ -0,0 +1,101 @@
+package emobility.rental;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.io.*;
+import java.nio.file.*;
+import emobility.utility.*;
+
+/**
+ * Follows a growing rentals file and ingests rows as they are appended to it.
+ * <p>The follower remembers how many bytes of the file have been parsed, starting from the length parsed by
+ * {@link RentalParser}, and uses a {@link FileWatcher} to get notified about appends. Only the new bytes are parsed;
+ * new rentals are added to {@link RentalParser#getRentals()} and to the user structures in {@link Rental},
+ * which assign their discounts as they are added, and every listener is notified about each new rental.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public class RentalFollower implements Closeable{
+	/** The path to the followed CSV file. */
+	private String filePath;
+	
+	/** Number of bytes of the file parsed so far. */
+	private long offset;
+	
+	/** Listeners notified about new rentals. */
+	private List<Consumer<Rental>> listeners;
+	
+	/** Watcher notifying the follower about changes of the file. */
+	private FileWatcher watcher;
+	
+	/**
+	 * Constructs a {@code RentalFollower} which continues after the part of the file that has already been parsed.
+	 * @param filePath the path to the CSV file containing rental data
+	 */
+	public RentalFollower(String filePath){
+		this.filePath = filePath;
+		this.offset = RentalParser.getParsedLength(filePath);
+		this.listeners = new CopyOnWriteArrayList<>();
+	}
+	
+	/**
+	 * Adds a listener which is notified about each new rental, on the follower's thread.
+	 * @param listener consumer which receives new rentals
+	 */
+	public void addListener(Consumer<Rental> listener){
+		listeners.add(listener);
+	}
+	
+	/**
+	 * Starts following the file. Rows appended since the file was parsed are ingested right away.
+	 * @throws IOException if the file can't be watched
+	 */
+	public void start() throws IOException{
+		watcher = new FileWatcher(Paths.get(filePath), this::poll);
+		watcher.start();
+		poll();
+	}
+	
+	/** Parses rows appended to the file since the last call, and notifies the listeners about new rentals. */
+	public synchronized void poll(){
+		List<Rental> added = new ArrayList<>();
+		try{
+			offset = RentalParser.parseAppended(filePath, offset, added::add);
+		} catch(NoSuchFileException e){
+			System.out.println("Rentals file doesn't exist: " + filePath);
+			return;
+		} catch(IOException e){
+			e.printStackTrace();
+		}
+		
+		if(added.isEmpty())
+			return;
+		
+		for(Rental rental : added){
+			for(Consumer<Rental> listener : listeners){
+				listener.accept(rental);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of bytes of the file parsed so far.
+	 * @return the offset after the last parsed row
+	 */
+	public synchronized long getOffset(){
+		return offset;
+	}
+	
+	/**
+	 * Stops following the file.
+	 * @throws IOException if the watcher can't be closed
+	 */
+	@Override
+	public void close() throws IOException{
+		if(watcher != null){
+			watcher.close();
+		}
+	}
+}
\ No newline at end of file
@@ -2,10 +2,10 @@ package emobility.rental;
 
 import java.io.*;
 import java.util.*;
-import java.util.stream.Collectors;
 import java.text.SimpleDateFormat;
 import emobility.utility.*;
 import emobility.vehicles.*;
+import emobility.reporting.*;
 
 /**
  * This class extends {@link Rental} class and is responsible for managing the financial aspects of rentals, 
@@ -14,8 +14,20 @@ import emobility.vehicles.*;
  * logic between rentals for specific vehicle.</p>
  */
 public class RentalManagement extends Rental{
-	/** Reader for accessing pricing data from a properties file. */
-	private PricingReader pr;
+	/** Indicates whether bills are also written to text files, besides being recorded in the {@link BillLedger}. */
+	private static Boolean writeBillFiles = true;
+	
+	/** Asynchronous writer of bill files, or {@code null} if bill files are written directly by the rental's thread. */
+	private static BillWriter billWriter;
+	
+	/** Indicates whether bills are stored in a segmented archive instead of one text file per bill. */
+	private static Boolean archiveBills = false;
+	
+	/** Archive to which bills are appended directly when there's no bill writer, or {@code null} until first needed. */
+	private static SegmentedBillArchive directArchive;
+	
+	/** Prices and factors used for this rental's bill. */
+	private PricingSnapshot pricing;
 	
 	/** Directory path where all the bills will be saved. */
 	private String billsDirectoryPath;
@@ -47,13 +59,14 @@ public class RentalManagement extends Rental{
 	/**
 	 * Constructs a {@code RentalManagement} object using data from an existing 
 	 * {@code Rental} object and initializes pricing information and billing directory.
+	 * Pricing is taken from the current {@link PricingSnapshot}, which is shared by all rentals.
 	 * @param pricingPropertiesFilePath the file path to the pricing properties file
 	 * @param billsDirectoryPath the directory path where the bills will be saved
 	 * @param rental the {@code Rental} object containing rental data
 	 */
 	public RentalManagement(String pricingPropertiesFilePath, String billsDirectoryPath, Rental rental){
 		super(rental);
-		this.pr = new PricingReader(pricingPropertiesFilePath);
+		this.pricing = PricingSnapshot.get(pricingPropertiesFilePath);
 		this.billsDirectoryPath = billsDirectoryPath;
 		this.billsDirectory = new File(this.billsDirectoryPath);
 		if(!billsDirectory.exists()){
@@ -70,9 +83,9 @@ public class RentalManagement extends Rental{
 		return "Bill:" + billID + "\nfor:" + area + " area \n" + super.toString() + "\n\nCost info:\nbase price:" + String.format(Locale.US, "%.2f", basePrice) + "\ndistance factor:" + String.format(Locale.US, "%.2f", distanceFactor) + "\ndiscount factor:" + String.format(Locale.US, "%.2f", discountFactor) + "\npromo factor:" + String.format(Locale.US, "%.2f", promoFactor) + "\n\nTotal price:" + String.format(Locale.US, "%.2f", totalPrice);
 	}
 	
-	/** Sets the area for the rental. */
+	/** Sets the area for the rental: the name of the {@link ZoneMap} zone in which the vehicle operated. */
 	public void setArea(){
-		area = isWideArea() ? "wide" : "narrow";
+		area = ZoneMap.get().getZoneName(zone);
 	}
 	
 	/**
@@ -91,64 +104,34 @@ public class RentalManagement extends Rental{
 		return billID;
 	}
 	
-	/**
-	 * Determines if the rental takes place in the wide area.
-	 * @return {@code true} if the rental is in a wide area, otherwise {@code false}
-	 */
-	private boolean isWideArea(){
-		String startCoordinates[] = startLocation.split(",");
-		String goalCoordinates[] = goalLocation.split(",");
-		Integer startX = Integer.parseInt(startCoordinates[0]);
-		Integer startY = Integer.parseInt(startCoordinates[1]);
-		Integer goalX = Integer.parseInt(goalCoordinates[0]);
-		Integer goalY = Integer.parseInt(goalCoordinates[1]);
-		
-		return (startX < 5 || startX > 14 || startY < 5 || startY > 14 || goalX < 5 || goalX > 14 || goalY < 5 || goalY > 14);
-	}
-	
 	/** Calculates the base price of the rental based on the vehicle's type and duration of the rental. */
 	private void calculateBasePrice(){
 		basePrice = 0.0;
-		Double unitPrice = 0.0;
 		Vehicle vehicle = VehicleParser.getVehicle(this.ID);
 		if(vehicle != null){
-			String type = vehicle.getType();
-			
-			switch(type.toLowerCase()){
-				case "car":
-					unitPrice = pr.getDoubleProperty("CAR_UNIT_PRICE");
-					break;
-				
-				case "bicycle":
-					unitPrice = pr.getDoubleProperty("BIKE_UNIT_PRICE");
-					break;
-					
-				case "scooter":
-					unitPrice = pr.getDoubleProperty("SCOOTER_UNIT_PRICE");
-					break;
-					
-				default:
-					System.out.println("Invalid vehicle type: " + type);
-					return;
+			int type = PricingSnapshot.typeIndex(vehicle);
+			if(type < 0){
+				System.out.println("Invalid vehicle type: " + vehicle.getType());
+				return;
 			}
 			
-			basePrice = unitPrice * duration; 
+			basePrice = pricing.getUnitPrice(type) * duration;
 		} else{
 			System.out.println("Invalid vehicle ID: " + ID);
 			return;
 		}
 	}
 	
-	/** Calculates the distance factor based on the rental's area. */
+	/** Calculates the distance factor based on the rental's zone. */
 	private void calculateDistanceFactor(){
-		distanceFactor = isWideArea() ? pr.getDoubleProperty("DISTANCE_WIDE") : pr.getDoubleProperty("DISTANCE_NARROW");
+		distanceFactor = pricing.getDistanceFactor(zone);
 	}
 	
 	/** Calculates the discount factor it the rental qualifies for a discount. */
 	private void calculateDiscountFactor(){
 		discountFactor = 0.0;
 		if(discount){
-			discountFactor = (pr.getDoubleProperty("DISCOUNT")/100.0);
+			discountFactor = pricing.getDiscountFactor();
 		}
 	}
 	
@@ -156,7 +139,7 @@ public class RentalManagement extends Rental{
 	private void calculatePromoFactor(){
 		promoFactor = 0.0;
 		if(promo){
-			promoFactor = (pr.getDoubleProperty("DISCOUNT_PROM")/100.0);
+			promoFactor = pricing.getPromoFactor();
 		}
 	}
 	
@@ -177,8 +160,47 @@ public class RentalManagement extends Rental{
 		}
 	}
 	
-	/** Generates a bill for the rental and saves it to the file in the designated folder. */
+	/**
+	 * Sets whether bills are also written to text files, besides being recorded in the {@link BillLedger}.
+	 * @param writeBillFiles {@code true} if bill files should be written, otherwise {@code false}
+	 */
+	public static void setWriteBillFiles(Boolean writeBillFiles){
+		RentalManagement.writeBillFiles = writeBillFiles;
+	}
+	
+	/**
+	 * Sets whether bills are stored in a segmented archive. Bills which can't go through the {@link BillWriter}
+	 * are then appended to the archive directly, so their IDs are seen by later runs.
+	 * @param archiveBills {@code true} if bills are archived, {@code false} if one text file is written per bill
+	 */
+	public static void setArchiveBills(Boolean archiveBills){
+		RentalManagement.archiveBills = archiveBills;
+	}
+	
+	/**
+	 * Sets the asynchronous writer used for bill files. If no writer is set, bill files are written directly.
+	 * @param billWriter the {@link BillWriter}, or {@code null} to write bill files directly
+	 */
+	public static void setBillWriter(BillWriter billWriter){
+		RentalManagement.billWriter = billWriter;
+	}
+	
+	/**
+	 * Generates a bill with the next bill ID for the rental and records it in the {@link BillLedger}.
+	 * If writing bill files is enabled, the bill is also saved to the file in the designated folder,
+	 * through the {@link BillWriter} if one is set.
+	 */
 	public void generateBill(){
+		Rental.incrementRentalID();
+		generateBill(rentalID);
+	}
+	
+	/**
+	 * Generates a bill with the specified ID for the rental, like {@link #generateBill()}.
+	 * Used when bill IDs are assigned in a fixed order, while the bills themselves are generated by several threads.
+	 * @param billID unique ID of the bill
+	 */
+	public void generateBill(Integer billID){
 		setArea();
 		calculateBasePrice();
 		calculateDistanceFactor();
@@ -187,8 +209,29 @@ public class RentalManagement extends Rental{
 		
 		calculateTotalPrice(basePrice,distanceFactor,discountFactor,promoFactor);
 		
-		Rental.incrementRentalID();
-		billID = rentalID;
+		this.billID = billID;
+		Bill bill = toBill();
+		BillLedger.record(bill);
+		
+		if(!writeBillFiles)
+			return;
+		
+		// if the writer has failed, the bill is written directly
+		BillWriter writer = billWriter;
+		if(writer != null && writer.submit(bill, toString())){
+			return;
+		}
+		
+		if(archiveBills){
+			try{
+				appendToArchive(billsDirectoryPath, bill, toString());
+				return;
+			} catch(IOException | RuntimeException e){
+				System.out.println("Bill " + billID + " couldn't be archived, it's written into a bill file.");
+				e.printStackTrace();
+			}
+		}
+		
 		String fileName = billID + "_rentbill.txt";
 		
 		File billFile = new File(billsDirectory,fileName);
@@ -201,62 +244,52 @@ public class RentalManagement extends Rental{
 	}
 	
 	/**
-	 * Groups all rentals by their rental date and time and maps the grouped rentals to that date and time.
-	 * @return A map with the rental date and time as the key, and list of {@code Rental} objects grouped by that date and time
+	 * Appends a bill to the archive and syncs it at once, opening a new segment of the archive the first time.
+	 * @param directoryPath the path of the directory holding the archive
+	 * @param bill the structured bill
+	 * @param text the bill's text
+	 * @throws IOException if the bill can't be archived
 	 */
-	private static Map<Date,List<Rental>> getRentalsGroupedByTime(){
-		List<Rental> rentals = RentalParser.getRentals();
-		return rentals.stream().collect(Collectors.groupingBy(Rental::getRentalDateTime));
+	private static synchronized void appendToArchive(String directoryPath, Bill bill, String text) throws IOException{
+		if(directArchive == null){
+			directArchive = new SegmentedBillArchive(directoryPath);
+		}
+		directArchive.append(bill, text);
+		directArchive.sync();
 	}
 	
 	/**
-	 * Groups rentals by their exact date and time using {@getRentalsGroupedByTime()} and sorts them chronologically (by date and time), 
-	 * forming lists (based on date of the rental) which consist of lists of {@code Rental} objects that happened at exact same time. 
-	 * Maps the formed structure to exact date and time.
-	 * @return A map with the rental date and time as the key, and list of lists of {@code Rental} objects is the value
+	 * Creates a structured bill for the rental. Prices and factors are rounded to two decimals,
+	 * exactly as they appear in the text of the bill, so reports are the same as the ones computed from bill files.
+	 * @return {@link Bill} object
 	 */
-	private static Map<Date, List<List<Rental>>> getRentalsGroupedByDateTime(){
-		Map<Date, List<Rental>> groupedByDateTime = getRentalsGroupedByTime();		
-		return groupedByDateTime.entrySet().stream().sorted(Map.Entry.comparingByKey()).collect(Collectors.groupingBy(Map.Entry::getKey,LinkedHashMap::new,Collectors.mapping(Map.Entry::getValue, Collectors.toList())));
+	private Bill toBill(){
+		return new Bill(billID,area,ID,rentalDateTime,fault,roundAsPrinted(basePrice),roundAsPrinted(distanceFactor),roundAsPrinted(discountFactor),roundAsPrinted(promoFactor),roundAsPrinted(totalPrice));
 	}
 	
 	/**
-	 * Maps all rentals grouped by their rental time to their rental date (ignoring the time component).
-	 * @return A map with the rental date (without time) as the key, and a list of lists of {@code Rental} objects grouped by the exact time of the day they happened
+	 * Rounds a value to two decimals, the same way it's formatted in the text of the bill.
+	 * @param value value to round
+	 * @return the rounded value
 	 */
-	public static Map<Date, List<List<Rental>>> getRentalsGroupedByDateAndTime(){
-		Map<Date, List<List<Rental>>> originalMap = getRentalsGroupedByDateTime();
-		
-		Map<Date, List<List<Rental>>> truncatedMap = new LinkedHashMap<>();
-		for(Map.Entry<Date, List<List<Rental>>> entry : originalMap.entrySet()){
-			Date truncatedKey = FormatDate.truncateTime(entry.getKey());
-			if(truncatedMap.containsKey(truncatedKey)){
-				truncatedMap.get(truncatedKey).addAll(entry.getValue());
-			} else{
-				truncatedMap.put(truncatedKey, new ArrayList<>(entry.getValue()));
-			}
-		}
-		
-		return truncatedMap;
+	private static Double roundAsPrinted(Double value){
+		return Double.parseDouble(String.format(Locale.US, "%.2f", value));
 	}
 	
 	/**
-	 * Retrieves all rentals for a specific vehicle.
-	 * @param vehicle the vehicle to retrieve rentals for
-	 * @return a list of rentals for the specified vehicle
+	 * Groups all rentals by their date, and the rentals of each date by the exact time of the day they happened,
+	 * reading the groups from the {@link RentalCalendar} built while the rentals were parsed.
+	 * @return A map with the rental date (without time) as the key, in chronological order, and a list of lists of {@code Rental} objects
+	 * grouped by the exact time of the day they happened
 	 */
-	private List<Rental> getAllRentalsForVehicle(Vehicle vehicle){
-		List<Rental> allRentals = RentalParser.getRentals();
-		List<Rental> rentalsForVehicle = new ArrayList<>();
-		
-		for(Rental rental : allRentals){
-			if(rental.getVehicle().equals(vehicle)){
-				rentalsForVehicle.add(rental);
-			}
+	public static Map<Date, List<List<Rental>>> getRentalsGroupedByDateAndTime(){
+		RentalCalendar calendar = RentalParser.getCalendar();
+		Map<Date, List<List<Rental>>> rentalsByDate = new LinkedHashMap<>();
+		for(long day : calendar.getDays()){
+			List<List<Rental>> rentalsOnDay = calendar.getRentalsOnDay(day);
+			rentalsByDate.put(FormatDate.truncateTime(rentalsOnDay.get(0).get(0).getRentalDateTime()), rentalsOnDay);
 		}
-		
-		rentalsForVehicle.sort(Comparator.comparing(Rental::getRentalDateTime));
-		return rentalsForVehicle;
+		return rentalsByDate;
 	}
 	
 	/**
@@ -265,15 +298,8 @@ public class RentalManagement extends Rental{
 	 * @return the date of the next rental of the specified vehicle, or {@code null} if there are no further rentals
 	 */
 	private Date findNextRentalDateForVehicle(Vehicle vehicle){
-		List<Rental> rentals = getAllRentalsForVehicle(vehicle);
-		
-		for(Rental rental : rentals){
-			if(rental.getRentalDateTime().after(this.rentalDateTime)){
-				return rental.getRentalDateTime();
-			}
-		}
-		
-		return null;
+		Rental nextRental = RentalParser.getTimeline().getNextRental(vehicle.getID(), this.rentalDateTime);
+		return nextRental != null ? nextRental.getRentalDateTime() : null;
 	}
 	
 	/**
@@ -292,9 +318,8 @@ public class RentalManagement extends Rental{
 			Integer chargePerMinute = 1;
 			Integer additionalCharge = chargingTimeInMinutes.intValue() * chargePerMinute;
 			
-			Integer newBatteryLevel = Math.min(100, vehicle.getBatteryLevel() + additionalCharge);
-			vehicle.setBatteryLevel(newBatteryLevel);
-			System.out.println("--> new battery level: " + vehicle.getBatteryLevel() + "\n");
+			Integer newBatteryLevel = vehicle.chargeBattery(additionalCharge);
+			System.out.println("--> new battery level: " + newBatteryLevel + "\n");
 		} else{
 			System.out.println("No further rentals for vehicle " + vehicle.getID() + "\n");
 			vehicle.setBatteryLevel(100);
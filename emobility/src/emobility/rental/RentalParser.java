@@ -1,14 +1,29 @@
 package emobility.rental;
 
 import java.util.*;
-import java.io.*;
-import java.text.*;
+import java.util.concurrent.*;
+import java.io.IOException;
+import java.util.function.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.text.ParseException;
+import emobility.utility.*;
 import emobility.vehicles.*;
 
 /**
  * Utility class for parsing rental data from a CSV file and managing the list of rentals.
  * This class is responsible for reading rental information from a file, adding it to collection, 
  * and providing access to the parsed data.
+ * <p>Rows are read with a byte-level {@link CsvTokenizer}, so quoted fields (such as {@code "x,y"} locations) are handled
+ * without splitting and repairing strings. Besides the sequential parser, a parallel ingestion mode is available for very large files. It memory-maps
+ * the file, splits it into line-aligned chunks which are parsed on all available cores, and merges the parsed rows
+ * back in file order, so duplicate detection and user registration behave exactly as in the sequential mode.</p>
+ * <p>The number of parsed bytes is remembered for each file, so a {@link RentalFollower} can later parse only the rows
+ * appended to it.</p>
+ * <p>Invalid and duplicate rows are recorded in {@link RejectedRows} with their line numbers. Chunks count their lines
+ * from their own start, and the line numbers in the file are assigned when the chunks are merged in file order.</p>
  * 
  * @author Aleksandra Vucicevic
  * @version 1.0
@@ -23,6 +38,93 @@ public class RentalParser{
 	/** A list that contains all parsed rentals. */
 	private static List<Rental> rentals = new ArrayList<>();
 	
+	/** Parsed rentals of each vehicle, ordered by their date and time. */
+	private static RentalTimeline timeline = new RentalTimeline();
+	
+	/** Parsed rentals, indexed by their day and time. */
+	private static RentalCalendar calendar = new RentalCalendar();
+	
+	/** Number of bytes parsed so far from each rentals file, keyed by the file's absolute path. */
+	private static Map<Path,Long> parsedLengths = new ConcurrentHashMap<>();
+	
+	/** Number of line breaks in the parsed part of each rentals file, if known, keyed by the file's absolute path. */
+	private static Map<Path,Long> parsedLineBreaks = new ConcurrentHashMap<>();
+	
+	/** Minimum size of a chunk in parallel ingestion mode, in bytes. */
+	private static final long MIN_CHUNK_SIZE = 1L << 20;
+	
+	/** Maximum size of a chunk in parallel ingestion mode, in bytes (a single memory mapping is limited to 2GB). */
+	private static final long MAX_CHUNK_SIZE = 1L << 28;
+	
+	/** Number of chunks created per worker thread, so that uneven chunks don't leave cores idle. */
+	private static final int CHUNKS_PER_WORKER = 4;
+	
+	/**
+	 * A single rental row that passed validation, but hasn't been turned into a {@link Rental} object yet.
+	 * @param dateTime date and time of the rental
+	 * @param userID user's ID document
+	 * @param ID ID of the rented vehicle
+	 * @param startX x-coordinate of rental's start location
+	 * @param startY y-coordinate of rental's start location
+	 * @param goalX x-coordinate of rental's goal location
+	 * @param goalY y-coordinate of rental's goal location
+	 * @param fault information if the fault occurred or not
+	 * @param duration duration of the rental
+	 * @param promo information if there was a promotional discount
+	 */
+	record RentalRow(Date dateTime, String userID, String ID, int startX, int startY, int goalX, int goalY, Boolean fault, Long duration, Boolean promo){}
+	
+	/**
+	 * Rows parsed from one chunk of the file, with line numbers counted from the chunk's first line.
+	 */
+	private static class ParsedChunk{
+		/** The chunk's data. */
+		private ByteBuffer data;
+		
+		/** Valid rows, in file order. */
+		private List<RentalRow> rows = new ArrayList<>();
+		
+		/** Line number and position in the chunk of each valid row, packed into one value. */
+		private long rowLocations[] = new long[64];
+		
+		/** Rejected rows, in file order. */
+		private List<RejectedRows.Rejection> rejections = new ArrayList<>();
+		
+		/** Number of line breaks in the parsed part of the chunk. */
+		private long lineBreaks;
+		
+		/**
+		 * Constructs an empty {@code ParsedChunk}.
+		 * @param data the chunk's data
+		 */
+		private ParsedChunk(ByteBuffer data){
+			this.data = data;
+		}
+		
+		/**
+		 * Adds a valid row, located at the tokenizer's current row.
+		 * @param row the parsed row
+		 * @param tokenizer tokenizer positioned at the row
+		 */
+		private void add(RentalRow row, CsvTokenizer tokenizer){
+			if(rows.size() == rowLocations.length){
+				rowLocations = Arrays.copyOf(rowLocations, rowLocations.length * 2);
+			}
+			rowLocations[rows.size()] = (tokenizer.getLineNumber() << 32) | tokenizer.getRowStart();
+			rows.add(row);
+		}
+		
+		/**
+		 * Rejects the tokenizer's current row.
+		 * @param tokenizer tokenizer positioned at the row
+		 * @param reason reason for rejecting the row
+		 * @param detail description of the problem
+		 */
+		private void reject(CsvTokenizer tokenizer, RejectReason reason, String detail){
+			rejections.add(new RejectedRows.Rejection(null, tokenizer.getLineNumber(), reason, detail, tokenizer.getRow()));
+		}
+	}
+	
 	/**
 	 * Returns a list of all parsed rentals.
 	 * @return a list of {@link Rental} objects
@@ -31,96 +133,554 @@ public class RentalParser{
 		return rentals;
 	}
 	
+	/**
+	 * Returns the index of parsed rentals of each vehicle, which also includes rentals appended to the file later.
+	 * @return {@link RentalTimeline} of all parsed rentals
+	 */
+	public static RentalTimeline getTimeline(){
+		return timeline;
+	}
+	
+	/**
+	 * Returns the index of parsed rentals by their day and time, which also includes rentals appended to the file later.
+	 * @return {@link RentalCalendar} of all parsed rentals
+	 */
+	public static RentalCalendar getCalendar(){
+		return calendar;
+	}
+	
+	/**
+	 * Returns a copy of the list of all parsed rentals. Unlike {@link #getRentals()}, the copy can be safely iterated
+	 * while a {@link RentalFollower} keeps adding rentals appended to the file.
+	 * @return a list of {@link Rental} objects
+	 */
+	public static synchronized List<Rental> copyRentals(){
+		return new ArrayList<>(rentals);
+	}
+	
+	/**
+	 * Returns the number of bytes of the specified file which have already been parsed.
+	 * @param filePath the path to the CSV file containing rental data
+	 * @return number of parsed bytes, or 0 if the file hasn't been parsed
+	 */
+	public static long getParsedLength(String filePath){
+		return parsedLengths.getOrDefault(Paths.get(filePath).toAbsolutePath().normalize(), 0L);
+	}
+	
 	/**
 	 * Parses rentals data from a CSV file located at the specified file path.
 	 * The method reads the file, processes each line to create {@link Rental} objects, 
 	 * and stores these objects in the appropriate list.
+	 * <p>If neither the rentals file nor the vehicles file has changed since the rentals were last parsed,
+	 * the rows are loaded from the binary snapshot of the rentals file instead.</p>
 	 * @param filePath the path to the CSV file containing rental data
 	 */
 	public static void parseRentalCSV(String filePath){
-		List<String> validIDs = new ArrayList<>();
-		validIDs = VehicleParser.getValidIDs();
-		System.out.println("valid IDs: " + validIDs);
-		SimpleDateFormat sdf = new SimpleDateFormat("dd.MM.yyyy HH:mm");
-		
-		try(BufferedReader br = new BufferedReader(new FileReader(filePath))){
-			String line;
-			br.readLine(); // skipping header of the file
-			while((line = br.readLine()) != null){
-				if(line.isEmpty())
-					continue;
+		System.out.println("valid IDs: " + VehicleParser.getValidIDs());
+		if(loadSnapshot(filePath))
+			return;
+		long[] stamps = stampSnapshotSources(filePath);
+		
+		Path source = Paths.get(filePath);
+		List<RentalRow> rows = new ArrayList<>();
+		try(FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)){
+			long dataStart = findNextLineStart(channel, 0); // skipping header of the file
+			long lineBreaks = countLineBreaks(channel, 0, dataStart);
+			List<long[]> chunks = splitIntoChunks(channel, dataStart, 1);
+			for(long[] chunk : chunks){
+				ParsedChunk parsed = parseChunk(channel, chunk[0], chunk[1]);
+				addChunk(source, parsed, lineBreaks + 1, (row, rental) -> rows.add(row));
+				lineBreaks += parsed.lineBreaks;
+			}
+			setParsedLength(filePath, chunks.isEmpty() ? dataStart : chunks.get(chunks.size() - 1)[1], lineBreaks);
+		} catch(IOException e){
+			e.printStackTrace();
+			return;
+		}
+		RejectedRows.printSummary();
+		
+		writeSnapshot(filePath, stamps, rows);
+	}
+	
+	/**
+	 * Parses rentals data from a CSV file using all available processors.
+	 * @param filePath the path to the CSV file containing rental data
+	 * @see #parseRentalCSVParallel(String, int)
+	 */
+	public static void parseRentalCSVParallel(String filePath){
+		parseRentalCSVParallel(filePath, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Parses rentals data from a CSV file in parallel. The file is memory-mapped and split into line-aligned chunks,
+	 * each chunk is parsed and validated on its own worker thread, and the resulting rows are merged in file order.
+	 * Duplicate detection and creation of {@link Rental} objects happen during the merge,
+	 * so the result is the same as the one produced by {@link #parseRentalCSV(String)}.
+	 * @param filePath the path to the CSV file containing rental data
+	 * @param parallelism number of worker threads used for parsing
+	 */
+	public static void parseRentalCSVParallel(String filePath, int parallelism){
+		if(loadSnapshot(filePath))
+			return;
+		long[] stamps = stampSnapshotSources(filePath);
+		parallelism = Math.max(1, parallelism);
+		
+		Path source = Paths.get(filePath);
+		List<RentalRow> rows = new ArrayList<>();
+		try(FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)){
+			long dataStart = findNextLineStart(channel, 0); // skipping header of the file
+			long lineBreaks = countLineBreaks(channel, 0, dataStart);
+			List<long[]> chunks = splitIntoChunks(channel, dataStart, parallelism);
+			
+			ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+			try{
+				List<Future<ParsedChunk>> results = new ArrayList<>();
+				for(long[] chunk : chunks){
+					results.add(executor.submit(() -> parseChunk(channel, chunk[0], chunk[1])));
+				}
 				
-				String data[] = line.split(",");
+				for(Future<ParsedChunk> result : results){
+					ParsedChunk parsed = result.get();
+					addChunk(source, parsed, lineBreaks + 1, (row, rental) -> rows.add(row));
+					lineBreaks += parsed.lineBreaks;
+				}
+				setParsedLength(filePath, chunks.isEmpty() ? dataStart : chunks.get(chunks.size() - 1)[1], lineBreaks);
+			} catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				e.printStackTrace();
+				return;
+			} catch(ExecutionException e){
+				e.printStackTrace();
+				return;
+			} finally{
+				executor.shutdownNow();
+			}
+		} catch(IOException e){
+			e.printStackTrace();
+			return;
+		}
+		RejectedRows.printSummary();
+		
+		writeSnapshot(filePath, stamps, rows);
+	}
+	
+	/**
+	 * Adds the rows stored in the snapshot of the specified file, if the snapshot is up to date.
+	 * @param filePath the path to the CSV file containing rental data
+	 * @return {@code true} if the rentals were loaded from the snapshot, otherwise {@code false}
+	 */
+	private static boolean loadSnapshot(String filePath){
+		try{
+			if(RentalSnapshot.load(filePath, RentalParser::addRental)){
+				setParsedLength(filePath, Files.size(Paths.get(filePath)), null);
+				return true;
+			}
+			return false;
+		} catch(IOException | RuntimeException e){
+			System.out.println("Rental snapshot couldn't be loaded, parsing " + filePath);
+			e.printStackTrace();
+			return false;
+		}
+	}
+	
+	/**
+	 * Reads the stamps of the files the snapshot of the specified file depends on, before the file is read,
+	 * so rows appended while it's being parsed make the snapshot stale instead of being skipped on the next start.
+	 * @param filePath the path to the CSV file containing rental data
+	 * @return stamps of the source files, or {@code null} if the snapshot won't be written
+	 */
+	private static long[] stampSnapshotSources(String filePath){
+		try{
+			return RentalSnapshot.stamp(filePath);
+		} catch(IOException e){
+			System.out.println("Rental snapshot sources couldn't be stamped, the snapshot won't be written.");
+			e.printStackTrace();
+			return null;
+		}
+	}
+	
+	/**
+	 * Writes the valid rows parsed from the specified file into its snapshot.
+	 * @param filePath the path to the CSV file containing rental data
+	 * @param stamps stamps of the source files taken before the file was read, or {@code null} if the snapshot isn't written
+	 * @param rows valid rows which were added as rentals, in file order
+	 */
+	private static void writeSnapshot(String filePath, long[] stamps, List<RentalRow> rows){
+		if(stamps == null)
+			return;
+		try{
+			RentalSnapshot.write(filePath, stamps, rows);
+		} catch(IOException e){
+			System.out.println("Rental snapshot couldn't be written.");
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Records the number of parsed bytes of the specified file, and the number of line breaks in them.
+	 * @param filePath the path to the CSV file containing rental data
+	 * @param length number of parsed bytes
+	 * @param lineBreaks number of line breaks in the parsed bytes, or {@code null} if it isn't known
+	 */
+	private static void setParsedLength(String filePath, long length, Long lineBreaks){
+		Path path = Paths.get(filePath).toAbsolutePath().normalize();
+		parsedLengths.put(path, length);
+		if(lineBreaks != null){
+			parsedLineBreaks.put(path, lineBreaks);
+		} else{
+			parsedLineBreaks.remove(path);
+		}
+	}
+	
+	/**
+	 * Parses rows appended to the file after the specified offset, without reading the rest of the file again.
+	 * <p>Rows terminated by a line break are always parsed. The last row of the file is parsed without a line break
+	 * only if it's complete (its locations hold all four coordinates and it ends with a valid flag), so a row which is still being written
+	 * is left for the next call. Valid rows are added just like parsed ones, and each new rental is also passed to the listener.</p>
+	 * @param filePath the path to the CSV file containing rental data
+	 * @param offset number of bytes already parsed
+	 * @param listener consumer which receives new rentals, in file order
+	 * @return number of bytes parsed after this call, to be passed as the offset of the next call
+	 * @throws IOException if the file can't be read
+	 */
+	static long parseAppended(String filePath, long offset, Consumer<Rental> listener) throws IOException{
+		try(FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)){
+			long size = channel.size();
+			if(size < offset){
+				System.out.println("Rentals file " + filePath + " was truncated, following it from its current end.");
+				setParsedLength(filePath, size, null);
+				return size;
+			}
+			
+			long start = offset;
+			if(offset == 0){
+				start = findNextLineStart(channel, 0); // skipping header of the file
+				if(start == size && (size == 0 || !endsWithLineBreak(channel)))
+					return 0;
+			}
+			if(start >= size)
+				return start;
+			
+			Long knownLineBreaks = offset > 0 ? parsedLineBreaks.get(Paths.get(filePath).toAbsolutePath().normalize()) : null;
+			long lineBreaks = knownLineBreaks != null ? knownLineBreaks : countLineBreaks(channel, 0, start);
+			
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, size - start);
+			CsvTokenizer tokenizer = new CsvTokenizer(mapped);
+			ParsedChunk chunk = new ParsedChunk(mapped);
+			int coordinates[] = new int[4];
+			long parsed = start;
+			
+			while(tokenizer.nextRow()){
+				boolean terminated = mapped.get(mapped.position() - 1) == '\n';
+				if(!terminated && !isCompleteRow(tokenizer))
+					break;
+				parsed = start + mapped.position();
+				chunk.lineBreaks = tokenizer.getLinesRead() - (terminated ? 0 : 1);
 				
-				if(data.length == 10){
-					String ID = data[2];
-					if(!ID.isEmpty() && validIDs.contains(ID)){
-						try{
-							Date dateTime = sdf.parse(data[0]);
-							
-							String rentalKey = ID + "-" + dateTime.getTime();
+				RentalRow row = parseRow(tokenizer, coordinates, chunk);
+				if(row != null){
+					chunk.add(row, tokenizer);
+				}
+			}
+			
+			addChunk(Paths.get(filePath), chunk, lineBreaks + 1, (row, rental) -> listener.accept(rental));
+			setParsedLength(filePath, parsed, lineBreaks + chunk.lineBreaks);
+			return parsed;
+		}
+	}
+	
+	/**
+	 * Counts the line breaks in a part of the file.
+	 * @param channel channel of the file
+	 * @param from position of the part's first byte
+	 * @param to position after the part's last byte
+	 * @return number of line breaks
+	 * @throws IOException if the file can't be read
+	 */
+	private static long countLineBreaks(FileChannel channel, long from, long to) throws IOException{
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		long count = 0;
+		long position = from;
+		while(position < to){
+			buffer.clear();
+			buffer.limit((int) Math.min(buffer.capacity(), to - position));
+			int read = channel.read(buffer, position);
+			if(read <= 0)
+				break;
+			for(int i = 0; i < read; i++){
+				if(buffer.get(i) == '\n'){
+					count++;
+				}
+			}
+			position += read;
+		}
+		return count;
+	}
+	
+	/**
+	 * Checks whether the last byte of the file is a line break.
+	 * @param channel channel of the file
+	 * @return {@code true} if the file ends with a line break, otherwise {@code false}
+	 * @throws IOException if the file can't be read
+	 */
+	private static boolean endsWithLineBreak(FileChannel channel) throws IOException{
+		ByteBuffer last = ByteBuffer.allocate(1);
+		return channel.read(last, channel.size() - 1) == 1 && last.get(0) == '\n';
+	}
+	
+	/**
+	 * Checks whether the current row, which isn't terminated by a line break, has been completely written.
+	 * A row with split coordinates which is cut after its fault flag also ends with a flag, so the location fields
+	 * must hold all four coordinates as well.
+	 * @param tokenizer tokenizer positioned at the row
+	 * @return {@code true} if the row has all fields and its last field is a complete flag, otherwise {@code false}
+	 */
+	private static boolean isCompleteRow(CsvTokenizer tokenizer){
+		int fieldCount = tokenizer.getFieldCount();
+		int last = fieldCount - 1;
+		if(last < 7 || !(tokenizer.equalsIgnoreCase(last, "da") || tokenizer.equalsIgnoreCase(last, "ne")))
+			return false;
+		
+		int coordinates = 0;
+		for(int field = 3; field < fieldCount - 3; field++){
+			coordinates += tokenizer.indexOf(field, (byte) ',') >= 0 ? 2 : 1;
+		}
+		return coordinates == 4;
+	}
+	
+	/**
+	 * Splits the file into chunks which start right after a line break and end with one (or with the end of the file).
+	 * Rental rows never contain line breaks inside quoted fields, so every line break is a row boundary.
+	 * @param channel channel of the file being parsed
+	 * @param dataStart position of the first data row
+	 * @param parallelism number of worker threads
+	 * @return a list of {@code [start, end)} byte ranges, in file order
+	 * @throws IOException if the file can't be read
+	 */
+	private static List<long[]> splitIntoChunks(FileChannel channel, long dataStart, int parallelism) throws IOException{
+		long size = channel.size();
+		long chunkSize = (size - dataStart) / ((long) parallelism * CHUNKS_PER_WORKER);
+		chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, chunkSize));
+		
+		List<long[]> chunks = new ArrayList<>();
+		long start = dataStart;
+		while(start < size){
+			long end = (start + chunkSize >= size) ? size : findNextLineStart(channel, start + chunkSize);
+			chunks.add(new long[]{start, end});
+			start = end;
+		}
+		return chunks;
+	}
+	
+	/**
+	 * Finds the position right after the first line break at or after the specified position.
+	 * @param channel channel of the file being parsed
+	 * @param position position from which the search starts
+	 * @return position of the next line's first byte, or the size of the file if there is no further line break
+	 * @throws IOException if the file can't be read
+	 */
+	private static long findNextLineStart(FileChannel channel, long position) throws IOException{
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		long size = channel.size();
+		while(position < size){
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if(read <= 0)
+				break;
+			for(int i = 0; i < read; i++){
+				if(buffer.get(i) == '\n'){
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+	
+	/**
+	 * Parses and validates all rows in one chunk of the file.
+	 * @param channel channel of the file being parsed
+	 * @param start position of the chunk's first byte
+	 * @param end position after the chunk's last byte
+	 * @return valid and rejected rows of the chunk, in file order
+	 * @throws IOException if the chunk can't be mapped
+	 */
+	private static ParsedChunk parseChunk(FileChannel channel, long start, long end) throws IOException{
+		MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+		CsvTokenizer tokenizer = new CsvTokenizer(mapped);
+		ParsedChunk chunk = new ParsedChunk(mapped);
+		int coordinates[] = new int[4];
+		
+		while(tokenizer.nextRow()){
+			RentalRow row = parseRow(tokenizer, coordinates, chunk);
+			if(row != null){
+				chunk.add(row, tokenizer);
+			}
+		}
+		
+		boolean terminated = mapped.limit() == 0 || mapped.get(mapped.limit() - 1) == '\n';
+		chunk.lineBreaks = tokenizer.getLinesRead() - (terminated ? 0 : 1);
+		return chunk;
+	}
+	
+	/**
+	 * Adds the valid rows of a parsed chunk as rentals, in file order, and records its rejected rows,
+	 * including rows which turn out to repeat an earlier rental.
+	 * @param source path of the file being parsed
+	 * @param chunk the parsed chunk
+	 * @param firstLine number of the chunk's first line in the file
+	 * @param added consumer which receives each added row with its new rental
+	 */
+	private static void addChunk(Path source, ParsedChunk chunk, long firstLine, BiConsumer<RentalRow, Rental> added){
+		for(RejectedRows.Rejection rejection : chunk.rejections){
+			RejectedRows.reject(source, firstLine + rejection.line() - 1, rejection.reason(), rejection.detail(), rejection.row());
+		}
+		
+		for(int i = 0; i < chunk.rows.size(); i++){
+			RentalRow row = chunk.rows.get(i);
+			Rental rental = addRental(row);
+			if(rental != null){
+				added.accept(row, rental);
+			} else{
+				long location = chunk.rowLocations[i];
+				RejectedRows.reject(source, firstLine + (location >>> 32) - 1, RejectReason.DUPLICATE, "Vehicle " + row.ID() + " already rented out at " + TimestampCodec.format(row.dateTime().getTime(), "dd.MM.uuuu HH:mm"), rowText(chunk.data, (int) location));
+			}
+		}
+	}
+	
+	/**
+	 * Reads the raw text of the row starting at the specified position. Intended for error messages.
+	 * @param data data of the chunk
+	 * @param position position of the row's first byte
+	 * @return the row's text, without the line break
+	 */
+	private static String rowText(ByteBuffer data, int position){
+		int end = position;
+		while(end < data.limit() && data.get(end) != '\n'){
+			end++;
+		}
+		if(end > position && data.get(end - 1) == '\r'){
+			end--;
+		}
+		byte row[] = new byte[end - position];
+		data.get(position, row);
+		return new String(row, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Parses and validates the current row of the tokenizer.
+	 * <p>Each location is expected either as one quoted field ({@code "x,y"}) or as two separate fields,
+	 * so a valid row has between 8 and 10 fields.</p>
+	 * @param tokenizer tokenizer positioned at the row being parsed
+	 * @param coordinates reusable array which receives start and goal coordinates
+	 * @param chunk chunk which records the row if it's rejected
+	 * @return the parsed row, or {@code null} if the row is empty or not valid
+	 */
+	private static RentalRow parseRow(CsvTokenizer tokenizer, int coordinates[], ParsedChunk chunk){
+		if(tokenizer.isBlankRow())
+			return null;
+		
+		int fieldCount = tokenizer.getFieldCount();
+		
+		if(fieldCount >= 8 && fieldCount <= 10){
+			String ID = tokenizer.getString(2);
+			if(!ID.isEmpty() && VehicleParser.isValidID(ID)){
+				try{
+					Date dateTime = new Date(TimestampCodec.parseDateTime(tokenizer.getBuffer(), tokenizer.getFieldStart(0), tokenizer.getFieldEnd(0)));
+					
+					String userID = tokenizer.getString(1);
+					if(userID.isEmpty()){
+						chunk.reject(tokenizer, RejectReason.MISSING_FIELD, "User info missing.");
+						return null;
+					}
+					
+					try{
+						if(!readCoordinates(tokenizer, fieldCount - 3, coordinates)){
+							chunk.reject(tokenizer, RejectReason.MALFORMED_ROW, "Locations not formatted correctly.");
+							return null;
+						}
+						
+						int startX = coordinates[0];
+						int startY = coordinates[1];
+						int goalX = coordinates[2];
+						int goalY = coordinates[3];
+						
+						ZoneMap zoneMap = ZoneMap.get();
+						if(zoneMap.contains(startX, startY) && zoneMap.contains(goalX, goalY)){
+							Long duration = tokenizer.getLong(fieldCount - 3);
+							Boolean fault = tokenizer.equalsIgnoreCase(fieldCount - 2, "da");
+							Boolean promo = tokenizer.equalsIgnoreCase(fieldCount - 1, "da");
 							
-							if(!rentalCheck.contains(rentalKey)){
-								String userID = data[1];
-								User user = new User(userID);
-								if(userID.isEmpty()){
-									System.out.println("User info missing.");
-									continue;
-								}
-								
-								try{
-									String startXString = data[3].replace("\"", "");
-									Integer startX = Integer.parseInt(startXString);
-									
-									String startYString = data[4].replace("\"", "");
-									Integer startY = Integer.parseInt(startYString);
-									
-									String startLocation = startXString + "," + startYString;
-									
-									String goalXString = data[5].replace("\"", "");
-									Integer goalX = Integer.parseInt(goalXString);
-									
-									String goalYString = data[6].replace("\"", "");
-									Integer goalY = Integer.parseInt(goalYString);
-									
-									String goalLocation = goalXString + "," + goalYString;
-									
-									if(startX >= 0 && startX <= 19 && startY >= 0 && startY <= 19 && goalX >= 0 && goalX <= 19 && goalY >= 0 && goalY <= 19){
-										Long duration = Long.parseLong(data[7]);
-										Boolean fault = "da".equalsIgnoreCase(data[8]);
-										Boolean promo = "da".equalsIgnoreCase(data[9]);
-											
-										rentals.add(new Rental(dateTime,user,ID,startLocation,goalLocation,fault,duration,promo));
-										rentalCheck.add(rentalKey);
-									} else{
-										System.out.println("Coordinates out of bounds: (" + startX + "," + startY + ") -> (" + goalX + "," + goalY + ")");
-										continue;
-									}
-								} catch(NumberFormatException e){
-									System.out.println("Invalid number format in coordinates or duration: " + Arrays.toString(data));
-									e.printStackTrace();
-									continue;
-								}
-							} else{
-								System.out.println("Vehicle " + ID + " already rented out at " + sdf.format(dateTime));
-								continue;
-							}
-						} catch(ParseException e){
-							System.out.println("Invalid date format for rental date: " + data[0]);
-							e.printStackTrace();
-							continue;
+							return new RentalRow(dateTime,userID,ID,startX,startY,goalX,goalY,fault,duration,promo);
+						} else{
+							chunk.reject(tokenizer, RejectReason.OUT_OF_BOUNDS, "Coordinates out of bounds: (" + startX + "," + startY + ") -> (" + goalX + "," + goalY + ")");
+							return null;
 						}
-					} else{
-						System.out.println("Invalid vehicle's ID: " + ID + ".");
-						continue;
+					} catch(NumberFormatException e){
+						chunk.reject(tokenizer, RejectReason.INVALID_NUMBER, "Invalid number format in coordinates or duration.");
+						return null;
 					}
-				} else{
-					System.out.println("Data not formatted correctly: " + line);
-					continue;
+				} catch(ParseException e){
+					chunk.reject(tokenizer, RejectReason.INVALID_DATE, "Invalid date format for rental date: " + tokenizer.getString(0));
+					return null;
 				}
+			} else{
+				chunk.reject(tokenizer, RejectReason.INVALID_ID, "Invalid vehicle's ID: " + ID + ".");
+				return null;
 			}
-		} catch(IOException e){
-			e.printStackTrace();
+		} else{
+			chunk.reject(tokenizer, RejectReason.MALFORMED_ROW, "Data not formatted correctly.");
+			return null;
+		}
+	}
+	
+	/**
+	 * Reads start and goal coordinates from the location fields of the current row.
+	 * A field containing a comma holds both coordinates of a location, any other field holds a single coordinate.
+	 * @param tokenizer tokenizer positioned at the row being parsed
+	 * @param endField index after the last location field
+	 * @param coordinates array which receives start x, start y, goal x and goal y
+	 * @return {@code true} if exactly four coordinates were read, otherwise {@code false}
+	 * @throws NumberFormatException if a coordinate is not a valid integer
+	 */
+	private static boolean readCoordinates(CsvTokenizer tokenizer, int endField, int coordinates[]){
+		int count = 0;
+		for(int field = 3; field < endField; field++){
+			int comma = tokenizer.indexOf(field, (byte) ',');
+			int length = tokenizer.getFieldEnd(field) - tokenizer.getFieldStart(field);
+			if(comma >= 0){
+				if(count > 2)
+					return false;
+				coordinates[count++] = tokenizer.getInt(field, 0, comma);
+				coordinates[count++] = tokenizer.getInt(field, comma + 1, length);
+			} else{
+				if(count > 3)
+					return false;
+				coordinates[count++] = tokenizer.getInt(field);
+			}
+		}
+		return count == 4;
+	}
+	
+	/**
+	 * Creates a {@link Rental} from a parsed row, unless the same vehicle has already been rented out at the same time.
+	 * Must be called in file order. Duplicates are recorded as rejected rows by the caller.
+	 * @param row parsed row
+	 * @return the new rental, or {@code null} if it's a duplicate
+	 */
+	private static synchronized Rental addRental(RentalRow row){
+		String rentalKey = row.ID() + "-" + row.dateTime().getTime();
+		
+		if(!rentalCheck.contains(rentalKey)){
+			User user = new User(row.userID());
+			Rental rental = new Rental(row.dateTime(),user,row.ID(),row.startX(),row.startY(),row.goalX(),row.goalY(),row.fault(),row.duration(),row.promo());
+			rentals.add(rental);
+			timeline.add(rental);
+			calendar.add(rental);
+			rentalCheck.add(rentalKey);
+			return rental;
+		} else{
+			return null;
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+package emobility.rental;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import emobility.utility.*;
+import emobility.vehicles.*;
+
+/**
+ * Binary columnar snapshot of the rental rows which passed validation while parsing a CSV file.
+ * <p>Vehicle and user IDs are interned into tables, dates are stored as milliseconds since the epoch, and each coordinate
+ * of the locations is stored as an {@code int}. Every attribute is stored as its own column of fixed-size values.
+ * The snapshot depends on the rentals file and the vehicles file, and on the {@link ZoneMap}, since the vehicles and the
+ * grid decide which rows are valid. It records a checksum of the map, so it's only used while none of them changes.
+ * Loaded rows go through the same duplicate check as parsed ones.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+class RentalSnapshot{
+	/** Magic number of rental snapshots ({@code EMRS}). */
+	private static final int MAGIC = 0x454D5253;
+	
+	/** Version of the snapshot format. */
+	private static final int VERSION = 2;
+	
+	/** Flag set for rentals during which a fault occurred. */
+	private static final byte FAULT = 1;
+	
+	/** Flag set for rentals with a promotional discount. */
+	private static final byte PROMO = 2;
+	
+	/** Private constructor, as this class only provides static methods. */
+	private RentalSnapshot(){
+	}
+	
+	/**
+	 * Reads the stamps of the files a snapshot of the specified rentals file depends on.
+	 * Must be called before the rentals file is read.
+	 * @param filePath the path to the CSV file containing rental data
+	 * @return stamps of the rentals file and the vehicles file, or {@code null} if no vehicles have been parsed
+	 * @throws IOException if a source file can't be read
+	 */
+	static long[] stamp(String filePath) throws IOException{
+		List<Path> sources = sources(filePath);
+		return sources == null ? null : SnapshotFile.stamp(sources);
+	}
+	
+	/**
+	 * Writes a snapshot of the valid rows parsed from a rentals file.
+	 * @param filePath the path to the CSV file the rows were parsed from
+	 * @param stamps stamps of the source files, taken by {@link #stamp(String)} before the rows were parsed
+	 * @param rows valid rows, in file order
+	 * @throws IOException if the snapshot can't be written
+	 */
+	static void write(String filePath, long[] stamps, List<RentalParser.RentalRow> rows) throws IOException{
+		SnapshotFile.StringTable vehicleIDs = new SnapshotFile.StringTable();
+		SnapshotFile.StringTable userIDs = new SnapshotFile.StringTable();
+		int count = rows.size();
+		int[] vehicles = new int[count];
+		int[] users = new int[count];
+		for(int i = 0; i < count; i++){
+			vehicles[i] = vehicleIDs.intern(rows.get(i).ID());
+			users[i] = userIDs.intern(rows.get(i).userID());
+		}
+		
+		long zoneMapChecksum = ZoneMap.get().checksum();
+		SnapshotFile.write(SnapshotFile.snapshotPath(filePath), MAGIC, VERSION, stamps, out -> {
+			out.writeLong(zoneMapChecksum);
+			SnapshotFile.writeStrings(out, vehicleIDs.getStrings());
+			SnapshotFile.writeStrings(out, userIDs.getStrings());
+			out.writeInt(count);
+			for(RentalParser.RentalRow row : rows)
+				out.writeLong(row.dateTime().getTime());
+			for(int value : vehicles)
+				out.writeInt(value);
+			for(int value : users)
+				out.writeInt(value);
+			for(RentalParser.RentalRow row : rows)
+				out.writeInt(row.startX());
+			for(RentalParser.RentalRow row : rows)
+				out.writeInt(row.startY());
+			for(RentalParser.RentalRow row : rows)
+				out.writeInt(row.goalX());
+			for(RentalParser.RentalRow row : rows)
+				out.writeInt(row.goalY());
+			for(RentalParser.RentalRow row : rows)
+				out.writeLong(row.duration());
+			for(RentalParser.RentalRow row : rows)
+				out.writeByte((row.fault() ? FAULT : 0) | (row.promo() ? PROMO : 0));
+		});
+	}
+	
+	/**
+	 * Loads the rows from the snapshot of the specified CSV file, if the snapshot is up to date.
+	 * The sink isn't called at all if the snapshot is missing or stale, or was written for a different zone map.
+	 * @param filePath the path to the CSV file containing rental data
+	 * @param sink consumer which receives the rows, in file order
+	 * @return {@code true} if the rows were loaded from the snapshot, otherwise {@code false}
+	 * @throws IOException if the snapshot can't be read
+	 */
+	static boolean load(String filePath, Consumer<RentalParser.RentalRow> sink) throws IOException{
+		List<Path> sources = sources(filePath);
+		if(sources == null){
+			return false;
+		}
+		ByteBuffer buffer = SnapshotFile.open(SnapshotFile.snapshotPath(filePath), MAGIC, VERSION, sources);
+		if(buffer == null || buffer.getLong() != ZoneMap.get().checksum()){
+			return false;
+		}
+		
+		String[] vehicleIDs = SnapshotFile.readStrings(buffer);
+		String[] userIDs = SnapshotFile.readStrings(buffer);
+		int count = buffer.getInt();
+		LongBuffer dateTimes = SnapshotFile.column(buffer, count * 8).asLongBuffer();
+		IntBuffer vehicles = SnapshotFile.column(buffer, count * 4).asIntBuffer();
+		IntBuffer users = SnapshotFile.column(buffer, count * 4).asIntBuffer();
+		IntBuffer startXs = SnapshotFile.column(buffer, count * 4).asIntBuffer();
+		IntBuffer startYs = SnapshotFile.column(buffer, count * 4).asIntBuffer();
+		IntBuffer goalXs = SnapshotFile.column(buffer, count * 4).asIntBuffer();
+		IntBuffer goalYs = SnapshotFile.column(buffer, count * 4).asIntBuffer();
+		LongBuffer durations = SnapshotFile.column(buffer, count * 8).asLongBuffer();
+		ByteBuffer flags = SnapshotFile.column(buffer, count);
+		
+		List<RentalParser.RentalRow> rows = new ArrayList<>(count);
+		for(int i = 0; i < count; i++){
+			byte flag = flags.get(i);
+			rows.add(new RentalParser.RentalRow(new Date(dateTimes.get(i)),userIDs[users.get(i)],vehicleIDs[vehicles.get(i)],
+					startXs.get(i),startYs.get(i),goalXs.get(i),goalYs.get(i),(flag & FAULT) != 0,durations.get(i),(flag & PROMO) != 0));
+		}
+		
+		rows.forEach(sink);
+		return true;
+	}
+	
+	/**
+	 * Returns the source files a snapshot of the specified rentals file depends on.
+	 * @param filePath the path to the CSV file containing rental data
+	 * @return the rentals file and the vehicles file, or {@code null} if no vehicles have been parsed
+	 */
+	private static List<Path> sources(String filePath){
+		Path vehiclesPath = VehicleParser.getSourcePath();
+		return vehiclesPath == null ? null : List.of(Paths.get(filePath), vehiclesPath);
+	}
+}
\ No newline at end of file
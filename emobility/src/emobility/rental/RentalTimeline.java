@@ -0,0 +1,64 @@
+package emobility.rental;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Index of the rentals of each vehicle, ordered by their date and time.
+ * <p>Each vehicle has its own sorted map of rentals keyed by the rental's time in milliseconds since the epoch,
+ * so the next or previous rental of a vehicle is found in logarithmic time, without scanning the rentals
+ * of other vehicles. The index is filled while the rentals are parsed, and rentals appended to the file
+ * later are added as they arrive.</p>
+ * <p>The maps are concurrent, so the index can be queried by the simulation while a {@link RentalFollower}
+ * keeps adding rentals.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public final class RentalTimeline{
+	/** Rentals of each vehicle keyed by their time, by vehicle's ID. */
+	private final ConcurrentMap<String, ConcurrentNavigableMap<Long, Rental>> rentalsByVehicle = new ConcurrentHashMap<>();
+	
+	/**
+	 * Adds a rental to its vehicle's timeline. A vehicle can only be rented once at a given time,
+	 * so a rental at the same time replaces the previous one.
+	 * @param rental the rental
+	 */
+	void add(Rental rental){
+		rentalsByVehicle.computeIfAbsent(rental.getID(), ID -> new ConcurrentSkipListMap<>()).put(rental.getRentalDateTime().getTime(), rental);
+	}
+	
+	/**
+	 * Finds the first rental of a vehicle after the specified date and time.
+	 * @param vehicleID vehicle's ID
+	 * @param dateTime date and time after which to search
+	 * @return the next rental, or {@code null} if there are no further rentals of the vehicle
+	 */
+	public Rental getNextRental(String vehicleID, Date dateTime){
+		NavigableMap<Long, Rental> rentals = rentalsByVehicle.get(vehicleID);
+		Map.Entry<Long, Rental> next = rentals == null ? null : rentals.higherEntry(dateTime.getTime());
+		return next == null ? null : next.getValue();
+	}
+	
+	/**
+	 * Finds the last rental of a vehicle before the specified date and time.
+	 * @param vehicleID vehicle's ID
+	 * @param dateTime date and time before which to search
+	 * @return the previous rental, or {@code null} if there are no earlier rentals of the vehicle
+	 */
+	public Rental getPreviousRental(String vehicleID, Date dateTime){
+		NavigableMap<Long, Rental> rentals = rentalsByVehicle.get(vehicleID);
+		Map.Entry<Long, Rental> previous = rentals == null ? null : rentals.lowerEntry(dateTime.getTime());
+		return previous == null ? null : previous.getValue();
+	}
+	
+	/**
+	 * Returns all rentals of a vehicle, ordered by their date and time.
+	 * @param vehicleID vehicle's ID
+	 * @return a read-only list of rentals, empty if there are none
+	 */
+	public List<Rental> getRentals(String vehicleID){
+		NavigableMap<Long, Rental> rentals = rentalsByVehicle.get(vehicleID);
+		return rentals == null ? List.of() : List.copyOf(rentals.values());
+	}
+}
\ No newline at end of file
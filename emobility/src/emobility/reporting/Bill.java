@@ -145,6 +145,46 @@ public class Bill{
 		return billID;
 	}
 	
+	/**
+	 * Gets the rented vehicle's unique ID.
+	 * @return vehicle's ID
+	 */
+	public String getVehicleID(){
+		return vehicleID;
+	}
+	
+	/**
+	 * Gets the base price of the rental.
+	 * @return rental's base price
+	 */
+	public Double getBasePrice(){
+		return basePrice;
+	}
+	
+	/**
+	 * Gets the distance factor based on rental's area.
+	 * @return rental's distance factor
+	 */
+	public Double getDistanceFactor(){
+		return distanceFactor;
+	}
+	
+	/**
+	 * Gets the discount factor based on user's number of rentals.
+	 * @return rental's discount factor
+	 */
+	public Double getDiscountFactor(){
+		return discountFactor;
+	}
+	
+	/**
+	 * Gets the promotional discount factor.
+	 * @return rental's promo factor
+	 */
+	public Double getPromoFactor(){
+		return promoFactor;
+	}
+	
 	/**
 	 * Gets the area in which the vehicle operates during rental.
 	 * @return rental's area
@@ -0,0 +1,285 @@
+package emobility.reporting;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.zip.CRC32C;
+import static emobility.reporting.SegmentedBillArchive.*;
+
+/**
+ * Reader of the bills stored by a {@link SegmentedBillArchive}.
+ * <p>The segments found when the reader is created are mapped into memory. Bills are iterated sequentially,
+ * segment by segment in the order they were written, and the highest bill ID is found using the segments' indexes.
+ * Records are verified by their checksums, and reading a segment stops at the first incomplete or damaged record,
+ * which can only be the last one if the application stopped while a bill was being written. Records written after
+ * their index was last synced are found by scanning the segment from the last indexed record.</p>
+ * <p>Bills can also be exported to the legacy layout with one text file per bill, for tools that still need it.
+ * A bill ID written more than once, by archives of older versions which restarted the IDs on every run,
+ * ends up with the text of its newest record.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public class BillArchiveReader implements Iterable<Bill>{
+	/**
+	 * Visits records of the archive.
+	 */
+	@FunctionalInterface
+	private interface RecordVisitor{
+		/**
+		 * Visits one verified record.
+		 * @param segment the mapped segment
+		 * @param offset offset of the record in the segment
+		 * @throws IOException if the visitor fails
+		 */
+		void visit(ByteBuffer segment, int offset) throws IOException;
+	}
+	
+	/** Mapped segments, ordered by their numbers. */
+	private ByteBuffer[] segments;
+	
+	/** Paths of the segments. */
+	private Path[] segmentPaths;
+	
+	/**
+	 * Constructs a {@code BillArchiveReader} and maps the segments in the specified directory.
+	 * @param directoryPath the path of the directory holding the segments
+	 * @throws IOException if the directory can't be listed or a segment can't be mapped
+	 */
+	public BillArchiveReader(String directoryPath) throws IOException{
+		this.segmentPaths = SegmentedBillArchive.segments(Paths.get(directoryPath));
+		this.segments = new ByteBuffer[segmentPaths.length];
+		for(int i = 0; i < segmentPaths.length; i++){
+			try(FileChannel channel = FileChannel.open(segmentPaths[i], StandardOpenOption.READ)){
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+		}
+	}
+	
+	/**
+	 * Gets the number of segments of the archive.
+	 * @return number of segments
+	 */
+	public Integer getSegmentCount(){
+		return segments.length;
+	}
+	
+	/**
+	 * Returns an iterator over all bills of the archive, in the order they were written.
+	 * @return iterator over the bills
+	 */
+	@Override
+	public Iterator<Bill> iterator(){
+		return new Iterator<>(){
+			/** Position of the current segment. */
+			private int segment = -1;
+			
+			/** Offset of the next record in the current segment. */
+			private int offset;
+			
+			/** Offset following the next record, or -1 if there are no more records. */
+			private int end = nextSegment();
+			
+			@Override
+			public boolean hasNext(){
+				return end >= 0;
+			}
+			
+			@Override
+			public Bill next(){
+				if(end < 0){
+					throw new NoSuchElementException();
+				}
+				Bill bill = decodeBill(segments[segment], offset);
+				offset = end;
+				end = recordEnd(segments[segment], offset);
+				if(end < 0){
+					end = nextSegment();
+				}
+				return bill;
+			}
+			
+			/**
+			 * Moves to the first record of the next segment which has one.
+			 * @return offset following that record, or -1 if there are no more records
+			 */
+			private int nextSegment(){
+				while(++segment < segments.length){
+					if(hasHeader(segments[segment], SEGMENT_MAGIC)){
+						offset = HEADER_SIZE;
+						int recordEnd = recordEnd(segments[segment], offset);
+						if(recordEnd >= 0){
+							return recordEnd;
+						}
+					}
+				}
+				return -1;
+			}
+		};
+	}
+	
+	/**
+	 * Exports all bills of the archive to the legacy layout, writing each bill into its own text file.
+	 * @param directoryPath the path of the directory where the bill files are written
+	 * @return number of exported bills
+	 * @throws IOException if the bill files can't be written
+	 */
+	public Integer exportText(String directoryPath) throws IOException{
+		int[] exported = {0};
+		try(TextFileBillSink sink = new TextFileBillSink(directoryPath)){
+			forEachRecord((segment, offset) -> {
+				sink.append(decodeBill(segment, offset), decodeText(segment, offset));
+				exported[0]++;
+			});
+		}
+		return exported[0];
+	}
+	
+	/**
+	 * Visits all verified records of the archive, in the order they were written.
+	 * @param visitor visitor of the records
+	 * @throws IOException if the visitor fails
+	 */
+	private void forEachRecord(RecordVisitor visitor) throws IOException{
+		for(ByteBuffer segment : segments){
+			if(!hasHeader(segment, SEGMENT_MAGIC)){
+				continue;
+			}
+			int offset = HEADER_SIZE;
+			int end;
+			while((end = recordEnd(segment, offset)) >= 0){
+				visitor.visit(segment, offset);
+				offset = end;
+			}
+		}
+	}
+	
+	/**
+	 * Finds the highest bill ID in the archive, using the indexes of the segments.
+	 * Records which aren't in an index yet are found by scanning the segment from its last indexed record.
+	 * @return the highest bill ID, or 0 if the archive doesn't contain any bills
+	 */
+	public Integer getLastBillID(){
+		int lastBillID = 0;
+		for(int i = 0; i < segments.length; i++){
+			ByteBuffer segment = segments[i];
+			if(!hasHeader(segment, SEGMENT_MAGIC)){
+				continue;
+			}
+			
+			int scanFrom = HEADER_SIZE;
+			try{
+				Path indexPath = SegmentedBillArchive.indexPath(segmentPaths[i]);
+				if(Files.exists(indexPath)){
+					ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+					if(hasHeader(index, INDEX_MAGIC)){
+						for(int entry = HEADER_SIZE; entry + INDEX_ENTRY_SIZE <= index.limit(); entry += INDEX_ENTRY_SIZE){
+							long offset = index.getLong(entry + 4);
+							if(offset < HEADER_SIZE || offset + 4 > segment.limit()){
+								break;
+							}
+							lastBillID = Math.max(lastBillID, index.getInt(entry));
+							scanFrom = (int) offset + 4 + segment.getInt((int) offset);
+						}
+					}
+				}
+			} catch(IOException e){
+				System.out.println("Index of " + segmentPaths[i] + " couldn't be read, the segment will be scanned.");
+				e.printStackTrace();
+				scanFrom = HEADER_SIZE;
+			}
+			
+			int end;
+			for(int offset = Math.min(scanFrom, segment.limit()); (end = recordEnd(segment, offset)) >= 0; offset = end){
+				lastBillID = Math.max(lastBillID, segment.getInt(offset + 8));
+			}
+		}
+		return lastBillID;
+	}
+	
+	/**
+	 * Checks whether a buffer starts with the specified magic number and the supported version.
+	 * @param buffer the buffer
+	 * @param magic expected magic number
+	 * @return {@code true} if the header is valid, otherwise {@code false}
+	 */
+	private static boolean hasHeader(ByteBuffer buffer, int magic){
+		return buffer.limit() >= HEADER_SIZE && buffer.getInt(0) == magic && buffer.getInt(4) == VERSION;
+	}
+	
+	/**
+	 * Verifies the record at the specified offset.
+	 * @param segment the mapped segment
+	 * @param offset offset of the record
+	 * @return offset following the record, or -1 if there's no complete record with a valid checksum at the offset
+	 */
+	private static int recordEnd(ByteBuffer segment, int offset){
+		if(offset < HEADER_SIZE || offset + 8 > segment.limit()){
+			return -1;
+		}
+		int length = segment.getInt(offset);
+		if(length < 4 + FIXED_RECORD_SIZE + 8 || length > segment.limit() - offset - 4){
+			return -1;
+		}
+		
+		CRC32C checksum = new CRC32C();
+		checksum.update(segment.slice(offset + 8, length - 4));
+		if((int) checksum.getValue() != segment.getInt(offset + 4)){
+			return -1;
+		}
+		return offset + 4 + length;
+	}
+	
+	/**
+	 * Decodes the bill of a verified record.
+	 * @param segment the mapped segment
+	 * @param offset offset of the record
+	 * @return the {@code Bill} object
+	 */
+	private static Bill decodeBill(ByteBuffer segment, int offset){
+		ByteBuffer record = segment.slice(offset + 8, segment.getInt(offset) - 4);
+		Integer billID = record.getInt();
+		Date dateTime = new Date(record.getLong());
+		Boolean fault = (record.get() & FAULT) != 0;
+		Double basePrice = record.getDouble();
+		Double distanceFactor = record.getDouble();
+		Double discountFactor = record.getDouble();
+		Double promoFactor = record.getDouble();
+		Double totalPrice = record.getDouble();
+		String area = readString(record, record.getShort() & 0xFFFF);
+		String vehicleID = readString(record, record.getShort() & 0xFFFF);
+		
+		return new Bill(billID,area,vehicleID,dateTime,fault,basePrice,distanceFactor,discountFactor,promoFactor,totalPrice);
+	}
+	
+	/**
+	 * Decodes the text of a verified record.
+	 * @param segment the mapped segment
+	 * @param offset offset of the record
+	 * @return text of the bill
+	 */
+	private static String decodeText(ByteBuffer segment, int offset){
+		ByteBuffer record = segment.slice(offset + 8, segment.getInt(offset) - 4);
+		record.position(FIXED_RECORD_SIZE);
+		int areaLength = record.getShort() & 0xFFFF;
+		record.position(record.position() + areaLength);
+		int vehicleIDLength = record.getShort() & 0xFFFF;
+		record.position(record.position() + vehicleIDLength);
+		return readString(record, record.getInt());
+	}
+	
+	/**
+	 * Reads a UTF-8 string of the specified length from a buffer.
+	 * @param buffer the buffer, positioned at the string
+	 * @param length length of the string in bytes
+	 * @return the string
+	 */
+	private static String readString(ByteBuffer buffer, int length){
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,81 @@
+package emobility.reporting;
+
+import java.util.*;
+import java.util.concurrent.*;
+import emobility.utility.*;
+
+/**
+ * In-memory ledger of all bills issued or parsed during a run of the application.
+ * <p>Bills are recorded directly when they are generated, so reports can be computed from the ledger
+ * without reading the bill files back from disk. The ledger keeps a list of all bills, the IDs of recorded bills
+ * (so each bill is recorded only once) and the bills grouped by the date they were issued.
+ * All collections are thread-safe, so bills can be recorded by many rentals or parser threads at once.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public class BillLedger{
+	/** A list of all recorded bills. */
+	private static List<Bill> bills = Collections.synchronizedList(new ArrayList<>());
+	
+	/** A set of recorded bill IDs to avoid duplicates. */
+	private static Set<Integer> recordedBills = ConcurrentHashMap.newKeySet();
+	
+	/** A map of bills grouped by the date they were issued, sorted by date. */
+	private static Map<Date, List<Bill>> billsByDate = new ConcurrentSkipListMap<>();
+	
+	/** Private constructor, as this class only provides static methods. */
+	private BillLedger(){
+	}
+	
+	/**
+	 * Records a bill, unless a bill with the same ID has already been recorded.
+	 * @param bill the bill to record
+	 * @return {@code true} if the bill was recorded, {@code false} if it's a duplicate
+	 */
+	public static boolean record(Bill bill){
+		if(!recordedBills.add(bill.getBillID())){
+			return false;
+		}
+		
+		bills.add(bill);
+		Date mapKey = FormatDate.truncateTime(bill.getDateTime());
+		billsByDate.computeIfAbsent(mapKey, key -> Collections.synchronizedList(new ArrayList<>())).add(bill);
+		return true;
+	}
+	
+	/**
+	 * Gets the list of all recorded bills.
+	 * @return a list of {@code Bill} objects
+	 */
+	public static List<Bill> getBills(){
+		return bills;
+	}
+	
+	/**
+	 * Gets a map of bills grouped by the date they were issued.
+	 * @return a map with date as the key and a list of {@code Bill} objects as value
+	 */
+	public static Map<Date, List<Bill>> getBillsByDate(){
+		return billsByDate;
+	}
+	
+	/**
+	 * Checks whether any bills have been recorded.
+	 * @return {@code true} if the ledger is empty, otherwise {@code false}
+	 */
+	public static boolean isEmpty(){
+		return bills.isEmpty();
+	}
+	
+	/**
+	 * Sorts all bills, as well as the bills of each day, by their IDs.
+	 * Used after bills were recorded by several threads, so the order doesn't depend on their scheduling.
+	 */
+	public static void sortByID(){
+		bills.sort(Comparator.comparing(Bill::getBillID));
+		for(List<Bill> billsOnSameDay : billsByDate.values()){
+			billsOnSameDay.sort(Comparator.comparing(Bill::getBillID));
+		}
+	}
+}
\ No newline at end of file
@@ -1,47 +1,52 @@
 package emobility.reporting;
 
 import java.util.*;
+import java.util.concurrent.*;
 import java.io.*;
-import java.text.SimpleDateFormat;
+import java.nio.file.*;
 import java.text.ParseException;
-import emobility.utility.FormatDate;
+import emobility.utility.*;
 
 /**
  * Utility class for parsing data from text files which represent bills generated during rentals.
- * This class is responsible for reading financial and other useful information from bills into {@link Bill} objects, 
- * adding them to collections, and providing access to the parsed data.
+ * This class is responsible for reading financial and other useful information from bills into {@link Bill} objects
+ * and recording them in the {@link BillLedger}, which provides access to the parsed data.
+ * <p>Bills generated during a run are recorded in the ledger directly, so parsing is only needed for bills
+ * written by earlier runs. The ledger is thread-safe, so bills can be parsed by many threads at once. Besides the sequential parser,
+ * a parallel scan is available for directories with a large number of bills. It streams the directory and reads
+ * the files on virtual threads, with a bounded number of files open at the same time. Bills stored in a
+ * {@link SegmentedBillArchive} instead of separate files are read with {@link #parseArchive(String)}.</p>
  * 
  * @author Aleksandra Vucicevic
  * @version 1.0
  */
 public class BillParser{
-	/** A list of all parsed bills. */
-	private static List<Bill> bills = new ArrayList<>();
+	/** Default maximum number of bill files read at the same time in the parallel scan. */
+	private static final int DEFAULT_MAX_OPEN_FILES = 64;
 	
-	/** A set of processed bill IDs to avoid duplicates. */
-	private static Set<Integer> processedBills = new HashSet<>();
-	
-	/** A map of bills grouped by the date they were issued. */
-	private static Map<Date, List<Bill>> billsByDate = new TreeMap<>();
+	/** Number of files parsed by one task of the parallel scan, so that tiny files don't cost a thread handoff each. */
+	private static final int FILES_PER_TASK = 128;
 	
 	/**
-	 * Gets the list of all parsed bills.
+	 * Gets the list of all bills in the ledger.
 	 * @return a list of {@code Bill} objects
+	 * @see BillLedger#getBills()
 	 */
 	public static List<Bill> getBills(){
-		return bills;
+		return BillLedger.getBills();
 	}
 	
 	/**
-	 * Gets a map of bills grouped by the date they were issued.
+	 * Gets a map of bills in the ledger, grouped by the date they were issued.
 	 * @return a map with date as the key and {@code Bill} object as value
+	 * @see BillLedger#getBillsByDate()
 	 */
 	public static Map<Date, List<Bill>> getBillsByDate(){
-		return billsByDate;
+		return BillLedger.getBillsByDate();
 	}
 	
 	/**
-	 * Parses all bill files in the specified directory and stores the {@code Bill} objects in a list. 
+	 * Parses all bill files in the specified directory and records the {@code Bill} objects in the ledger.
 	 * Only files with a ".txt" extension are considered.
 	 * @param directoryPath the path of the directory containing the bill files
 	 */
@@ -54,21 +59,105 @@ public class BillParser{
 			
 		for(File file : directory.listFiles()){
 			if(file.isFile() && file.getName().endsWith(".txt")){
-				Bill bill = parseSingleBill(file.getPath());
-				if(bill != null){
-					bills.add(bill);
+				parseSingleBill(file.getPath());
+			}
+		}
+	}
+	
+	/**
+	 * Parses all bill files in the specified directory in parallel, reading at most {@value #DEFAULT_MAX_OPEN_FILES} files at the same time.
+	 * @param directoryPath the path of the directory containing the bill files
+	 * @see #parseBillsParallel(String, int)
+	 */
+	public static void parseBillsParallel(String directoryPath){
+		parseBillsParallel(directoryPath, DEFAULT_MAX_OPEN_FILES);
+	}
+	
+	/**
+	 * Parses all bill files in the specified directory in parallel. The directory is streamed instead of being listed at once,
+	 * and batches of files are parsed on virtual threads, while a semaphore limits the number of files read at the same time.
+	 * Duplicate bill IDs are detected concurrently by the ledger. Once all files are parsed, the bills in the ledger
+	 * are sorted by their IDs, so the result doesn't depend on the scheduling of the threads.
+	 * Only files with a ".txt" extension are considered.
+	 * @param directoryPath the path of the directory containing the bill files
+	 * @param maxOpenFiles maximum number of files read at the same time
+	 */
+	public static void parseBillsParallel(String directoryPath, int maxOpenFiles){
+		Path directory = Paths.get(directoryPath);
+		if(!Files.isDirectory(directory)){
+			System.out.println("Invalid directory path: " + directoryPath);
+			return;
+		}
+		
+		Semaphore openFiles = new Semaphore(Math.max(1, maxOpenFiles));
+		
+		try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.txt");
+				ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()){
+			List<Path> batch = new ArrayList<>(FILES_PER_TASK);
+			Iterator<Path> files = stream.iterator();
+			while(files.hasNext()){
+				batch.add(files.next());
+				if(batch.size() == FILES_PER_TASK || !files.hasNext()){
+					List<Path> task = batch;
+					batch = new ArrayList<>(FILES_PER_TASK);
+					openFiles.acquire();
+					executor.submit(() -> {
+						try{
+							for(Path file : task){
+								if(Files.isRegularFile(file)){
+									parseSingleBill(file.toString());
+								}
+							}
+						} finally{
+							openFiles.release();
+						}
+					});
 				}
 			}
+		} catch(IOException | DirectoryIteratorException e){
+			e.printStackTrace();
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			e.printStackTrace();
 		}
+		
+		BillLedger.sortByID();
 	}
 	
 	/**
-	 * Parses a single bill from a file.
+	 * Reads all bills from the segmented archive in the specified directory and records them in the ledger.
+	 * @param directoryPath the path of the directory containing the archive's segments
+	 * @see BillArchiveReader
+	 */
+	public static void parseArchive(String directoryPath){
+		if(!Files.isDirectory(Paths.get(directoryPath))){
+			System.out.println("Invalid directory path: " + directoryPath);
+			return;
+		}
+		
+		try{
+			// older archives may hold the same ID from several runs, and the newest bill replaces the older ones
+			Map<Integer, Bill> newestBills = new LinkedHashMap<>();
+			for(Bill bill : new BillArchiveReader(directoryPath)){
+				newestBills.remove(bill.getBillID());
+				newestBills.put(bill.getBillID(), bill);
+			}
+			for(Bill bill : newestBills.values()){
+				if(!BillLedger.record(bill)){
+					System.out.println("Bill already processed: " + bill.getBillID());
+				}
+			}
+		} catch(IOException e){
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Parses a single bill from a file and records it in the ledger.
 	 * @param filePath the path of the file containing the bill information
-	 * @return the parsed {@code Bill} object, or {@code null} if the bill couldn't be processed
+	 * @return the parsed {@code Bill} object, or {@code null} if the bill couldn't be processed or was already recorded
 	 */
 	public static Bill parseSingleBill(String filePath){
-		SimpleDateFormat sdf = new SimpleDateFormat("dd.MM.yyyy HH:mm");
 		Integer billID = 0;
 		String area = "";
 		String vehicleID = "";
@@ -116,7 +205,7 @@ public class BillParser{
 							break;
 							
 						case "date and time":
-							dateTime = sdf.parse(value);
+							dateTime = new Date(TimestampCodec.parseDateTime(value));
 							break;
 							
 						case "fault":
@@ -175,17 +264,11 @@ public class BillParser{
 		
 		Bill bill = new Bill(billID,area,vehicleID,dateTime,fault,basePrice,distancePrice,discountPrice,promoPrice,totalPrice);
 		
-		if(processedBills.contains(billID)){
+		if(!BillLedger.record(bill)){
 	        System.out.println("Bill already processed: " + billID);
 	        return null;
 	    }
 		
-		processedBills.add(billID);
-		
-		Date mapKey = FormatDate.truncateTime(dateTime);
-		billsByDate.putIfAbsent(mapKey, new ArrayList<>());
-		billsByDate.get(mapKey).add(bill);
-		
 		return bill;
 	}
 }
@@ -0,0 +1,27 @@
+package emobility.reporting;
+
+import java.io.*;
+
+/**
+ * Destination of issued bills, written by the {@link BillWriter}.
+ * <p>Bills are appended one by one, and {@link #sync()} is called to make all appended bills durable,
+ * according to the writer's flush policy. A sink is only used from the writer's thread, so it doesn't have to be thread-safe.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public interface BillSink extends Closeable{
+	/**
+	 * Appends a bill to the sink.
+	 * @param bill the structured bill
+	 * @param text the bill's text, as printed for the user
+	 * @throws IOException if the bill can't be written
+	 */
+	void append(Bill bill, String text) throws IOException;
+	
+	/**
+	 * Makes all bills appended so far durable, by forcing them to the storage device.
+	 * @throws IOException if the bills can't be synced
+	 */
+	void sync() throws IOException;
+}
\ No newline at end of file
@@ -0,0 +1,291 @@
+package emobility.reporting;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.io.*;
+
+/**
+ * Asynchronous writer of issued bills, which takes file I/O off the threads that simulate rentals.
+ * <p>Bills are submitted into a bounded queue and written to a {@link BillSink} by one dedicated writer thread.
+ * The writer takes all bills waiting in the queue at once and writes them in one batch, and syncs the sink
+ * according to its {@link FlushPolicy}, so several bills share one sync (group commit).
+ * When the queue is full, submitting threads block until the writer catches up, which keeps memory bounded
+ * when the disk is slower than the simulation.</p>
+ * <p>A bill which can't be written is reported and skipped. If the writer thread stops because of an unexpected
+ * error, the writer is marked as failed: waiting threads are released, and {@link #submit(Bill, String)} refuses
+ * further bills, so callers can write them another way instead of waiting for a thread which is gone.
+ * Bills which were already queued when the writer failed are reported as lost.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public class BillWriter implements Closeable{
+	/**
+	 * Defines when the written bills are synced to the storage device.
+	 */
+	public enum FlushPolicy{
+		/** Every bill is synced right after it's written. */
+		PER_BILL,
+		
+		/** Written bills are synced at most once per flush interval, and at latest one interval after they were written. */
+		INTERVAL,
+		
+		/** Written bills are only synced when the writer is flushed or closed. */
+		SHUTDOWN
+	}
+	
+	/** Default capacity of the queue. */
+	public static final int DEFAULT_CAPACITY = 1024;
+	
+	/** Maximum number of bills written in one batch. */
+	private static final int MAX_BATCH_SIZE = 256;
+	
+	/** Time between checks whether the writer has failed while waiting for space in the queue, in milliseconds. */
+	private static final long PUT_CHECK_MILLIS = 100;
+	
+	/**
+	 * One entry of the queue - a bill to write, or a flush request.
+	 * @param bill the bill, or {@code null} for a flush request
+	 * @param text the bill's text
+	 * @param flushed latch released once everything before a flush request has been written and synced
+	 */
+	private record Entry(Bill bill, String text, CountDownLatch flushed){}
+	
+	/** Entry which tells the writer thread to stop. */
+	private static final Entry CLOSE = new Entry(null, null, null);
+	
+	/** Destination of the bills. */
+	private BillSink sink;
+	
+	/** Policy deciding when the sink is synced. */
+	private FlushPolicy policy;
+	
+	/** Interval between syncs for the {@link FlushPolicy#INTERVAL} policy, in milliseconds. */
+	private long flushIntervalMillis;
+	
+	/** Bounded queue of bills waiting to be written. */
+	private BlockingQueue<Entry> queue;
+	
+	/** Thread writing the bills. */
+	private Thread thread;
+	
+	/** Indicates whether the writer has been closed. */
+	private volatile boolean closed;
+	
+	/** Indicates whether the writer thread stopped because of an error. */
+	private volatile boolean failed;
+	
+	/**
+	 * Constructs a {@code BillWriter} and starts its writer thread.
+	 * @param sink destination of the bills
+	 * @param policy policy deciding when the sink is synced
+	 * @param flushIntervalMillis interval between syncs for the {@link FlushPolicy#INTERVAL} policy, in milliseconds
+	 * @param capacity maximum number of bills waiting in the queue
+	 */
+	public BillWriter(BillSink sink, FlushPolicy policy, long flushIntervalMillis, int capacity){
+		this.sink = sink;
+		this.policy = policy;
+		this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+		this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+		
+		this.thread = new Thread(this::run, "BillWriter");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+	
+	/**
+	 * Submits a bill for writing. Blocks while the queue is full.
+	 * @param bill the structured bill
+	 * @param text the bill's text
+	 * @return {@code true} if the bill was queued, {@code false} if the writer has failed and the bill has to be written another way
+	 * @throws IllegalStateException if the writer has been closed
+	 */
+	public boolean submit(Bill bill, String text){
+		if(closed){
+			throw new IllegalStateException("Bill writer is closed.");
+		}
+		return put(new Entry(bill, text, null));
+	}
+	
+	/**
+	 * Checks whether the writer thread stopped because of an error.
+	 * @return {@code true} if the writer has failed, otherwise {@code false}
+	 */
+	public boolean isFailed(){
+		return failed;
+	}
+	
+	/**
+	 * Waits until all bills submitted so far have been written and synced, regardless of the flush policy.
+	 */
+	public void flush(){
+		if(closed || failed){
+			return;
+		}
+		CountDownLatch flushed = new CountDownLatch(1);
+		if(!put(new Entry(null, null, flushed))){
+			return;
+		}
+		try{
+			// the writer may fail after the flush was queued, and then nobody releases the latch
+			while(!flushed.await(PUT_CHECK_MILLIS, TimeUnit.MILLISECONDS)){
+				if(failed){
+					return;
+				}
+			}
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Writes and syncs all submitted bills, stops the writer thread and closes the sink.
+	 * @throws IOException if the sink can't be closed
+	 */
+	@Override
+	public void close() throws IOException{
+		if(closed){
+			return;
+		}
+		closed = true;
+		put(CLOSE);
+		try{
+			thread.join();
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		sink.close();
+	}
+	
+	/**
+	 * Puts an entry into the queue, waiting for space if needed, unless the writer fails in the meantime.
+	 * @param entry the entry
+	 * @return {@code true} if the entry was queued, {@code false} if the writer has failed
+	 */
+	private boolean put(Entry entry){
+		try{
+			while(!failed){
+				if(queue.offer(entry, PUT_CHECK_MILLIS, TimeUnit.MILLISECONDS)){
+					// the writer may have failed and drained the queue right before the entry was added
+					return !(failed && queue.remove(entry));
+				}
+			}
+			return false;
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the bill writer.", e);
+		}
+	}
+	
+	/** Takes batches of entries from the queue and writes them, until the writer is closed or fails. */
+	private void run(){
+		List<Entry> batch = new ArrayList<>(MAX_BATCH_SIZE);
+		boolean unsynced = false;
+		long lastSync = System.nanoTime();
+		boolean stopped = false;
+		
+		try{
+			while(true){
+				Entry first;
+				if(unsynced && policy == FlushPolicy.INTERVAL){
+					long remaining = flushIntervalMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastSync);
+					first = queue.poll(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+				} else{
+					first = queue.take();
+				}
+				
+				if(first != null){
+					batch.add(first);
+					queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+				}
+				
+				boolean stop = false;
+				for(Entry entry : batch){
+					if(entry == CLOSE){
+						stop = true;
+					} else if(entry.bill() != null){
+						write(entry);
+						unsynced = true;
+						if(policy == FlushPolicy.PER_BILL){
+							sync();
+							unsynced = false;
+						}
+					} else{
+						if(unsynced){
+							sync();
+							unsynced = false;
+							lastSync = System.nanoTime();
+						}
+						entry.flushed().countDown();
+					}
+				}
+				batch.clear();
+				
+				if(stop){
+					if(unsynced){
+						sync();
+					}
+					stopped = true;
+					return;
+				}
+				if(unsynced && policy == FlushPolicy.INTERVAL && System.nanoTime() - lastSync >= TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis)){
+					sync();
+					unsynced = false;
+					lastSync = System.nanoTime();
+				}
+			}
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		} catch(RuntimeException | Error e){
+			System.out.println("Bill writer stopped because of an error.");
+			e.printStackTrace();
+		} finally{
+			if(!stopped){
+				fail(batch);
+			}
+		}
+	}
+	
+	/**
+	 * Marks the writer as failed, releases the threads waiting for a flush and reports the bills which won't be written.
+	 * @param batch entries taken from the queue which may not have been processed
+	 */
+	private void fail(List<Entry> batch){
+		failed = true;
+		queue.drainTo(batch);
+		int lostBills = 0;
+		for(Entry entry : batch){
+			if(entry.flushed() != null){
+				entry.flushed().countDown();
+			} else if(entry.bill() != null){
+				lostBills++;
+			}
+		}
+		if(lostBills > 0){
+			System.out.println(lostBills + " bills waiting for the bill writer may not have been written.");
+		}
+	}
+	
+	/**
+	 * Writes one bill to the sink.
+	 * @param entry entry holding the bill
+	 */
+	private void write(Entry entry){
+		try{
+			sink.append(entry.bill(), entry.text());
+		} catch(IOException | RuntimeException e){
+			System.out.println("Bill " + entry.bill().getBillID() + " couldn't be written.");
+			e.printStackTrace();
+		}
+	}
+	
+	/** Syncs the sink. */
+	private void sync(){
+		try{
+			sink.sync();
+		} catch(IOException | RuntimeException e){
+			System.out.println("Bills couldn't be synced.");
+			e.printStackTrace();
+		}
+	}
+}
\ No newline at end of file
@@ -12,7 +12,7 @@ import java.util.*;
  */
 public class DailyReportGenerator extends ReportGenerator{
 	/** A map of bills grouped by date. */
-	private static Map<Date, List<Bill>> billsByDate = BillParser.getBillsByDate();
+	private static Map<Date, List<Bill>> billsByDate = BillLedger.getBillsByDate();
 	
 	/** A map storing total income by date. */
 	private Map<Date, Double> totalIncome;
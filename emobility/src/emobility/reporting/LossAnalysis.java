@@ -16,7 +16,7 @@ public class LossAnalysis implements Serializable{
 	private static final long serialVersionUID = 1L;
 	
 	/** A list of all bills. */
-	private static transient List<Bill> allBills = BillParser.getBills();
+	private static transient List<Bill> allBills = BillLedger.getBills();
 	
 	/** The car with the greatest loss. */
 	private Car carWithGreatestLoss;
@@ -1,5 +1,6 @@
 package emobility.reporting;
 
+import java.io.*;
 import emobility.utility.*;
 
 /**
@@ -11,39 +12,66 @@ public abstract class ReportGenerator{
 	/** The type of the report (e.g. "daily*, "summary"). */
 	protected String reportType;
 	
-	/** Path to the properties file containing configuration data. */
-	protected static String configFilePath = "src/emobility/utility/config.properties";
+	/** Key of the configuration property holding the path of the repair properties file. */
+	private static final String REPAIR_PROPERTIES_KEY = "REPAIR_PROPERTIES_FILE_PATH";
 	
-	/** Properties reader needed for reading the configuration data. */
-	protected static PropertiesReader config = new PropertiesReader(configFilePath);
-	
-	/** File path for repair properties file. */
-	private static String pricingPropertiesFilePath = config.getProperty("REPAIR_PROPERTIES_FILE_PATH");
-	
-	/** Pricing reader needed to access the pricing information from a properties file. */
-	protected static PricingReader pr = new PricingReader(pricingPropertiesFilePath);
+	/** Keys of the coefficients, which the repair properties file must contain. */
+	private static final String[] COEFFICIENT_KEYS = {"CAR_REPAIR_COEFFICIENT", "BICYCLE_REPAIR_COEFFICIENT", "SCOOTER_REPAIR_COEFFICIENT",
+			"MAINTENANCE_COEFFICIENT", "EXPENSE_COEFFICIENT", "TAX_COEFFICIENT"};
 	
 	/** Coefficient for car repairs. */
-	protected static Double carRepairCoefficient = pr.getDoubleProperty("CAR_REPAIR_COEFFICIENT");
+	protected Double carRepairCoefficient;
 	
 	/** Coefficient for bicycle repairs. */
-	protected static Double bicycleRepairCoefficient = pr.getDoubleProperty("BICYCLE_REPAIR_COEFFICIENT");
+	protected Double bicycleRepairCoefficient;
 	
 	/** Coefficient for scooter repairs. */
-	protected static Double scooterRepairCoefficient = pr.getDoubleProperty("SCOOTER_REPAIR_COEFFICIENT");
+	protected Double scooterRepairCoefficient;
 	
 	/** Coefficient for maintenance costs. */
-	protected static Double maintenanceCoefficient = pr.getDoubleProperty("MAINTENANCE_COEFFICIENT");
+	protected Double maintenanceCoefficient;
 	
 	/** Coefficient for general expenses. */
-	protected static Double expenseCoefficient = pr.getDoubleProperty("EXPENSE_COEFFICIENT");
+	protected Double expenseCoefficient;
 	
 	/** Coefficient for taxes. */
-	protected static Double taxCoefficient = pr.getDoubleProperty("TAX_COEFFICIENT");
+	protected Double taxCoefficient;
 
-	/** Constructor which initializes the report type as "general*. */
+	/**
+	 * Constructor which initializes the report type as "general*.
+	 * All coefficients are taken from the current snapshot of the repair properties, so a report is computed with
+	 * one consistent set of coefficients, and reports created after the file is reloaded use the new values.
+	 * @throws IllegalStateException if a coefficient is missing from the repair properties or can't be parsed
+	 */
 	public ReportGenerator(){
 		this.reportType = "general";
+		
+		ConfigSnapshot repair = getRepairProperties();
+		this.carRepairCoefficient = repair.getRequiredDouble("CAR_REPAIR_COEFFICIENT");
+		this.bicycleRepairCoefficient = repair.getRequiredDouble("BICYCLE_REPAIR_COEFFICIENT");
+		this.scooterRepairCoefficient = repair.getRequiredDouble("SCOOTER_REPAIR_COEFFICIENT");
+		this.maintenanceCoefficient = repair.getRequiredDouble("MAINTENANCE_COEFFICIENT");
+		this.expenseCoefficient = repair.getRequiredDouble("EXPENSE_COEFFICIENT");
+		this.taxCoefficient = repair.getRequiredDouble("TAX_COEFFICIENT");
+	}
+	
+	/**
+	 * Gets the current snapshot of the repair properties file, whose path is set in the configuration.
+	 * @return the current {@code ConfigSnapshot} of the repair properties
+	 */
+	public static ConfigSnapshot getRepairProperties(){
+		return ConfigService.get(ConfigService.config().getString(REPAIR_PROPERTIES_KEY));
+	}
+	
+	/**
+	 * Starts watching the repair properties file, so reports follow its changes. A rewritten file which lacks
+	 * one of the coefficients doesn't replace the current coefficients.
+	 * @throws IOException if the file's directory can't be watched
+	 */
+	public static void watchRepairProperties() throws IOException{
+		String filePath = ConfigService.config().getString(REPAIR_PROPERTIES_KEY);
+		ConfigService.requireKeys(filePath, COEFFICIENT_KEYS);
+		ConfigService.watch(filePath);
 	}
 	
 	/**
@@ -56,26 +84,29 @@ public abstract class ReportGenerator{
 	
 	/**
 	 * Gets the car repair coefficient.
-	 * @return car's repair coefficient
+	 * @return car's repair coefficient from the current repair properties
+	 * @throws IllegalStateException if the coefficient is missing or can't be parsed
 	 */
 	public static Double getCarRepairCoefficient(){
-		return carRepairCoefficient;
+		return getRepairProperties().getRequiredDouble("CAR_REPAIR_COEFFICIENT");
 	}
 	
 	/**
 	 * Gets the bicycle repair coefficient.
-	 * @return bicycle's repair coefficient
+	 * @return bicycle's repair coefficient from the current repair properties
+	 * @throws IllegalStateException if the coefficient is missing or can't be parsed
 	 */
 	public static Double getBicycleRepairCoefficient(){
-		return bicycleRepairCoefficient;
+		return getRepairProperties().getRequiredDouble("BICYCLE_REPAIR_COEFFICIENT");
 	}
 	
 	/**
 	 * Gets the scooter repair coefficient.
-	 * @return scooter's repair coefficient
+	 * @return scooter's repair coefficient from the current repair properties
+	 * @throws IllegalStateException if the coefficient is missing or can't be parsed
 	 */
 	public static Double getScooterRepairCoefficient(){
-		return scooterRepairCoefficient;
+		return getRepairProperties().getRequiredDouble("SCOOTER_REPAIR_COEFFICIENT");
 	}
 	 
 	/** Abstract method to calculate total income. Must be implemented by subclasses. */
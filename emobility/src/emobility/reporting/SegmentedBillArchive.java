@@ -0,0 +1,281 @@
+package emobility.reporting;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only archive of bills, stored in a small number of segment files instead of one text file per bill.
+ * <p>Bills are appended to the current segment ({@code bills-<number>.seg}) until it reaches the rollover size,
+ * after which a new segment is started. Next to each segment, an index ({@code bills-<number>.idx}) maps bill IDs
+ * to the offsets of their records, so a single bill can be found without reading the whole segment.
+ * Every archive opened for writing starts a new segment, so existing segments are never modified, and bill IDs
+ * are expected to continue after the highest ID already in the archive (see {@link BillArchiveReader#getLastBillID()}).</p>
+ * <p>Each segment starts with a magic number and a format version, followed by records of the following layout:</p>
+ * <pre>
+ * int    length           number of bytes following this field
+ * int    checksum         CRC32C of the bytes following this field
+ * int    bill ID
+ * long   date and time    milliseconds since the epoch
+ * byte   flags            1 if a fault occurred
+ * double base price, distance factor, discount factor, promo factor, total price
+ * short  + bytes          area (UTF-8)
+ * short  + bytes          vehicle ID (UTF-8)
+ * int    + bytes          text of the bill, as printed for the user (UTF-8)
+ * </pre>
+ * <p>An index consists of its own magic number and version, followed by entries of a bill ID ({@code int})
+ * and the record's offset in the segment ({@code long}). Archives are read by the {@link BillArchiveReader}.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public class SegmentedBillArchive implements BillSink{
+	/** Magic number at the start of every segment ("EMBA"). */
+	static final int SEGMENT_MAGIC = 0x454D4241;
+	
+	/** Magic number at the start of every index ("EMBI"). */
+	static final int INDEX_MAGIC = 0x454D4249;
+	
+	/** Version of the segment and index format. */
+	static final int VERSION = 1;
+	
+	/** Size of the header of segments and indexes. */
+	static final int HEADER_SIZE = 8;
+	
+	/** Size of one index entry. */
+	static final int INDEX_ENTRY_SIZE = 12;
+	
+	/** Size of the fields of a record preceding its strings, excluding the length and checksum. */
+	static final int FIXED_RECORD_SIZE = 4 + 8 + 1 + 5 * 8;
+	
+	/** Record flag set when a fault occurred during the rental. */
+	static final byte FAULT = 1;
+	
+	/** Prefix of the names of segments and indexes. */
+	static final String PREFIX = "bills-";
+	
+	/** Extension of segment files. */
+	static final String SEGMENT_EXTENSION = ".seg";
+	
+	/** Extension of index files. */
+	static final String INDEX_EXTENSION = ".idx";
+	
+	/** Default size after which a new segment is started, in bytes. */
+	public static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+	
+	/** Largest allowed rollover size, which keeps whole segments mappable by the reader. */
+	private static final long MAX_SEGMENT_SIZE = 1L << 30;
+	
+	/** Directory holding the segments. */
+	private Path directory;
+	
+	/** Size after which a new segment is started, in bytes. */
+	private long segmentSize;
+	
+	/** Number of the next segment to start. */
+	private int nextSegment;
+	
+	/** Stream of the open file of the current segment, or {@code null} if no segment is open. */
+	private FileOutputStream segmentFile;
+	
+	/** Buffered stream writing to the current segment. */
+	private DataOutputStream segment;
+	
+	/** Stream of the open file of the current index. */
+	private FileOutputStream indexFile;
+	
+	/** Buffered stream writing to the current index. */
+	private DataOutputStream index;
+	
+	/** Offset in the current segment where the next record is written. */
+	private long position;
+	
+	/** Buffer into which a record is encoded before it's written. */
+	private ByteBuffer record;
+	
+	/** Checksum of the encoded record. */
+	private CRC32C checksum;
+	
+	/**
+	 * Constructs a {@code SegmentedBillArchive} which appends to the specified directory with the default segment size.
+	 * @param directoryPath the path of the directory holding the segments
+	 * @throws IOException if the directory can't be created or listed
+	 */
+	public SegmentedBillArchive(String directoryPath) throws IOException{
+		this(directoryPath, DEFAULT_SEGMENT_SIZE);
+	}
+	
+	/**
+	 * Constructs a {@code SegmentedBillArchive} which appends to the specified directory, creating it if needed.
+	 * The first segment is created when the first bill is appended.
+	 * @param directoryPath the path of the directory holding the segments
+	 * @param segmentSize size after which a new segment is started, in bytes, at most 1 GiB
+	 * @throws IOException if the directory can't be created or listed
+	 */
+	public SegmentedBillArchive(String directoryPath, long segmentSize) throws IOException{
+		this.directory = Files.createDirectories(Paths.get(directoryPath));
+		this.segmentSize = Math.min(MAX_SEGMENT_SIZE, Math.max(HEADER_SIZE + 1, segmentSize));
+		this.record = ByteBuffer.allocate(1 << 12);
+		this.checksum = new CRC32C();
+		
+		int lastSegment = 0;
+		for(Path segment : segments(directory)){
+			lastSegment = Math.max(lastSegment, segmentNumber(segment));
+		}
+		this.nextSegment = lastSegment + 1;
+	}
+	
+	
+	/**
+	 * Returns the segments in the specified directory, ordered by their numbers.
+	 * @param directory directory holding the segments
+	 * @return paths of the segments
+	 * @throws IOException if the directory can't be listed
+	 */
+	static Path[] segments(Path directory) throws IOException{
+		try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SEGMENT_EXTENSION)){
+			List<Path> segments = new ArrayList<>();
+			for(Path segment : stream){
+				if(segmentNumber(segment) > 0){
+					segments.add(segment);
+				}
+			}
+			segments.sort(Comparator.comparingInt(SegmentedBillArchive::segmentNumber));
+			return segments.toArray(new Path[0]);
+		}
+	}
+	
+	/**
+	 * Returns the number of a segment, taken from its file name.
+	 * @param segment path of the segment
+	 * @return number of the segment, or -1 if the name isn't a segment's name
+	 */
+	static int segmentNumber(Path segment){
+		String name = segment.getFileName().toString();
+		try{
+			return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SEGMENT_EXTENSION.length()));
+		} catch(NumberFormatException | IndexOutOfBoundsException e){
+			return -1;
+		}
+	}
+	
+	/**
+	 * Returns the path of the index belonging to a segment.
+	 * @param segment path of the segment
+	 * @return path of the index
+	 */
+	static Path indexPath(Path segment){
+		String name = segment.getFileName().toString();
+		return segment.resolveSibling(name.substring(0, name.length() - SEGMENT_EXTENSION.length()) + INDEX_EXTENSION);
+	}
+	
+	@Override
+	public void append(Bill bill, String text) throws IOException{
+		if(segment == null){
+			openSegment();
+		}
+		
+		encode(bill, text);
+		segment.write(record.array(), 0, record.limit());
+		index.writeInt(bill.getBillID());
+		index.writeLong(position);
+		position += record.limit();
+		
+		if(position >= segmentSize){
+			closeSegment();
+		}
+	}
+	
+	@Override
+	public void sync() throws IOException{
+		if(segment == null){
+			return;
+		}
+		segment.flush();
+		index.flush();
+		segmentFile.getChannel().force(true);
+		indexFile.getChannel().force(true);
+	}
+	
+	@Override
+	public void close() throws IOException{
+		closeSegment();
+	}
+	
+	/**
+	 * Creates the next segment and its index and writes their headers.
+	 * @throws IOException if the files can't be created
+	 */
+	private void openSegment() throws IOException{
+		Path path = directory.resolve(String.format("%s%06d%s", PREFIX, nextSegment++, SEGMENT_EXTENSION));
+		segmentFile = new FileOutputStream(Files.createFile(path).toFile());
+		segment = new DataOutputStream(new BufferedOutputStream(segmentFile, 1 << 16));
+		indexFile = new FileOutputStream(Files.createFile(indexPath(path)).toFile());
+		index = new DataOutputStream(new BufferedOutputStream(indexFile, 1 << 13));
+		
+		segment.writeInt(SEGMENT_MAGIC);
+		segment.writeInt(VERSION);
+		index.writeInt(INDEX_MAGIC);
+		index.writeInt(VERSION);
+		position = HEADER_SIZE;
+	}
+	
+	/**
+	 * Syncs and closes the current segment and its index, if a segment is open.
+	 * @throws IOException if the files can't be synced or closed
+	 */
+	private void closeSegment() throws IOException{
+		if(segment == null){
+			return;
+		}
+		try{
+			sync();
+		} finally{
+			segment.close();
+			index.close();
+			segment = null;
+			index = null;
+			segmentFile = null;
+			indexFile = null;
+		}
+	}
+	
+	/**
+	 * Encodes a bill into the record buffer, which is left ready to be written.
+	 * @param bill the bill
+	 * @param text the bill's text
+	 */
+	private void encode(Bill bill, String text){
+		byte[] area = bill.getArea().getBytes(StandardCharsets.UTF_8);
+		byte[] vehicleID = bill.getVehicleID().getBytes(StandardCharsets.UTF_8);
+		byte[] content = text.getBytes(StandardCharsets.UTF_8);
+		
+		int length = 4 + FIXED_RECORD_SIZE + 2 + area.length + 2 + vehicleID.length + 4 + content.length;
+		if(record.capacity() < 4 + length){
+			record = ByteBuffer.allocate(Integer.highestOneBit(4 + length) << 1);
+		}
+		
+		record.clear();
+		record.putInt(length);
+		record.putInt(0);
+		record.putInt(bill.getBillID());
+		record.putLong(bill.getDateTime().getTime());
+		record.put(bill.isFault() ? FAULT : 0);
+		record.putDouble(bill.getBasePrice());
+		record.putDouble(bill.getDistanceFactor());
+		record.putDouble(bill.getDiscountFactor());
+		record.putDouble(bill.getPromoFactor());
+		record.putDouble(bill.getTotalPrice());
+		record.putShort((short) area.length).put(area);
+		record.putShort((short) vehicleID.length).put(vehicleID);
+		record.putInt(content.length).put(content);
+		record.flip();
+		
+		checksum.reset();
+		checksum.update(record.array(), 8, record.limit() - 8);
+		record.putInt(4, (int) checksum.getValue());
+	}
+}
\ No newline at end of file
@@ -11,7 +11,7 @@ import java.util.List;
  */
 public class SummaryReportGenerator extends ReportGenerator{
 	/** A list of all bills. */
-	private static List<Bill> allBills = BillParser.getBills();
+	private static List<Bill> allBills = BillLedger.getBills();
 	
 	/** Total income from all bills. */
 	private Double totalIncome;
@@ -0,0 +1,87 @@
+package emobility.reporting;
+
+import java.util.*;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * Writes each bill into its own text file, named {@code <billID>_rentbill.txt}, which is the legacy layout of the bills directory.
+ * <p>Files are written without being forced to the storage device; {@link #sync()} forces all files written since the previous sync.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public class TextFileBillSink implements BillSink{
+	/** Ending of the names of bill files, following the bill's ID. */
+	private static final String FILE_NAME_SUFFIX = "_rentbill.txt";
+	
+	/** Directory where the bill files are written. */
+	private Path directory;
+	
+	/** Files written since the last sync. */
+	private List<Path> unsynced;
+	
+	/**
+	 * Constructs a {@code TextFileBillSink} which writes into the specified directory, creating it if needed.
+	 * @param directoryPath the path of the directory where the bills are written
+	 * @throws IOException if the directory can't be created
+	 */
+	public TextFileBillSink(String directoryPath) throws IOException{
+		this.directory = Files.createDirectories(Paths.get(directoryPath));
+		this.unsynced = new ArrayList<>();
+	}
+	
+	/**
+	 * Returns the name of the file which holds the bill with the specified ID.
+	 * @param billID bill's unique ID
+	 * @return name of the bill file
+	 */
+	public static String fileName(Integer billID){
+		return billID + FILE_NAME_SUFFIX;
+	}
+	
+	/**
+	 * Finds the highest ID of the bill files in a directory.
+	 * @param directoryPath the path of the directory holding the bill files
+	 * @return the highest bill ID, or 0 if there are no bill files
+	 * @throws IOException if the directory can't be listed
+	 */
+	public static Integer getLastBillID(String directoryPath) throws IOException{
+		int lastBillID = 0;
+		try(DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(directoryPath), "*" + FILE_NAME_SUFFIX)){
+			for(Path file : files){
+				String name = file.getFileName().toString();
+				try{
+					lastBillID = Math.max(lastBillID, Integer.parseInt(name.substring(0, name.length() - FILE_NAME_SUFFIX.length())));
+				} catch(NumberFormatException e){
+					// not a bill file
+				}
+			}
+		}
+		return lastBillID;
+	}
+	
+	@Override
+	public void append(Bill bill, String text) throws IOException{
+		Path file = directory.resolve(fileName(bill.getBillID()));
+		Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+		unsynced.add(file);
+	}
+	
+	@Override
+	public void sync() throws IOException{
+		for(Path file : unsynced){
+			try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)){
+				channel.force(true);
+			}
+		}
+		unsynced.clear();
+	}
+	
+	@Override
+	public void close() throws IOException{
+		sync();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,21 @@
+package emobility.simulation;
+
+/**
+ * Types of events processed by the {@link SimulationEngine}.
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+enum EventType{
+	/** A rental starts, and the vehicle sets off from its start location. */
+	ARRIVAL,
+	
+	/** The vehicle moves by one cell of the grid. */
+	STEP,
+	
+	/** The fault registered for the rental stops the vehicle. */
+	FAULT,
+	
+	/** The rental is over: the vehicle is returned, which generates its bill and charges it until its next rental. */
+	CHARGING
+}
\ No newline at end of file
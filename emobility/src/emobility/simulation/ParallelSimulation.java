@@ -0,0 +1,190 @@
+package emobility.simulation;
+
+import java.awt.Point;
+import java.util.*;
+import java.util.concurrent.*;
+import java.io.Closeable;
+import emobility.rental.*;
+import emobility.vehicles.*;
+
+/**
+ * Simulation of vehicles' rentals which simulates different vehicles in parallel, with results which don't depend
+ * on the number of threads.
+ * <p>Rentals are partitioned by vehicle ID. Rentals of a vehicle only depend on each other: each rental starts at its
+ * date and time, or once the vehicle has been returned from its previous rental if that takes longer, and the vehicle's
+ * battery level carries over from one rental to the next. So the rentals of each vehicle are simulated in order by one
+ * task of a fork-join pool, while different vehicles are simulated at the same time. Simulated times of the steps,
+ * faults and returns are the same as in the {@link SimulationEngine}, but nothing is paced by a clock or shown on the map.</p>
+ * <p>Once all vehicles are done, rentals are ordered by the simulated time at which they ended, then by vehicle ID and
+ * by the order in which they were submitted. Bills get consecutive IDs and are generated in that order, on the thread
+ * which runs the simulation. Bills and battery levels are therefore the same on one core and on many, and so are the
+ * faults if their seed is set (see {@link Fault#setMasterSeed(long)}).</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public class ParallelSimulation implements Closeable{
+	/**
+	 * A rental which is over, waiting for its bill.
+	 * @param trip trip of the rental
+	 * @param endTime simulated time at which the rental ended, in milliseconds since the epoch
+	 * @param index position of the rental among the submitted rentals of its vehicle
+	 */
+	private record FinishedTrip(Trip trip, long endTime, int index){}
+	
+	/** Order in which the bills of finished rentals are generated. */
+	private static final Comparator<FinishedTrip> BILLING_ORDER = Comparator.comparingLong(FinishedTrip::endTime)
+			.thenComparing(finishedTrip -> finishedTrip.trip().getRentalManagement().getID())
+			.thenComparingInt(FinishedTrip::index);
+	
+	/** The pricing properties file path. */
+	private String pricingPropertiesPath;
+	
+	/** The directory where the bills are stored. */
+	private String billsDirectoryPath;
+	
+	/** Pool simulating the vehicles. */
+	private ForkJoinPool pool;
+	
+	/** Submitted trips which haven't been simulated yet, by vehicle ID, each vehicle's trips in the order they were submitted. */
+	private Map<String, List<Trip>> partitions;
+	
+	/** Simulated time at which each vehicle was returned from its last simulated rental, by vehicle ID. */
+	private Map<String, Long> returnTimes;
+	
+	/**
+	 * Constructs a {@code ParallelSimulation}.
+	 * @param pricingPropertiesPath the pricing properties file path
+	 * @param billsDirectoryPath the directory where the bills are stored
+	 * @param parallelism number of threads simulating the vehicles, or 0 for one per available processor
+	 */
+	public ParallelSimulation(String pricingPropertiesPath, String billsDirectoryPath, Integer parallelism){
+		this.pricingPropertiesPath = pricingPropertiesPath;
+		this.billsDirectoryPath = billsDirectoryPath;
+		this.pool = parallelism > 0 ? new ForkJoinPool(parallelism) : new ForkJoinPool();
+		this.partitions = new LinkedHashMap<>();
+		this.returnTimes = new ConcurrentHashMap<>();
+	}
+	
+	/**
+	 * Submits rentals which happen at the same time. Each rental starts at its date and time, but not before
+	 * the vehicle's previously submitted rental is over.
+	 * @param rentalsAtSameTime rentals which happen at the same time
+	 */
+	public void submit(List<Rental> rentalsAtSameTime){
+		Date nextRentalDate = rentalsAtSameTime.isEmpty() ? null : RentalParser.getCalendar().getNextSlotOnSameDay(rentalsAtSameTime.get(0).getRentalDateTime());
+		for(Rental rental : rentalsAtSameTime){
+			RentalManagement rentalManagement = new RentalManagement(pricingPropertiesPath,billsDirectoryPath,rental);
+			partitions.computeIfAbsent(rental.getID(), ID -> new ArrayList<>()).add(new Trip(rentalManagement, nextRentalDate));
+		}
+	}
+	
+	/**
+	 * Simulates all submitted rentals, and generates their bills. Rentals submitted later continue
+	 * from the vehicles' state at the end of this run.
+	 */
+	public void run(){
+		List<List<Trip>> vehicles = new ArrayList<>(partitions.values());
+		partitions.clear();
+		
+		List<FinishedTrip> finishedTrips;
+		try{
+			finishedTrips = pool.submit(() -> vehicles.parallelStream()
+					.map(this::simulateVehicle)
+					.flatMap(List::stream)
+					.sorted(BILLING_ORDER)
+					.toList()).get();
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			return;
+		} catch(ExecutionException e){
+			e.printStackTrace();
+			return;
+		}
+		
+		Integer firstBillID = Rental.reserveRentalIDs(finishedTrips.size());
+		for(int i = 0; i < finishedTrips.size(); i++){
+			RentalManagement rentalManagement = finishedTrips.get(i).trip().getRentalManagement();
+			try{
+				rentalManagement.generateBill(firstBillID + i);
+			} catch(RuntimeException e){
+				System.out.println("Bill for vehicle " + rentalManagement.getID() + " couldn't be generated.");
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * Stops the pool simulating the vehicles.
+	 */
+	@Override
+	public void close(){
+		pool.close();
+	}
+	
+	/**
+	 * Simulates the rentals of one vehicle in order, and charges the vehicle after each of them.
+	 * @param trips trips of the vehicle, in the order they were submitted
+	 * @return the rentals which are over, waiting for their bills
+	 */
+	private List<FinishedTrip> simulateVehicle(List<Trip> trips){
+		String ID = trips.get(0).getRentalManagement().getID();
+		long returnTime = returnTimes.getOrDefault(ID, Long.MIN_VALUE);
+		List<FinishedTrip> finishedTrips = new ArrayList<>(trips.size());
+		
+		for(int i = 0; i < trips.size(); i++){
+			Trip trip = trips.get(i);
+			try{
+				long endTime = drive(trip, Math.max(returnTime, trip.getStartTime()));
+				if(trip.getNextRentalDate() != null){
+					trip.getRentalManagement().chargeVehicleUntilNextRental(trip.getVehicle());
+				} else{
+					trip.getVehicle().setBatteryLevel(100);
+				}
+				trip.getVehicle().setStatus(FleetState.Status.AVAILABLE);
+				finishedTrips.add(new FinishedTrip(trip, endTime, i));
+				returnTime = endTime;
+			} catch(RuntimeException e){
+				System.out.println("Rental of vehicle " + ID + " couldn't be simulated.");
+				e.printStackTrace();
+			}
+		}
+		
+		returnTimes.put(ID, returnTime);
+		return finishedTrips;
+	}
+	
+	/**
+	 * Moves the vehicle from its start location until it reaches its goal, encounters the rental's fault,
+	 * or its battery level drops too low.
+	 * @param trip trip of the rental
+	 * @param startTime simulated time at which the rental starts, in milliseconds since the epoch
+	 * @return simulated time at which the rental ends, in milliseconds since the epoch
+	 */
+	private static long drive(Trip trip, long startTime){
+		Vehicle vehicle = trip.getVehicle();
+		boolean faulty = trip.getRentalManagement().getRegisteredFault() != null;
+		long time = startTime;
+		trip.start();
+		
+		while(true){
+			Point position = trip.nextPosition();
+			Integer batteryLevel = trip.getBatteryLevel(position);
+			vehicle.moveTo(position.x, position.y, batteryLevel);
+			if(batteryLevel < SimulationEngine.LOW_BATTERY_LEVEL){
+				return time;
+			}
+			trip.setPreviousPosition(position);
+			time += trip.getDurationPerStep();
+			
+			if(!trip.hasNextStep()){
+				trip.setReachedGoal();
+				return time;
+			}
+			if(trip.isHorizontalPartFinished() && faulty){
+				vehicle.setStatus(FleetState.Status.FAULTY);
+				return time;
+			}
+		}
+	}
+}
\ No newline at end of file
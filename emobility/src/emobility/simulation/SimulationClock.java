@@ -0,0 +1,167 @@
+package emobility.simulation;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulated time shared by everything which waits or takes timestamps during a simulation.
+ * <p>The clock keeps the current simulated time, in milliseconds since the epoch, and paces it against the wall
+ * clock by its {@link Speed}: at 60x a simulated minute passes in one second of real time, while as fast as possible
+ * the clock jumps to the next point in time right away. The speed can be changed at any time, also from another thread
+ * while a simulation is running; the simulated time reached so far is kept, and only the remaining waits are paced
+ * by the new speed.</p>
+ * <p>Periods in which nothing happens on the map, like the night between two days of rentals, can be skipped
+ * with {@link #skipTo(long)} instead of waiting for them.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public class SimulationClock{
+	/**
+	 * Defines how fast the simulated time passes compared to the real time.
+	 */
+	public enum Speed{
+		/** Simulated time passes as fast as the real time. */
+		REAL_TIME(1, "1x"),
+		
+		/** A simulated minute passes in one second. */
+		MINUTE_PER_SECOND(60, "60x"),
+		
+		/** A simulated hour passes in one second. */
+		HOUR_PER_SECOND(3600, "3600x"),
+		
+		/** Simulated time passes as fast as the events can be processed, without waiting. */
+		AS_FAST_AS_POSSIBLE(0, "As fast as possible");
+		
+		/** Number of simulated milliseconds per millisecond of real time, or 0 if the clock doesn't wait. */
+		private final int factor;
+		
+		/** Label of the speed shown to the user. */
+		private final String label;
+		
+		/**
+		 * Constructs a {@code Speed} with the specified acceleration factor.
+		 * @param factor number of simulated milliseconds per millisecond of real time, or 0 if the clock doesn't wait
+		 * @param label label of the speed shown to the user
+		 */
+		Speed(int factor, String label){
+			this.factor = factor;
+			this.label = label;
+		}
+		
+		/**
+		 * Gets the acceleration factor of the speed.
+		 * @return number of simulated milliseconds per millisecond of real time, or 0 if the clock doesn't wait
+		 */
+		public int getFactor(){
+			return factor;
+		}
+		
+		/**
+		 * Gets the label of the speed.
+		 * @return label shown to the user
+		 */
+		@Override
+		public String toString(){
+			return label;
+		}
+	}
+	
+	/** Current speed of the clock. */
+	private volatile Speed speed;
+	
+	/** Current simulated time, in milliseconds since the epoch. */
+	private volatile long time;
+	
+	/** Simulated time at which the clock was last synchronized with the real time. */
+	private long anchorTime;
+	
+	/** Real time at which the clock was last synchronized, as returned by {@link System#nanoTime()}. */
+	private long anchorNanos;
+	
+	/**
+	 * Constructs a {@code SimulationClock} running at the specified speed.
+	 * @param speed speed of the clock
+	 */
+	public SimulationClock(Speed speed){
+		this.speed = speed;
+		this.anchorNanos = System.nanoTime();
+	}
+	
+	/**
+	 * Gets the current simulated time. Can be called from any thread.
+	 * @return simulated time in milliseconds since the epoch
+	 */
+	public long now(){
+		return time;
+	}
+	
+	/**
+	 * Gets the current speed of the clock.
+	 * @return speed of the clock
+	 */
+	public Speed getSpeed(){
+		return speed;
+	}
+	
+	/**
+	 * Changes the speed of the clock. Can be called from any thread, also while a simulation is running;
+	 * a wait in progress is shortened or extended to match the new speed.
+	 * @param speed new speed of the clock
+	 */
+	public synchronized void setSpeed(Speed speed){
+		synchronize();
+		this.speed = speed;
+		notifyAll();
+	}
+	
+	/**
+	 * Waits until the specified simulated time is reached at the clock's speed, and moves the clock to it.
+	 * The clock never moves backwards, so a time which has already passed is reached right away.
+	 * @param targetTime simulated time to reach, in milliseconds since the epoch
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public synchronized void advanceTo(long targetTime) throws InterruptedException{
+		while(targetTime > time && speed.getFactor() > 0){
+			long remainingNanos = anchorNanos + TimeUnit.MILLISECONDS.toNanos(targetTime - anchorTime) / speed.getFactor() - System.nanoTime();
+			if(remainingNanos <= 0){
+				break;
+			}
+			TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+		}
+		time = Math.max(time, targetTime);
+	}
+	
+	/**
+	 * Sleeps for the specified simulated duration at the clock's speed.
+	 * @param millis simulated duration in milliseconds
+	 * @throws InterruptedException if the thread is interrupted while sleeping
+	 */
+	public void sleep(long millis) throws InterruptedException{
+		advanceTo(time + millis);
+	}
+	
+	/**
+	 * Moves the clock to the specified simulated time right away, without waiting for it,
+	 * and continues pacing from there.
+	 * @param targetTime simulated time to move to, in milliseconds since the epoch
+	 */
+	public synchronized void skipTo(long targetTime){
+		time = Math.max(time, targetTime);
+		anchorTime = time;
+		anchorNanos = System.nanoTime();
+	}
+	
+	/**
+	 * Synchronizes the clock with the real time: the simulated time which has passed at the current speed
+	 * since the last synchronization is matched with the current real time, so pacing continues from here.
+	 */
+	private void synchronize(){
+		long nanos = System.nanoTime();
+		if(speed.getFactor() > 0){
+			anchorTime = Math.max(time, anchorTime + TimeUnit.NANOSECONDS.toMillis(nanos - anchorNanos) * speed.getFactor());
+		} else{
+			anchorTime = time;
+		}
+		anchorNanos = nanos;
+	}
+}
\ No newline at end of file
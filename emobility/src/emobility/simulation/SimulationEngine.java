@@ -0,0 +1,488 @@
+package emobility.simulation;
+
+import java.awt.Point;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.io.Closeable;
+import java.text.SimpleDateFormat;
+import emobility.rental.*;
+import emobility.utility.*;
+import emobility.vehicles.*;
+
+/**
+ * Discrete-event simulation of vehicles' rentals, driven by a simulated clock instead of the wall clock.
+ * <p>Arrivals of rentals, steps of the vehicles, faults and charging are scheduled as events in a priority queue,
+ * ordered by their simulated time, which follows the rentals' dates and times. The engine takes the earliest event,
+ * moves its clock to the event's time and processes the event, which schedules the rental's next event.
+ * The {@link SimulationClock} decides how long moving the clock takes in real time: as fast as possible, a rental
+ * which would take minutes of real time is simulated as fast as its events can be processed, while at a fixed
+ * acceleration the clock waits for each event. While no vehicle is on the map, the clock skips straight to the next
+ * arrival, so the time between rentals isn't waited for at any speed.</p>
+ * <p>Rentals are submitted in groups of rentals which happen at the same time, but groups aren't barriers.
+ * The rentals of each vehicle form a chain, in the order in which they were submitted: a rental starts at its own
+ * date and time, or once the vehicle has been returned from its previous rental if that takes longer, including
+ * the charging until the next rental. Rentals of different vehicles don't wait for each other, and overlap freely.</p>
+ * <p>The engine runs on the thread which calls {@link #run(Runnable)}. Observers, such as the map of vehicles,
+ * are optional and are notified about the events as they are processed.</p>
+ * <p>Returning a vehicle, which generates the bill and charges the vehicle until its next rental, may block on file I/O
+ * and is the most expensive part of a rental, so each return runs as a task on a virtual thread. Bill IDs are still
+ * assigned in the order of the events, and the vehicle's next rental waits for the return to finish.
+ * An optional cap limits the number of returns running at once; when it's reached, the engine waits for one of them
+ * to finish. The number of rentals in flight, from their arrival until their vehicle has been returned, can be
+ * read at any time, so even a time slot with many thousands of rentals doesn't need a native thread per rental.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public class SimulationEngine implements Closeable{
+	/** Number of finished returns after which the list of returns is pruned. */
+	private static final int RETURNS_PRUNE_THRESHOLD = 1024;
+	
+	/** Battery level under which a vehicle is removed from the simulation. */
+	static final int LOW_BATTERY_LEVEL = 15;
+	
+	/** The pricing properties file path. */
+	private String pricingPropertiesPath;
+	
+	/** The directory where the bills are stored. */
+	private String billsDirectoryPath;
+	
+	/** Scheduled events, ordered by their time. */
+	private PriorityQueue<SimulationEvent> events;
+	
+	/** Clock moved to the time of each event, which paces the simulation. */
+	private SimulationClock clock;
+	
+	/** Sequence number of the next scheduled event. */
+	private long nextSequence;
+	
+	/** Observers notified about the events. */
+	private List<SimulationObserver> observers;
+	
+	/** Executor running the returns of vehicles, one virtual thread per return. */
+	private ExecutorService returns;
+	
+	/** Limits the number of returns running at once, or {@code null} if there is no limit. */
+	private Semaphore returnPermits;
+	
+	/** Returns which haven't been waited for yet. */
+	private List<Future<?>> pendingReturns;
+	
+	/** Size of the list of returns at which it's pruned next. */
+	private int pruneThreshold = RETURNS_PRUNE_THRESHOLD;
+	
+	/** Last submitted trip of each vehicle, by vehicle's ID. */
+	private Map<String, Trip> lastTrips;
+	
+	/** Number of rentals which have arrived, but haven't ended yet. Only used by the engine's thread. */
+	private int rentalsOnMap;
+	
+	/** Number of rentals which have arrived, but whose vehicles haven't been returned yet. */
+	private AtomicInteger rentalsInFlight;
+	
+	/**
+	 * Constructs a {@code SimulationEngine}, without a limit on the number of returns running at once.
+	 * @param pricingPropertiesPath the pricing properties file path
+	 * @param billsDirectoryPath the directory where the bills are stored
+	 */
+	public SimulationEngine(String pricingPropertiesPath, String billsDirectoryPath){
+		this(pricingPropertiesPath, billsDirectoryPath, 0);
+	}
+	
+	/**
+	 * Constructs a {@code SimulationEngine} which simulates the rentals as fast as possible.
+	 * @param pricingPropertiesPath the pricing properties file path
+	 * @param billsDirectoryPath the directory where the bills are stored
+	 * @param maxConcurrentReturns maximum number of returns running at once, or 0 for no limit
+	 */
+	public SimulationEngine(String pricingPropertiesPath, String billsDirectoryPath, Integer maxConcurrentReturns){
+		this(pricingPropertiesPath, billsDirectoryPath, maxConcurrentReturns, new SimulationClock(SimulationClock.Speed.AS_FAST_AS_POSSIBLE));
+	}
+	
+	/**
+	 * Constructs a {@code SimulationEngine} paced by the specified clock.
+	 * @param pricingPropertiesPath the pricing properties file path
+	 * @param billsDirectoryPath the directory where the bills are stored
+	 * @param maxConcurrentReturns maximum number of returns running at once, or 0 for no limit
+	 * @param clock clock paced by the simulation, whose speed can be changed while it's running
+	 */
+	public SimulationEngine(String pricingPropertiesPath, String billsDirectoryPath, Integer maxConcurrentReturns, SimulationClock clock){
+		this.pricingPropertiesPath = pricingPropertiesPath;
+		this.billsDirectoryPath = billsDirectoryPath;
+		this.events = new PriorityQueue<>();
+		this.observers = new CopyOnWriteArrayList<>();
+		this.returns = Executors.newVirtualThreadPerTaskExecutor();
+		this.returnPermits = maxConcurrentReturns > 0 ? new Semaphore(maxConcurrentReturns) : null;
+		this.pendingReturns = new ArrayList<>();
+		this.rentalsInFlight = new AtomicInteger();
+		this.lastTrips = new HashMap<>();
+		this.clock = clock;
+	}
+	
+	/**
+	 * Adds an observer which is notified about the events.
+	 * @param observer the observer
+	 */
+	public void addObserver(SimulationObserver observer){
+		observers.add(observer);
+	}
+	
+	/**
+	 * Gets the current simulated time.
+	 * @return simulated time in milliseconds since the epoch
+	 */
+	public long getTime(){
+		return clock.now();
+	}
+	
+	/**
+	 * Gets the clock which paces the simulation.
+	 * @return the simulation clock
+	 */
+	public SimulationClock getClock(){
+		return clock;
+	}
+	
+	/**
+	 * Gets the number of rentals in flight, which have arrived but whose vehicles haven't been returned yet.
+	 * Can be called from any thread.
+	 * @return number of rentals in flight
+	 */
+	public int getRentalsInFlight(){
+		return rentalsInFlight.get();
+	}
+	
+	/**
+	 * Submits rentals which happen at the same time. Each rental starts at its date and time, but not before
+	 * the vehicle's previously submitted rental is over and the vehicle has been returned.
+	 * @param rentalsAtSameTime rentals which happen at the same time
+	 */
+	public void submit(List<Rental> rentalsAtSameTime){
+		// the next rental only depends on the time of the group, so it's the same for all of its rentals
+		Date nextRentalDate = rentalsAtSameTime.isEmpty() ? null : RentalParser.getCalendar().getNextSlotOnSameDay(rentalsAtSameTime.get(0).getRentalDateTime());
+		for(Rental rental : rentalsAtSameTime){
+			RentalManagement rentalManagement = new RentalManagement(pricingPropertiesPath,billsDirectoryPath,rental);
+			Trip trip = new Trip(rentalManagement, nextRentalDate);
+			
+			Trip previousTrip = lastTrips.put(rental.getID(), trip);
+			trip.setPreviousTrip(previousTrip);
+			if(previousTrip != null && !previousTrip.isReturned()){
+				previousTrip.addDependentTrip(trip);
+			} else{
+				scheduleArrival(trip);
+			}
+		}
+	}
+		
+	/**
+	 * Processes events until all submitted rentals are over, and waits until all vehicles have been returned.
+	 * @param pollArrivals called before each event, and once more when there are no events left,
+	 * to submit rentals which arrived while the simulation was running
+	 */
+	public void run(Runnable pollArrivals){
+		pollArrivals.run();
+		while(!events.isEmpty()){
+			SimulationEvent event = events.poll();
+			advanceClock(event.getTime());
+			try{
+				process(event);
+			} catch(RuntimeException e){
+				System.out.println("Rental of vehicle " + event.getTrip().getRentalManagement().getID() + " couldn't be simulated.");
+				e.printStackTrace();
+				abandon(event.getTrip());
+			}
+			if(events.isEmpty()){
+				pollArrivals.run();
+			}
+		}
+		awaitReturns();
+	}
+	
+	/**
+	 * Stops counting a rental whose event failed, undoing only what has been counted for it so far,
+	 * and releases the vehicle's next rentals if that hasn't been done yet.
+	 * @param trip trip of the rental
+	 */
+	private void abandon(Trip trip){
+		if(trip.isOnMap()){
+			trip.setOnMap(false);
+			rentalsOnMap--;
+		}
+		if(trip.isInFlight()){
+			trip.setInFlight(false);
+			rentalsInFlight.decrementAndGet();
+		}
+		if(!trip.isReturned()){
+			releaseDependentTrips(trip, null);
+		}
+	}
+	
+	/**
+	 * Processes events until all submitted rentals are over, and waits until all vehicles have been returned.
+	 */
+	public void run(){
+		run(() -> {});
+	}
+	
+	/**
+	 * Waits until all returns of vehicles have finished, and stops the executor running them.
+	 */
+	@Override
+	public void close(){
+		awaitReturns();
+		returns.close();
+	}
+	
+	/** Waits until all started returns have finished. */
+	private void awaitReturns(){
+		for(Future<?> pendingReturn : pendingReturns){
+			await(pendingReturn);
+		}
+		pendingReturns.clear();
+		pruneThreshold = RETURNS_PRUNE_THRESHOLD;
+	}
+	
+	/**
+	 * Waits until a return has finished.
+	 * @param returnTask task returning a vehicle, or {@code null} if the vehicle was returned directly
+	 */
+	private static void await(Future<?> returnTask){
+		if(returnTask == null){
+			return;
+		}
+		try{
+			returnTask.get();
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		} catch(ExecutionException e){
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Moves the clock to the time of the next event, skipping the wait if no vehicle is on the map.
+	 * If the thread is interrupted while waiting, the rest of the simulation runs as fast as possible.
+	 * @param eventTime simulated time of the event, in milliseconds since the epoch
+	 */
+	private void advanceClock(long eventTime){
+		if(rentalsOnMap == 0 || Thread.currentThread().isInterrupted()){
+			clock.skipTo(eventTime);
+			return;
+		}
+		try{
+			clock.advanceTo(eventTime);
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			clock.skipTo(eventTime);
+		}
+	}
+	
+	/**
+	 * Schedules an event.
+	 * @param eventTime simulated time of the event, in milliseconds since the epoch
+	 * @param type type of the event
+	 * @param trip trip of the rental the event belongs to
+	 */
+	private void schedule(long eventTime, EventType type, Trip trip){
+		events.add(new SimulationEvent(eventTime, nextSequence++, type, trip));
+	}
+	
+	/**
+	 * Schedules the arrival of a rental at its date and time, or right away if that has already passed.
+	 * @param trip trip of the rental
+	 */
+	private void scheduleArrival(Trip trip){
+		schedule(Math.max(clock.now(), trip.getStartTime()), EventType.ARRIVAL, trip);
+	}
+	
+	/**
+	 * Releases the trips waiting until the vehicle is returned from a trip, and schedules their arrivals.
+	 * @param trip the trip which is over
+	 * @param returnTask task returning the vehicle, or {@code null} if the vehicle was returned directly
+	 */
+	private void releaseDependentTrips(Trip trip, Future<?> returnTask){
+		trip.setReturned(returnTask);
+		for(Trip dependentTrip : trip.takeDependentTrips()){
+			scheduleArrival(dependentTrip);
+		}
+	}
+	
+	/**
+	 * Processes an event.
+	 * @param event the event
+	 */
+	private void process(SimulationEvent event){
+		switch(event.getType()){
+			case ARRIVAL -> arrive(event.getTrip());
+			case STEP -> step(event.getTrip());
+			case FAULT -> fault(event.getTrip());
+			case CHARGING -> charge(event.getTrip());
+		}
+	}
+	
+	/**
+	 * Starts a rental, once the vehicle has been returned from its previous rental. The vehicle makes its first step right away.
+	 * @param trip trip of the rental
+	 */
+	private void arrive(Trip trip){
+		Trip previousTrip = trip.getPreviousTrip();
+		if(previousTrip != null){
+			await(previousTrip.getReturnTask());
+			trip.setPreviousTrip(null);
+		}
+		
+		rentalsInFlight.incrementAndGet();
+		trip.setInFlight(true);
+		rentalsOnMap++;
+		trip.setOnMap(true);
+		SimpleDateFormat rentalDateTimeFormat = new SimpleDateFormat("dd.MM.yyyy. HH:mm");
+		System.out.println(" Date/Time: " + rentalDateTimeFormat.format(trip.getRentalManagement().getRentalDateTime()) + " - vehicle: " + trip.getRentalManagement().getID() + "\n");
+		trip.start();
+		Point start = trip.getPreviousPosition();
+		Point goal = trip.getGoalPosition();
+		trip.getVehicle().moveTo(start.x, start.y, trip.getVehicle().getBatteryLevel());
+		System.out.println("Vehicle " + trip.getVehicle().getID() + " starting from: (" + start.x + "," + start.y + ") heading to (" + goal.x + "," + goal.y + ")");
+		schedule(clock.now(), EventType.STEP, trip);
+	}
+	
+	/**
+	 * Moves the vehicle by one cell and schedules the rental's next event. The vehicle is removed from
+	 * the simulation if its battery level drops too low.
+	 * @param trip trip of the rental
+	 */
+	private void step(Trip trip){
+		String ID = trip.getRentalManagement().getID();
+		Vehicle vehicle = trip.getVehicle();
+		Point previousPosition = trip.getPreviousPosition();
+		Point position = trip.nextPosition();
+		
+		Integer batteryLevel = trip.getBatteryLevel(position);
+		vehicle.moveTo(position.x, position.y, batteryLevel);
+		if(batteryLevel < LOW_BATTERY_LEVEL){
+			for(SimulationObserver observer : observers){
+				observer.vehicleStopped(vehicle.getID(), previousPosition, position, batteryLevel, false);
+			}
+			System.out.println("Vehicle " + ID + " removed from simulation because of low battery level (" + batteryLevel +"%)");
+			schedule(clock.now(), EventType.CHARGING, trip);
+			return;
+		}
+		// for validation purposes
+		System.out.println("Vehicle " + ID + " moving to (" + position.x + "," + position.y + "), battery level: " + batteryLevel +"%");
+		
+		for(SimulationObserver observer : observers){
+			observer.vehicleMoved(vehicle.getID(), previousPosition, position, batteryLevel);
+		}
+		trip.setPreviousPosition(position);
+		
+		if(!trip.hasNextStep()){
+			trip.setReachedGoal();
+			for(SimulationObserver observer : observers){
+				observer.vehicleStopped(vehicle.getID(), position, position, vehicle.getBatteryLevel(), false);
+			}
+		}
+		
+		long nextTime = clock.now() + trip.getDurationPerStep();
+		if(!trip.hasNextStep()){
+			schedule(nextTime, EventType.CHARGING, trip);
+		} else if(trip.isHorizontalPartFinished() && trip.getRentalManagement().getRegisteredFault() != null){
+			schedule(nextTime, EventType.FAULT, trip);
+		} else{
+			schedule(nextTime, EventType.STEP, trip);
+		}
+	}
+	
+	/**
+	 * Stops the vehicle because of the fault registered for the rental.
+	 * @param trip trip of the rental
+	 */
+	private void fault(Trip trip){
+		RentalManagement rentalManagement = trip.getRentalManagement();
+		Vehicle vehicle = trip.getVehicle();
+		vehicle.setStatus(FleetState.Status.FAULTY);
+		for(SimulationObserver observer : observers){
+			observer.vehicleStopped(vehicle.getID(), trip.getPreviousPosition(), trip.getTurningPosition(), vehicle.getBatteryLevel(), true);
+		}
+		System.out.println("Vehicle " + rentalManagement.getID() + " encountered a fault (" + rentalManagement.getRegisteredFault().getDescription() + ")");
+		schedule(clock.now(), EventType.CHARGING, trip);
+	}
+	
+	/**
+	 * Ends the rental: assigns the next bill ID, and returns the vehicle on a virtual thread,
+	 * waiting for a permit first if the number of returns running at once is limited.
+	 * The vehicle's next rentals are released, and start once the return has finished.
+	 * @param trip trip of the rental
+	 */
+	private void charge(Trip trip){
+		rentalsOnMap--;
+		trip.setOnMap(false);
+		trip.getVehicle().setStatus(FleetState.Status.CHARGING);
+		Rental.incrementRentalID();
+		Integer billID = Rental.getRentalID();
+		
+		if(returnPermits != null){
+			try{
+				returnPermits.acquire();
+			} catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				trip.setInFlight(false);
+				returnVehicle(trip, billID);
+				releaseDependentTrips(trip, null);
+				return;
+			}
+		}
+		try{
+			Future<?> returnTask = returns.submit(() -> {
+				try{
+					returnVehicle(trip, billID);
+				} finally{
+					if(returnPermits != null){
+						returnPermits.release();
+					}
+				}
+			});
+			trip.setInFlight(false);
+			releaseDependentTrips(trip, returnTask);
+			pendingReturns.add(returnTask);
+			if(pendingReturns.size() >= pruneThreshold){
+				pendingReturns.removeIf(Future::isDone);
+				pruneThreshold = Math.max(RETURNS_PRUNE_THRESHOLD, pendingReturns.size() * 2);
+			}
+		} catch(RejectedExecutionException e){
+			if(returnPermits != null){
+				returnPermits.release();
+			}
+			throw e;
+		}
+	}
+	
+	/**
+	 * Returns the vehicle: generates the rental's bill, and charges the vehicle until its next rental, or fully if there is none.
+	 * @param trip trip of the rental
+	 * @param billID ID of the rental's bill
+	 */
+	private void returnVehicle(Trip trip, Integer billID){
+		RentalManagement rentalManagement = trip.getRentalManagement();
+		Vehicle vehicle = trip.getVehicle();
+		try{
+			rentalManagement.generateBill(billID);
+			System.out.println("\nBill generated for vehicle " + vehicle.getID());
+		
+			if(trip.getNextRentalDate() != null){
+				rentalManagement.chargeVehicleUntilNextRental(vehicle);
+			} else {
+				vehicle.setBatteryLevel(100);
+			}
+			vehicle.setStatus(FleetState.Status.AVAILABLE);
+		
+			for(SimulationObserver observer : observers){
+				observer.rentalFinished(rentalManagement, trip.hasReachedGoal());
+			}
+		} catch(RuntimeException e){
+			System.out.println("Vehicle " + vehicle.getID() + " couldn't be returned.");
+			e.printStackTrace();
+		} finally{
+			rentalsInFlight.decrementAndGet();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package emobility.simulation;
+
+/**
+ * An event scheduled in the {@link SimulationEngine}'s queue.
+ * <p>Events are ordered by their simulated time, and events scheduled for the same time by the order
+ * in which they were scheduled, so every run of the same rentals processes its events in the same order.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+class SimulationEvent implements Comparable<SimulationEvent>{
+	/** Simulated time of the event, in milliseconds. */
+	private final long time;
+	
+	/** Sequence number of the event, breaking ties between events scheduled for the same time. */
+	private final long sequence;
+	
+	/** Type of the event. */
+	private final EventType type;
+	
+	/** Trip of the rental the event belongs to. */
+	private final Trip trip;
+	
+	/**
+	 * Constructs a {@code SimulationEvent}.
+	 * @param time simulated time of the event, in milliseconds
+	 * @param sequence sequence number of the event
+	 * @param type type of the event
+	 * @param trip trip of the rental the event belongs to
+	 */
+	SimulationEvent(long time, long sequence, EventType type, Trip trip){
+		this.time = time;
+		this.sequence = sequence;
+		this.type = type;
+		this.trip = trip;
+	}
+	
+	/**
+	 * Gets the simulated time of the event.
+	 * @return event's time, in milliseconds
+	 */
+	long getTime(){
+		return time;
+	}
+	
+	/**
+	 * Gets the type of the event.
+	 * @return event's type
+	 */
+	EventType getType(){
+		return type;
+	}
+	
+	/**
+	 * Gets the trip of the rental the event belongs to.
+	 * @return the {@link Trip}
+	 */
+	Trip getTrip(){
+		return trip;
+	}
+	
+	/**
+	 * Compares events by their time, and events with the same time by their sequence numbers.
+	 * @param other the other event
+	 * @return negative value, zero or positive value if this event comes before, together with, or after the other one
+	 */
+	@Override
+	public int compareTo(SimulationEvent other){
+		int result = Long.compare(time, other.time);
+		return result != 0 ? result : Long.compare(sequence, other.sequence);
+	}
+}
\ No newline at end of file
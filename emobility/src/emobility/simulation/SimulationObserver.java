@@ -0,0 +1,44 @@
+package emobility.simulation;
+
+import java.awt.Point;
+import emobility.rental.*;
+
+/**
+ * Observer of the events processed by the {@link SimulationEngine}, such as a map showing the vehicles' positions.
+ * <p>Observers are notified on the engine's thread, in the order of the events, and shouldn't block it.
+ * Only {@link #rentalFinished(RentalManagement, Boolean)} is called by the thread returning the vehicle.
+ * All methods have empty default implementations, so an observer only implements the events it's interested in.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public interface SimulationObserver{
+	/**
+	 * Called when a vehicle moves to a new position.
+	 * @param vehicleID vehicle's ID
+	 * @param previousPosition vehicle's previous position
+	 * @param position vehicle's new position
+	 * @param batteryLevel vehicle's battery level on the new position
+	 */
+	default void vehicleMoved(String vehicleID, Point previousPosition, Point position, Integer batteryLevel){
+	}
+	
+	/**
+	 * Called when a vehicle stops and leaves the map, because it reached its goal, its battery is low, or because of a fault.
+	 * @param vehicleID vehicle's ID
+	 * @param previousPosition vehicle's previous position
+	 * @param position position on which the vehicle stopped
+	 * @param batteryLevel vehicle's battery level
+	 * @param faulty {@code true} if the vehicle stopped because of a fault, otherwise {@code false}
+	 */
+	default void vehicleStopped(String vehicleID, Point previousPosition, Point position, Integer batteryLevel, Boolean faulty){
+	}
+	
+	/**
+	 * Called when a rental is over, after its bill has been generated and the vehicle has been charged.
+	 * @param rentalManagement the finished rental
+	 * @param reachedGoal {@code true} if the vehicle reached its goal location, otherwise {@code false}
+	 */
+	default void rentalFinished(RentalManagement rentalManagement, Boolean reachedGoal){
+	}
+}
\ No newline at end of file
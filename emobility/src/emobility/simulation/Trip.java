@@ -0,0 +1,343 @@
+package emobility.simulation;
+
+import java.awt.Point;
+import java.util.*;
+import java.util.concurrent.Future;
+import emobility.rental.*;
+import emobility.vehicles.*;
+
+/**
+ * Movement of a vehicle during one rental, simulated by the {@link SimulationEngine}.
+ * <p>The vehicle first moves horizontally from its start location, and then vertically to its goal location,
+ * one cell of the grid per step. Its battery level on each position is calculated from the number of cells
+ * it has passed, taking into account the autonomy of bicycles.</p>
+ * <p>Trips of the same vehicle form a chain: a trip can only start once the vehicle has been returned
+ * from its previous trip, so each trip remembers the trips waiting for it.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+class Trip{
+	/** Minimum battery level of a moving vehicle. */
+	private static final int MIN_BATTERY_LEVEL = 5;
+	
+	/** Manages the rental process and billing. */
+	private final RentalManagement rentalManagement;
+	
+	/** The rented vehicle. */
+	private final Vehicle vehicle;
+	
+	/** The date and time of the next rental (if there is any). */
+	private final Date nextRentalDate;
+	
+	/** Start x-coordinate. */
+	private int startX;
+	
+	/** Start y-coordinate. */
+	private int startY;
+	
+	/** Goal x-coordinate. */
+	private int goalX;
+	
+	/** Goal y-coordinate. */
+	private int goalY;
+	
+	/** Index of the next step. */
+	private int step;
+	
+	/** Vehicle's position before the last step. */
+	private Point previousPosition;
+	
+	/** Indicates whether the vehicle reached its goal location. */
+	private boolean reachedGoal;
+	
+	/** The vehicle's previous trip, or {@code null} if there is none or the vehicle has already been returned from it. */
+	private Trip previousTrip;
+	
+	/** The vehicle's next trips, waiting until the vehicle is returned from this trip. */
+	private List<Trip> dependentTrips;
+	
+	/** Indicates whether the rental is over and the vehicle's return has been started. */
+	private boolean returned;
+	
+	/** Task returning the vehicle, or {@code null} if it hasn't been started or the vehicle was returned directly. */
+	private Future<?> returnTask;
+	
+	/** Indicates whether the rental is counted among the rentals on the map. Only used by the engine's thread. */
+	private boolean onMap;
+	
+	/** Indicates whether the rental is counted among the rentals in flight, and no return has taken it over yet. Only used by the engine's thread. */
+	private boolean inFlight;
+	
+	/**
+	 * Constructs a {@code Trip} for the specified rental.
+	 * @param rentalManagement {@link RentalManagement} object handling the rental
+	 * @param nextRentalDate date and time of the next rental, if there is any
+	 */
+	Trip(RentalManagement rentalManagement, Date nextRentalDate){
+		this.rentalManagement = rentalManagement;
+		this.vehicle = VehicleParser.getVehicle(rentalManagement.getID());
+		this.nextRentalDate = nextRentalDate;
+	}
+	
+	/** Takes the start and goal locations of the rental, and places the vehicle on its start location. */
+	void start(){
+		startX = rentalManagement.getStartX();
+		startY = rentalManagement.getStartY();
+		goalX = rentalManagement.getGoalX();
+		goalY = rentalManagement.getGoalY();
+		
+		previousPosition = new Point(startX, startY);
+	}
+	
+	/**
+	 * Gets the position of the next step and moves on to the following one.
+	 * Both the horizontal and the vertical part of the trip include the cell in which the vehicle turns.
+	 * @return vehicle's new position
+	 */
+	Point nextPosition(){
+		int horizontalSteps = Math.abs(goalX - startX) + 1;
+		Point position;
+		if(step < horizontalSteps){
+			position = new Point(startX + step * Integer.signum(goalX - startX), startY);
+		} else{
+			position = new Point(goalX, startY + (step - horizontalSteps) * Integer.signum(goalY - startY));
+		}
+		step++;
+		return position;
+	}
+	
+	/**
+	 * Checks whether the last step ended the horizontal part of the trip.
+	 * @return {@code true} if the vehicle has just finished moving horizontally, otherwise {@code false}
+	 */
+	boolean isHorizontalPartFinished(){
+		return step == Math.abs(goalX - startX) + 1;
+	}
+	
+	/**
+	 * Checks whether there are steps left.
+	 * @return {@code true} if the vehicle hasn't reached its goal location yet, otherwise {@code false}
+	 */
+	boolean hasNextStep(){
+		return step < Math.abs(goalX - startX) + Math.abs(goalY - startY) + 2;
+	}
+	
+	/**
+	 * Gets the position in which the horizontal part of the trip ends.
+	 * @return position in which the vehicle turns
+	 */
+	Point getTurningPosition(){
+		return new Point(goalX, startY);
+	}
+	
+	/**
+	 * Gets the goal location of the rental.
+	 * @return vehicle's goal position
+	 */
+	Point getGoalPosition(){
+		return new Point(goalX, goalY);
+	}
+	
+	/**
+	 * Calculates the duration of each step of the vehicle's movement, taking into account maximum speed of scooters.
+	 * @return duration per step in milliseconds
+	 */
+	long getDurationPerStep(){
+		Integer numOfSteps = getNumOfSteps();
+		Long durationPerStep = (rentalManagement.getDuration() * 1000) / numOfSteps;
+		
+		if(vehicle.getType().equalsIgnoreCase("scooter")){
+			ElectricScooter scooter = (ElectricScooter) vehicle;
+			Long maxSpeed = Long.valueOf(scooter.getMaxSpeed());
+			Long maxSpeedPerStep = (maxSpeed * 1000) / numOfSteps;
+			return Math.min(durationPerStep, maxSpeedPerStep);
+		}
+		
+		return durationPerStep;
+	}
+	
+	/**
+	 * Calculates the vehicle's battery level on the specified position, taking into account autonomy of bicycles.
+	 * @param position vehicle's position
+	 * @return vehicle's battery level on the specified position
+	 */
+	Integer getBatteryLevel(Point position){
+		Integer numOfSteps = getNumOfSteps();
+		Integer currentNumOfSteps = Math.abs(position.x - startX) + Math.abs(position.y - startY);
+		
+		if(vehicle.getType().equalsIgnoreCase("bicycle")){
+			ElectricBicycle bicycle = (ElectricBicycle) vehicle;
+			Integer possibleSteps = bicycle.getAutonomy();
+			
+			if(currentNumOfSteps >= possibleSteps){
+				return MIN_BATTERY_LEVEL;
+			}
+		}
+		
+		return Math.max(MIN_BATTERY_LEVEL, 100 - (currentNumOfSteps * 33 / numOfSteps));
+	}
+	
+	/**
+	 * Gets the total number of cells between the start and the goal location.
+	 * @return number of steps of the rental
+	 */
+	private Integer getNumOfSteps(){
+		return Math.abs(goalX - startX) + Math.abs(goalY - startY);
+	}
+	
+	/**
+	 * Gets the rental's {@link RentalManagement} object.
+	 * @return the rental's {@code RentalManagement}
+	 */
+	RentalManagement getRentalManagement(){
+		return rentalManagement;
+	}
+	
+	/**
+	 * Gets the rented vehicle.
+	 * @return the rented vehicle
+	 */
+	Vehicle getVehicle(){
+		return vehicle;
+	}
+	
+	/**
+	 * Gets the date and time of the vehicle's next rental.
+	 * @return date and time of the next rental, or {@code null} if there is none
+	 */
+	Date getNextRentalDate(){
+		return nextRentalDate;
+	}
+	
+	/**
+	 * Gets the vehicle's position before the last step.
+	 * @return vehicle's previous position
+	 */
+	Point getPreviousPosition(){
+		return previousPosition;
+	}
+	
+	/**
+	 * Sets the vehicle's position before the next step.
+	 * @param previousPosition vehicle's current position
+	 */
+	void setPreviousPosition(Point previousPosition){
+		this.previousPosition = previousPosition;
+	}
+	
+	/**
+	 * Checks whether the vehicle reached its goal location.
+	 * @return {@code true} if the vehicle reached its goal, otherwise {@code false}
+	 */
+	boolean hasReachedGoal(){
+		return reachedGoal;
+	}
+	
+	/** Marks the vehicle as arrived at its goal location. */
+	void setReachedGoal(){
+		reachedGoal = true;
+	}
+	
+	/**
+	 * Gets the rental's date and time.
+	 * @return start time of the rental, in milliseconds since the epoch
+	 */
+	long getStartTime(){
+		return rentalManagement.getRentalDateTime().getTime();
+	}
+	
+	/**
+	 * Gets the vehicle's previous trip.
+	 * @return previous trip, or {@code null} if there is none
+	 */
+	Trip getPreviousTrip(){
+		return previousTrip;
+	}
+	
+	/**
+	 * Sets the vehicle's previous trip.
+	 * @param previousTrip previous trip, or {@code null} if there is none
+	 */
+	void setPreviousTrip(Trip previousTrip){
+		this.previousTrip = previousTrip;
+	}
+	
+	/**
+	 * Adds a trip of the same vehicle which waits until the vehicle is returned from this trip.
+	 * @param trip the waiting trip
+	 */
+	void addDependentTrip(Trip trip){
+		if(dependentTrips == null){
+			dependentTrips = new ArrayList<>();
+		}
+		dependentTrips.add(trip);
+	}
+	
+	/**
+	 * Gets the trips waiting until the vehicle is returned from this trip, and forgets them.
+	 * @return the waiting trips
+	 */
+	List<Trip> takeDependentTrips(){
+		List<Trip> trips = dependentTrips != null ? dependentTrips : List.of();
+		dependentTrips = null;
+		return trips;
+	}
+	
+	/**
+	 * Checks whether the rental is over and the vehicle's return has been started.
+	 * @return {@code true} if the vehicle is being or has been returned, otherwise {@code false}
+	 */
+	boolean isReturned(){
+		return returned;
+	}
+	
+	/**
+	 * Marks the rental as over.
+	 * @param returnTask task returning the vehicle, or {@code null} if the vehicle was returned directly
+	 */
+	void setReturned(Future<?> returnTask){
+		this.returned = true;
+		this.returnTask = returnTask;
+	}
+	
+	/**
+	 * Gets the task returning the vehicle.
+	 * @return the return task, or {@code null} if the vehicle was returned directly
+	 */
+	Future<?> getReturnTask(){
+		return returnTask;
+	}
+	
+	/**
+	 * Checks whether the rental is counted among the rentals on the map.
+	 * @return {@code true} if the rental has arrived and hasn't ended yet, otherwise {@code false}
+	 */
+	boolean isOnMap(){
+		return onMap;
+	}
+	
+	/**
+	 * Sets whether the rental is counted among the rentals on the map.
+	 * @param onMap {@code true} if the rental has been counted, {@code false} once it's no longer counted
+	 */
+	void setOnMap(boolean onMap){
+		this.onMap = onMap;
+	}
+	
+	/**
+	 * Checks whether the rental is counted among the rentals in flight, and no return has taken it over yet.
+	 * @return {@code true} if the engine still has to stop counting the rental, otherwise {@code false}
+	 */
+	boolean isInFlight(){
+		return inFlight;
+	}
+	
+	/**
+	 * Sets whether the rental is counted among the rentals in flight, and no return has taken it over yet.
+	 * @param inFlight {@code true} if the rental has been counted, {@code false} once a return stops counting it
+	 */
+	void setInFlight(boolean inFlight){
+		this.inFlight = inFlight;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,137 @@
+package emobility.utility;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ * Central access to the application's properties files, such as the main configuration and the repair coefficients.
+ * <p>Each file is read once and published as an immutable {@link ConfigSnapshot}. When a watched file changes on disk,
+ * it's read again and a new snapshot with a higher version replaces the previous one. If the changed file can't be read,
+ * or lacks one of the keys required for the file because it's being rewritten, the previous snapshot stays published,
+ * and a file whose values didn't change doesn't publish a new snapshot.
+ * Values which are only used at startup, such as file paths, keep the values they had when they were read,
+ * while values read from the current snapshot each time they're needed, such as the coefficients of the reports,
+ * follow the changes without restarting the application.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public class ConfigService{
+	/** Path of the main configuration file. */
+	public static final String CONFIG_FILE_PATH = "src/emobility/utility/config.properties";
+	
+	/** Current snapshots by the path of the file. */
+	private static Map<Path, ConfigSnapshot> snapshots = new ConcurrentHashMap<>();
+	
+	/** Keys which a reloaded file must contain to replace its snapshot, by the path of the file. */
+	private static Map<Path, Set<String>> requiredKeys = new ConcurrentHashMap<>();
+	
+	/** Watchers of files reloaded when they change, by the path of the file. */
+	private static Map<Path, FileWatcher> watchers = new ConcurrentHashMap<>();
+	
+	/** Private constructor, as this class only provides static methods. */
+	private ConfigService(){
+	}
+	
+	/**
+	 * Gets the current snapshot of the main configuration file.
+	 * @return the current {@code ConfigSnapshot} of the configuration
+	 */
+	public static ConfigSnapshot config(){
+		return get(CONFIG_FILE_PATH);
+	}
+	
+	/**
+	 * Gets the current snapshot of the specified file, reading the file the first time.
+	 * @param filePath path of the properties file
+	 * @return the current {@code ConfigSnapshot}, which is empty if the file couldn't be read the first time
+	 */
+	public static ConfigSnapshot get(String filePath){
+		Path path = normalize(filePath);
+		ConfigSnapshot snapshot = snapshots.get(path);
+		if(snapshot == null){
+			snapshot = snapshots.computeIfAbsent(path, key -> {
+				Properties properties = read(key);
+				return new ConfigSnapshot(1L, properties != null ? properties : new Properties());
+			});
+		}
+		return snapshot;
+	}
+	
+	/**
+	 * Reads the specified file again and publishes a new snapshot.
+	 * If the file can't be read, is empty, lacks a required key or its values didn't change, the current snapshot is kept.
+	 * @param filePath path of the properties file
+	 * @return the current {@code ConfigSnapshot}
+	 */
+	public static ConfigSnapshot reload(String filePath){
+		Path path = normalize(filePath);
+		Properties properties = read(path);
+		ConfigSnapshot current = get(filePath);
+		if(properties == null || properties.isEmpty() || current.hasSameValues(properties)){
+			return current;
+		}
+		for(String key : requiredKeys.getOrDefault(path, Set.of())){
+			if(properties.getProperty(key, "").isBlank()){
+				System.out.println("Properties file " + filePath + " is missing " + key + ", the previous values are kept.");
+				return current;
+			}
+		}
+		
+		synchronized(ConfigService.class){
+			ConfigSnapshot snapshot = new ConfigSnapshot(snapshots.get(path).getVersion() + 1, properties);
+			snapshots.put(path, snapshot);
+			return snapshot;
+		}
+	}
+	
+	/**
+	 * Starts watching the specified file, so a new snapshot is published whenever the file changes on disk.
+	 * @param filePath path of the properties file
+	 * @throws IOException if the file's directory can't be watched
+	 */
+	public static void watch(String filePath) throws IOException{
+		Path path = normalize(filePath);
+		FileWatcher watcher = new FileWatcher(path, () -> reload(filePath));
+		if(watchers.putIfAbsent(path, watcher) == null){
+			watcher.start();
+		}
+	}
+	
+	/**
+	 * Sets keys which the specified file must contain, so a reloaded file lacking any of them doesn't replace its snapshot.
+	 * @param filePath path of the properties file
+	 * @param keys the required keys
+	 */
+	public static void requireKeys(String filePath, String... keys){
+		requiredKeys.computeIfAbsent(normalize(filePath), key -> ConcurrentHashMap.newKeySet()).addAll(Arrays.asList(keys));
+	}
+	
+	/**
+	 * Normalizes the path of a file, so the same file is always found under the same key.
+	 * @param filePath path of the file
+	 * @return absolute, normalized path
+	 */
+	private static Path normalize(String filePath){
+		return Paths.get(filePath).toAbsolutePath().normalize();
+	}
+	
+	/**
+	 * Reads the properties of a file.
+	 * @param path path of the file
+	 * @return the properties, or {@code null} if the file can't be read
+	 */
+	private static Properties read(Path path){
+		Properties properties = new Properties();
+		try(InputStream input = Files.newInputStream(path)){
+			properties.load(input);
+			return properties;
+		} catch(IOException e){
+			System.out.println("Properties file couldn't be read: " + path);
+			e.printStackTrace();
+			return null;
+		}
+	}
+}
\ No newline at end of file
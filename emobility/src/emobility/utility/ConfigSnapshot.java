@@ -0,0 +1,156 @@
+package emobility.utility;
+
+import java.util.*;
+
+/**
+ * Immutable, versioned snapshot of a properties file, published by the {@link ConfigService}.
+ * <p>Values are read through typed accessors, which return the specified default value if a property
+ * is missing or can't be parsed, or fail if the property is required. Every reload which changes a file's values publishes a new snapshot with a higher version,
+ * so code holding a snapshot always sees one consistent set of values.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public final class ConfigSnapshot{
+	/** Version of the snapshot, increased each time the file is reloaded. */
+	private final Long version;
+	
+	/** The properties of the file. */
+	private final Map<String, String> values;
+	
+	/**
+	 * Constructs a {@code ConfigSnapshot} with the specified version and properties.
+	 * @param version version of the snapshot
+	 * @param properties the properties read from the file
+	 */
+	ConfigSnapshot(Long version, Properties properties){
+		Map<String, String> values = new HashMap<>();
+		for(String key : properties.stringPropertyNames()){
+			values.put(key, properties.getProperty(key).trim());
+		}
+		this.version = version;
+		this.values = Collections.unmodifiableMap(values);
+	}
+	
+	/**
+	 * Gets the version of the snapshot.
+	 * @return snapshot's version
+	 */
+	public Long getVersion(){
+		return version;
+	}
+	
+	/**
+	 * Checks whether the snapshot holds the same values as the specified properties.
+	 * @param properties the properties
+	 * @return {@code true} if all values are the same, otherwise {@code false}
+	 */
+	boolean hasSameValues(Properties properties){
+		return values.equals(new ConfigSnapshot(version, properties).values);
+	}
+	
+	/**
+	 * Retrieves a property value as a string.
+	 * @param key property key
+	 * @return value associated with the key, or {@code null} if the key is not found
+	 */
+	public String getString(String key){
+		return values.get(key);
+	}
+	
+	/**
+	 * Retrieves a property value as a string.
+	 * @param key property key
+	 * @param defaultValue value returned if the key is not found
+	 * @return value associated with the key, or the default value
+	 */
+	public String getString(String key, String defaultValue){
+		return values.getOrDefault(key, defaultValue);
+	}
+	
+	/**
+	 * Retrieves a property value as a {@code Boolean}.
+	 * @param key property key
+	 * @param defaultValue value returned if the key is not found
+	 * @return {@code true} if the value is "true" (ignoring case), {@code false} for any other value, or the default value
+	 */
+	public Boolean getBoolean(String key, Boolean defaultValue){
+		String value = values.get(key);
+		return value != null ? Boolean.parseBoolean(value) : defaultValue;
+	}
+	
+	/**
+	 * Retrieves a property value as an {@code Integer}.
+	 * @param key property key
+	 * @param defaultValue value returned if the key is not found or the value cannot be parsed
+	 * @return value associated with the key, parsed as an {@code Integer}, or the default value
+	 */
+	public Integer getInteger(String key, Integer defaultValue){
+		String value = values.get(key);
+		if(value == null){
+			return defaultValue;
+		}
+		try{
+			return Integer.parseInt(value);
+		} catch(NumberFormatException e){
+			System.err.println("Error: Unable to parse property '" + key + "' as an integer. Returning default value: " + defaultValue + ".");
+			return defaultValue;
+		}
+	}
+	
+	/**
+	 * Retrieves a property value as a {@code Long}.
+	 * @param key property key
+	 * @param defaultValue value returned if the key is not found or the value cannot be parsed
+	 * @return value associated with the key, parsed as a {@code Long}, or the default value
+	 */
+	public Long getLong(String key, Long defaultValue){
+		String value = values.get(key);
+		if(value == null){
+			return defaultValue;
+		}
+		try{
+			return Long.parseLong(value);
+		} catch(NumberFormatException e){
+			System.err.println("Error: Unable to parse property '" + key + "' as a long. Returning default value: " + defaultValue + ".");
+			return defaultValue;
+		}
+	}
+	
+	/**
+	 * Retrieves a property value which must be present, as a {@code Double}.
+	 * @param key property key
+	 * @return value associated with the key, parsed as a {@code Double}
+	 * @throws IllegalStateException if the key is not found or the value cannot be parsed
+	 */
+	public Double getRequiredDouble(String key){
+		String value = values.get(key);
+		if(value == null){
+			throw new IllegalStateException("Missing property: " + key);
+		}
+		try{
+			return Double.parseDouble(value);
+		} catch(NumberFormatException e){
+			throw new IllegalStateException("Unable to parse property '" + key + "' as a double: " + value, e);
+		}
+	}
+	
+	/**
+	 * Retrieves a property value as a {@code Double}.
+	 * @param key property key
+	 * @param defaultValue value returned if the key is not found or the value cannot be parsed
+	 * @return value associated with the key, parsed as a {@code Double}, or the default value
+	 */
+	public Double getDouble(String key, Double defaultValue){
+		String value = values.get(key);
+		if(value == null){
+			return defaultValue;
+		}
+		try{
+			return Double.parseDouble(value);
+		} catch(NumberFormatException e){
+			System.err.println("Error: Unable to parse property '" + key + "' as a double. Returning default value: " + defaultValue + ".");
+			return defaultValue;
+		}
+	}
+}
\ No newline at end of file
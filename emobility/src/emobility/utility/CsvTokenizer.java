@@ -0,0 +1,400 @@
+package emobility.utility;
+
+import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A byte-level, quote-aware CSV tokenizer following RFC 4180.
+ * <p>The tokenizer reads rows directly from a {@link ByteBuffer} (typically a memory-mapped file) and copies
+ * the content of each field into one reused buffer, so reading a row doesn't allocate any objects.
+ * Fields can be read as strings, or parsed as {@code int}, {@code long} and {@code double} values straight from the bytes.
+ * Quoted fields may contain commas, line breaks and escaped quotes ({@code ""}).</p>
+ * <p>An instance is not thread-safe - each thread should use its own tokenizer.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public class CsvTokenizer{
+	/** Field separator. */
+	private static final byte SEPARATOR = ',';
+	
+	/** Quote character. */
+	private static final byte QUOTE = '"';
+	
+	/** The source of the CSV data. */
+	private ByteBuffer source;
+	
+	/** Content of all fields of the current row, without quotes. */
+	private byte[] buffer;
+	
+	/** Start offsets of the fields in {@link #buffer}. */
+	private int[] fieldStart;
+	
+	/** End offsets (exclusive) of the fields in {@link #buffer}. */
+	private int[] fieldEnd;
+	
+	/** Number of fields in the current row. */
+	private int fieldCount;
+	
+	/** Position of the current row's first byte in the source. */
+	private int rowStart;
+	
+	/** Position after the current row's last byte in the source, without the line break. */
+	private int rowEnd;
+	
+	/** Number of the current row's first line, counting from 1. */
+	private long lineNumber;
+	
+	/** Number of lines consumed so far. */
+	private long linesRead;
+	
+	/**
+	 * Constructs a {@code CsvTokenizer} which reads from the remaining bytes of the specified buffer.
+	 * @param source buffer containing CSV data
+	 */
+	public CsvTokenizer(ByteBuffer source){
+		this.source = source;
+		this.buffer = new byte[256];
+		this.fieldStart = new int[16];
+		this.fieldEnd = new int[16];
+	}
+	
+	/**
+	 * Reads the next row from the source.
+	 * @return {@code true} if a row was read, {@code false} if the end of the source was reached
+	 */
+	public boolean nextRow(){
+		int position = source.position();
+		int limit = source.limit();
+		if(position >= limit){
+			fieldCount = 0;
+			return false;
+		}
+		
+		rowStart = position;
+		lineNumber = linesRead + 1;
+		fieldCount = 0;
+		int length = 0;
+		boolean quoted = false;
+		boolean endOfRow = false;
+		startField(length);
+		
+		while(position < limit && !endOfRow){
+			byte b = source.get(position++);
+			if(quoted){
+				if(b == QUOTE){
+					if(position < limit && source.get(position) == QUOTE){
+						length = append(length, QUOTE);
+						position++;
+					} else{
+						quoted = false;
+					}
+				} else{
+					if(b == '\n'){
+						linesRead++;
+					}
+					length = append(length, b);
+				}
+			} else if(b == SEPARATOR){
+				endField(length);
+				startField(length);
+			} else if(b == QUOTE){
+				quoted = true;
+			} else if(b == '\n'){
+				endOfRow = true;
+			} else if(b != '\r' || (position < limit && source.get(position) != '\n')){
+				length = append(length, b);
+			}
+		}
+		
+		linesRead++;
+		rowEnd = endOfRow ? position - 1 : position;
+		if(rowEnd > rowStart && source.get(rowEnd - 1) == '\r'){
+			rowEnd--;
+		}
+		endField(length);
+		source.position(position);
+		return true;
+	}
+	
+	/**
+	 * Marks the start of a new field.
+	 * @param offset offset of the field's first byte in the buffer
+	 */
+	private void startField(int offset){
+		if(fieldCount == fieldStart.length){
+			fieldStart = Arrays.copyOf(fieldStart, fieldCount * 2);
+			fieldEnd = Arrays.copyOf(fieldEnd, fieldCount * 2);
+		}
+		fieldStart[fieldCount] = offset;
+	}
+	
+	/**
+	 * Marks the end of the current field.
+	 * @param offset offset after the field's last byte in the buffer
+	 */
+	private void endField(int offset){
+		fieldEnd[fieldCount++] = offset;
+	}
+	
+	/**
+	 * Appends a byte to the field buffer, growing it if needed.
+	 * @param length current length of the buffer's content
+	 * @param b byte to append
+	 * @return new length of the buffer's content
+	 */
+	private int append(int length, byte b){
+		if(length == buffer.length){
+			buffer = Arrays.copyOf(buffer, length * 2);
+		}
+		buffer[length] = b;
+		return length + 1;
+	}
+	
+	/**
+	 * Returns the number of fields in the current row.
+	 * @return number of fields
+	 */
+	public int getFieldCount(){
+		return fieldCount;
+	}
+	
+	/**
+	 * Returns the number of the current row's first line in the source, counting from 1.
+	 * @return line number
+	 */
+	public long getLineNumber(){
+		return lineNumber;
+	}
+	
+	/**
+	 * Returns the number of lines consumed from the source so far, including the current row's lines.
+	 * @return number of lines read
+	 */
+	public long getLinesRead(){
+		return linesRead;
+	}
+	
+	/**
+	 * Returns the position of the current row's first byte in the source.
+	 * @return position of the row
+	 */
+	public int getRowStart(){
+		return rowStart;
+	}
+	
+	/**
+	 * Checks whether the current row is blank (a single empty field).
+	 * @return {@code true} if the row is blank, otherwise {@code false}
+	 */
+	public boolean isBlankRow(){
+		return fieldCount == 1 && isEmpty(0);
+	}
+	
+	/**
+	 * Checks whether the specified field is empty.
+	 * @param field index of the field
+	 * @return {@code true} if the field has no content, otherwise {@code false}
+	 */
+	public boolean isEmpty(int field){
+		return fieldEnd[field] == fieldStart[field];
+	}
+	
+	/**
+	 * Returns the content of the specified field as a string.
+	 * @param field index of the field
+	 * @return the field's content
+	 */
+	public String getString(int field){
+		return new String(buffer, fieldStart[field], fieldEnd[field] - fieldStart[field], StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Returns the raw text of the current row, as it appears in the source. Intended for error messages.
+	 * @return the row's text, without the line break
+	 */
+	public String getRow(){
+		byte[] row = new byte[rowEnd - rowStart];
+		source.get(rowStart, row);
+		return new String(row, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Compares the specified field with an ASCII string, ignoring case.
+	 * @param field index of the field
+	 * @param value ASCII string to compare to
+	 * @return {@code true} if the field's content is equal to the value, otherwise {@code false}
+	 */
+	public boolean equalsIgnoreCase(int field, String value){
+		int start = fieldStart[field];
+		if(fieldEnd[field] - start != value.length()){
+			return false;
+		}
+		for(int i = 0; i < value.length(); i++){
+			if(Character.toLowerCase((char) buffer[start + i]) != Character.toLowerCase(value.charAt(i))){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Finds the first occurrence of a byte in the specified field.
+	 * @param field index of the field
+	 * @param b byte to look for
+	 * @return offset of the byte relative to the field's start, or {@code -1} if the field doesn't contain it
+	 */
+	public int indexOf(int field, byte b){
+		for(int i = fieldStart[field]; i < fieldEnd[field]; i++){
+			if(buffer[i] == b){
+				return i - fieldStart[field];
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Returns a direct reference to the buffer holding the content of the current row's fields.
+	 * The content is only valid until the next call to {@link #nextRow()}.
+	 * @return the field buffer
+	 */
+	public byte[] getBuffer(){
+		return buffer;
+	}
+	
+	/**
+	 * Returns the offset of the specified field's first byte in the field buffer.
+	 * @param field index of the field
+	 * @return start offset
+	 */
+	public int getFieldStart(int field){
+		return fieldStart[field];
+	}
+	
+	/**
+	 * Returns the offset after the specified field's last byte in the field buffer.
+	 * @param field index of the field
+	 * @return end offset
+	 */
+	public int getFieldEnd(int field){
+		return fieldEnd[field];
+	}
+	
+	/**
+	 * Parses the specified field as an {@code int}.
+	 * @param field index of the field
+	 * @return the parsed value
+	 * @throws NumberFormatException if the field doesn't contain a valid integer
+	 */
+	public int getInt(int field){
+		return getInt(field, 0, fieldEnd[field] - fieldStart[field]);
+	}
+	
+	/**
+	 * Parses a part of the specified field as an {@code int}.
+	 * @param field index of the field
+	 * @param from offset of the first byte, relative to the field's start
+	 * @param to offset after the last byte, relative to the field's start
+	 * @return the parsed value
+	 * @throws NumberFormatException if the part doesn't contain a valid integer
+	 */
+	public int getInt(int field, int from, int to){
+		long value = parseLong(fieldStart[field] + from, fieldStart[field] + to);
+		if(value < Integer.MIN_VALUE || value > Integer.MAX_VALUE){
+			throw new NumberFormatException("Value out of range: " + value);
+		}
+		return (int) value;
+	}
+	
+	/**
+	 * Parses the specified field as a {@code long}.
+	 * @param field index of the field
+	 * @return the parsed value
+	 * @throws NumberFormatException if the field doesn't contain a valid integer
+	 */
+	public long getLong(int field){
+		return parseLong(fieldStart[field], fieldEnd[field]);
+	}
+	
+	/**
+	 * Parses the specified field as a {@code double}. Plain decimal numbers are parsed directly from the bytes,
+	 * while numbers in other notations (e.g. with an exponent) fall back to {@link Double#parseDouble(String)}.
+	 * @param field index of the field
+	 * @return the parsed value
+	 * @throws NumberFormatException if the field doesn't contain a valid number
+	 */
+	public double getDouble(int field){
+		int start = fieldStart[field];
+		int end = fieldEnd[field];
+		if(start == end){
+			throw new NumberFormatException("Empty field");
+		}
+		
+		int i = start;
+		boolean negative = buffer[i] == '-';
+		if(negative || buffer[i] == '+'){
+			i++;
+		}
+		
+		long mantissa = 0;
+		int digits = 0;
+		int scale = 0;
+		boolean point = false;
+		for(; i < end; i++){
+			byte b = buffer[i];
+			if(b >= '0' && b <= '9'){
+				if(digits >= 15){
+					return Double.parseDouble(getString(field));
+				}
+				mantissa = mantissa * 10 + (b - '0');
+				digits++;
+				if(point){
+					scale++;
+				}
+			} else if(b == '.' && !point){
+				point = true;
+			} else{
+				return Double.parseDouble(getString(field));
+			}
+		}
+		if(digits == 0){
+			throw new NumberFormatException("Invalid number: " + getString(field));
+		}
+		
+		double value = scale == 0 ? mantissa : mantissa / Math.pow(10, scale);
+		return negative ? -value : value;
+	}
+	
+	/**
+	 * Parses a range of the field buffer as a decimal {@code long}, with an optional sign.
+	 * @param start offset of the first byte
+	 * @param end offset after the last byte
+	 * @return the parsed value
+	 * @throws NumberFormatException if the range doesn't contain a valid integer
+	 */
+	private long parseLong(int start, int end){
+		if(start >= end){
+			throw new NumberFormatException("Empty field");
+		}
+		
+		int i = start;
+		boolean negative = buffer[i] == '-';
+		if(negative || buffer[i] == '+'){
+			i++;
+			if(i == end){
+				throw new NumberFormatException("Invalid number: " + new String(buffer, start, end - start, StandardCharsets.UTF_8));
+			}
+		}
+		
+		long value = 0;
+		for(; i < end; i++){
+			int digit = buffer[i] - '0';
+			if(digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10){
+				throw new NumberFormatException("Invalid number: " + new String(buffer, start, end - start, StandardCharsets.UTF_8));
+			}
+			value = value * 10 + digit;
+		}
+		return negative ? -value : value;
+	}
+}
\ No newline at end of file
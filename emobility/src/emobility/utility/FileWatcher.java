@@ -0,0 +1,94 @@
+package emobility.utility;
+
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ * Watches a single file for changes using a {@link WatchService} registered on the file's directory.
+ * <p>Whenever the file is created or modified, the callback is invoked on the watcher's own daemon thread.
+ * Several events which arrive together are reported with one call, so the callback should always check
+ * the current state of the file instead of counting calls.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public class FileWatcher implements Closeable{
+	/** The watched file. */
+	private Path file;
+	
+	/** Callback invoked when the file changes. */
+	private Runnable onChange;
+	
+	/** Watch service registered on the file's directory. */
+	private WatchService watchService;
+	
+	/** Thread waiting for the events. */
+	private Thread thread;
+	
+	/**
+	 * Constructs a {@code FileWatcher} for the specified file. Watching starts with {@link #start()}.
+	 * @param file the file to watch
+	 * @param onChange callback invoked when the file is created or modified
+	 */
+	public FileWatcher(Path file, Runnable onChange){
+		this.file = file.toAbsolutePath().normalize();
+		this.onChange = onChange;
+	}
+	
+	/**
+	 * Starts watching the file.
+	 * @throws IOException if the file's directory can't be watched
+	 */
+	public synchronized void start() throws IOException{
+		if(thread != null){
+			return;
+		}
+		
+		watchService = file.getFileSystem().newWatchService();
+		file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		
+		thread = new Thread(this::run, "FileWatcher-" + file.getFileName());
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/** Waits for events on the directory and invokes the callback for the ones concerning the watched file. */
+	private void run(){
+		try{
+			while(true){
+				WatchKey key = watchService.take();
+				boolean changed = false;
+				for(WatchEvent<?> event : key.pollEvents()){
+					if(event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())){
+						changed = true;
+					}
+				}
+				key.reset();
+				
+				if(changed){
+					try{
+						onChange.run();
+					} catch(RuntimeException e){
+						System.out.println("Error while handling change of " + file);
+						e.printStackTrace();
+					}
+				}
+			}
+		} catch(InterruptedException | ClosedWatchServiceException e){
+			// watcher was closed
+		}
+	}
+	
+	/**
+	 * Stops watching the file.
+	 * @throws IOException if the watch service can't be closed
+	 */
+	@Override
+	public synchronized void close() throws IOException{
+		if(thread != null){
+			thread.interrupt();
+			watchService.close();
+			thread = null;
+		}
+	}
+}
\ No newline at end of file
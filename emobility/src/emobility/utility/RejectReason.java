@@ -0,0 +1,52 @@
+package emobility.utility;
+
+/**
+ * Reasons for rejecting a row of an input CSV file, recorded by {@link RejectedRows}.
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public enum RejectReason{
+	/** The row doesn't have the expected number or layout of fields. */
+	MALFORMED_ROW("Data not formatted correctly"),
+	
+	/** A required field is empty. */
+	MISSING_FIELD("Required information missing"),
+	
+	/** The vehicle ID is empty or doesn't belong to a known vehicle. */
+	INVALID_ID("Invalid vehicle ID"),
+	
+	/** A date field can't be parsed. */
+	INVALID_DATE("Invalid date format"),
+	
+	/** A numeric field can't be parsed. */
+	INVALID_NUMBER("Invalid number format"),
+	
+	/** Coordinates are outside of the map. */
+	OUT_OF_BOUNDS("Coordinates out of bounds"),
+	
+	/** The vehicle type isn't known. */
+	UNKNOWN_TYPE("Unexpected type of vehicle"),
+	
+	/** The row repeats a vehicle or a rental which has already been read. */
+	DUPLICATE("Duplicate entry");
+	
+	/** Human-readable description of the reason. */
+	private final String description;
+	
+	/**
+	 * Constructs a {@code RejectReason} with the specified description.
+	 * @param description human-readable description of the reason
+	 */
+	RejectReason(String description){
+		this.description = description;
+	}
+	
+	/**
+	 * Gets the human-readable description of the reason.
+	 * @return reason's description
+	 */
+	public String getDescription(){
+		return description;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,279 @@
+package emobility.utility;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * Records rows of input CSV files which were rejected by the parsers.
+ * <p>Rejections are counted per {@link RejectReason}, and only a sample of them is printed to the console:
+ * the first few rows of each reason, followed by at most one line per second with the number of rows rejected
+ * since. Every rejected row is also written to a {@code rejected_rows.csv} file next to the file it came from,
+ * with its line number, reason code and details. The files are written by a background thread through buffered
+ * writers, so parsing threads never wait for the console or the disk while rejecting rows.
+ * The files are recreated the first time a row is rejected from their directory during a run of the application.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public class RejectedRows{
+	/** Name of the file with rejected rows, written next to the file the rows came from. */
+	public static final String FILE_NAME = "rejected_rows.csv";
+	
+	/** Header of the file with rejected rows. */
+	private static final String HEADER = "source,line,reason,detail,row";
+	
+	/** Number of rejected rows of each reason printed to the console before the rest is only summarized. */
+	private static final int SAMPLES_PER_REASON = 3;
+	
+	/** Minimum interval between two summaries of rejected rows printed to the console, in nanoseconds. */
+	private static final long LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+	
+	/** Maximum number of rejected rows waiting to be written. */
+	private static final int QUEUE_CAPACITY = 8192;
+	
+	/**
+	 * A rejected row of an input file.
+	 * @param source path of the file the row came from
+	 * @param line number of the row's line in the file, counting from 1
+	 * @param reason reason for rejecting the row
+	 * @param detail description of the problem
+	 * @param row raw text of the row
+	 */
+	public record Rejection(Path source, long line, RejectReason reason, String detail, String row){}
+	
+	/** Numbers of rejected rows by reason. */
+	private static final Map<RejectReason, LongAdder> counters = new EnumMap<>(RejectReason.class);
+	
+	/** Numbers of rejected rows by reason which were printed to the console. */
+	private static final Map<RejectReason, AtomicInteger> samples = new EnumMap<>(RejectReason.class);
+	
+	static{
+		for(RejectReason reason : RejectReason.values()){
+			counters.put(reason, new LongAdder());
+			samples.put(reason, new AtomicInteger());
+		}
+	}
+	
+	/** Number of rejected rows which weren't printed to the console since the last summary. */
+	private static LongAdder suppressed = new LongAdder();
+	
+	/** Time after which the next summary can be printed, as returned by {@link System#nanoTime()}. */
+	private static AtomicLong nextSummary = new AtomicLong(System.nanoTime());
+	
+	/** Queue of rejected rows waiting to be written, which also holds latches of flush requests. */
+	private static BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+	
+	/** Thread writing the rejected rows, or {@code null} until the first row is rejected. */
+	private static volatile Thread writer;
+	
+	/** Private constructor, as this class only provides static methods. */
+	private RejectedRows(){
+	}
+	
+	/**
+	 * Records a rejected row.
+	 * @param source path of the file the row came from
+	 * @param line number of the row's line in the file, counting from 1
+	 * @param reason reason for rejecting the row
+	 * @param detail description of the problem
+	 * @param row raw text of the row
+	 */
+	public static void reject(Path source, long line, RejectReason reason, String detail, String row){
+		Rejection rejection = new Rejection(source, line, reason, detail, row);
+		counters.get(reason).increment();
+		log(rejection);
+		if(writer == null){
+			startWriter();
+		}
+		try{
+			queue.put(rejection);
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Gets the number of rows rejected for the specified reason.
+	 * @param reason the reason
+	 * @return number of rejected rows
+	 */
+	public static long getCount(RejectReason reason){
+		return counters.get(reason).sum();
+	}
+	
+	/**
+	 * Gets the number of all rejected rows.
+	 * @return number of rejected rows
+	 */
+	public static long getTotal(){
+		long total = 0;
+		for(LongAdder counter : counters.values()){
+			total += counter.sum();
+		}
+		return total;
+	}
+	
+	/**
+	 * Prints the numbers of rows rejected so far by reason, if any rows were rejected.
+	 */
+	public static void printSummary(){
+		StringBuilder summary = new StringBuilder();
+		for(Map.Entry<RejectReason, LongAdder> counter : counters.entrySet()){
+			long count = counter.getValue().sum();
+			if(count > 0){
+				summary.append(summary.length() == 0 ? "" : ", ").append(counter.getKey()).append('=').append(count);
+			}
+		}
+		if(summary.length() > 0){
+			suppressed.reset();
+			System.out.println("Rejected rows: " + summary + " (details in " + FILE_NAME + ")");
+		}
+	}
+	
+	/**
+	 * Waits until all rows rejected so far have been written to the files.
+	 */
+	public static void flush(){
+		if(writer == null){
+			return;
+		}
+		CountDownLatch written = new CountDownLatch(1);
+		try{
+			queue.put(written);
+			written.await();
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Prints a rejected row if it's one of the first rows of its reason, otherwise counts it
+	 * and prints a summary if the previous one was printed long enough ago.
+	 * @param rejection the rejected row
+	 */
+	private static void log(Rejection rejection){
+		if(samples.get(rejection.reason()).getAndIncrement() < SAMPLES_PER_REASON){
+			System.out.println(rejection.detail() + " (" + rejection.source().getFileName() + ", line " + rejection.line() + ")");
+			return;
+		}
+		
+		suppressed.increment();
+		long now = System.nanoTime();
+		long next = nextSummary.get();
+		if(now - next >= 0 && nextSummary.compareAndSet(next, now + LOG_INTERVAL_NANOS)){
+			System.out.println(suppressed.sumThenReset() + " more rows rejected, see " + FILE_NAME + " next to " + rejection.source().getFileName() + ".");
+		}
+	}
+	
+	/**
+	 * Starts the thread writing the rejected rows, unless it's already running.
+	 * Rows still waiting to be written when the application exits are written by a shutdown hook.
+	 */
+	private static synchronized void startWriter(){
+		if(writer != null){
+			return;
+		}
+		writer = new Thread(RejectedRows::run, "RejectedRows");
+		writer.setDaemon(true);
+		writer.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(RejectedRows::flush));
+	}
+	
+	/** Takes rejected rows from the queue and writes them to the files next to their sources. */
+	private static void run(){
+		Map<Path, BufferedWriter> files = new HashMap<>();
+		List<Object> batch = new ArrayList<>();
+		try{
+			while(true){
+				batch.add(queue.take());
+				queue.drainTo(batch);
+				for(Object entry : batch){
+					if(entry instanceof Rejection rejection){
+						write(files, rejection);
+					} else{
+						flushAll(files);
+						((CountDownLatch) entry).countDown();
+					}
+				}
+				batch.clear();
+				if(queue.isEmpty()){
+					flushAll(files);
+				}
+			}
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Writes a rejected row to the file next to its source, creating the file the first time.
+	 * If the file can't be created, rows of its directory are only counted.
+	 * @param files open files by their paths, with {@code null} for files which couldn't be created
+	 * @param rejection the rejected row
+	 */
+	private static void write(Map<Path, BufferedWriter> files, Rejection rejection){
+		Path file = rejection.source().toAbsolutePath().resolveSibling(FILE_NAME);
+		try{
+			if(!files.containsKey(file)){
+				files.put(file, null);
+				BufferedWriter created = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+				created.write(HEADER);
+				created.newLine();
+				files.put(file, created);
+			}
+			BufferedWriter out = files.get(file);
+			if(out == null){
+				return;
+			}
+			out.write(escape(rejection.source().getFileName().toString()));
+			out.write(',');
+			out.write(Long.toString(rejection.line()));
+			out.write(',');
+			out.write(rejection.reason().name());
+			out.write(',');
+			out.write(escape(rejection.detail()));
+			out.write(',');
+			out.write(escape(rejection.row()));
+			out.newLine();
+		} catch(IOException e){
+			System.out.println("Rejected row couldn't be written to " + file);
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Flushes all open files.
+	 * @param files open files by their paths
+	 */
+	private static void flushAll(Map<Path, BufferedWriter> files){
+		for(BufferedWriter out : files.values()){
+			if(out == null){
+				continue;
+			}
+			try{
+				out.flush();
+			} catch(IOException e){
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * Escapes a value for a CSV field, quoting it if it contains separators, quotes or line breaks.
+	 * @param value the value
+	 * @return the escaped value
+	 */
+	private static String escape(String value){
+		if(value == null){
+			return "";
+		}
+		if(value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0){
+			return value;
+		}
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+}
\ No newline at end of file
@@ -0,0 +1,244 @@
+package emobility.utility;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32C;
+
+/**
+ * Utility class for versioned binary snapshots of parsed data, stored next to the source files they were created from.
+ * <p>Every snapshot starts with a header containing a magic number, a format version and a stamp (size, modification time
+ * and CRC32C checksum) of each source file. A snapshot is only used if all stamps still match the source files, so any
+ * change of a source file makes the application parse it again. The stamps are taken before the sources are read, so
+ * a source which changes while it's being parsed leaves a stale snapshot rather than one which claims rows it doesn't
+ * contain. Snapshots are written to a temporary file which is then moved in place, so a reader never sees a partially
+ * written snapshot, and the temporary file is deleted if the snapshot can't be written.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public class SnapshotFile{
+	/** Extension appended to the source file's name to get the snapshot's name. */
+	public static final String EXTENSION = ".snapshot";
+	
+	/** Size of the regions mapped while computing checksums. */
+	private static final long CHECKSUM_REGION_SIZE = 1L << 28;
+	
+	/**
+	 * Writes the body of a snapshot.
+	 */
+	@FunctionalInterface
+	public interface BodyWriter{
+		/**
+		 * Writes the snapshot's content after the header.
+		 * @param out stream to write to
+		 * @throws IOException if writing fails
+		 */
+		void write(DataOutputStream out) throws IOException;
+	}
+	
+	/** Private constructor, as this class only provides static methods. */
+	private SnapshotFile(){
+	}
+	
+	/**
+	 * Returns the path of the snapshot belonging to the specified source file.
+	 * @param sourcePath path of the source file
+	 * @return path of the snapshot
+	 */
+	public static Path snapshotPath(String sourcePath){
+		return Paths.get(sourcePath + EXTENSION);
+	}
+	
+	/**
+	 * Reads the stamps of the source files: size, modification time and checksum of each of them.
+	 * Must be called before the sources are read.
+	 * @param sources source files the snapshot depends on
+	 * @return three values per source, in the order of the sources
+	 * @throws IOException if a source file can't be read
+	 */
+	public static long[] stamp(List<Path> sources) throws IOException{
+		long[] stamps = new long[sources.size() * 3];
+		for(int i = 0; i < sources.size(); i++){
+			Path source = sources.get(i);
+			stamps[3 * i] = Files.size(source);
+			stamps[3 * i + 1] = Files.getLastModifiedTime(source).toMillis();
+			stamps[3 * i + 2] = checksum(source);
+		}
+		return stamps;
+	}
+	
+	/**
+	 * Writes a snapshot with the specified header and body.
+	 * @param snapshot path of the snapshot
+	 * @param magic magic number identifying the kind of snapshot
+	 * @param version format version
+	 * @param stamps stamps of the source files, taken by {@link #stamp(List)} before they were read
+	 * @param body writer of the snapshot's body
+	 * @throws IOException if the snapshot can't be written
+	 */
+	public static void write(Path snapshot, int magic, int version, long[] stamps, BodyWriter body) throws IOException{
+		Path temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+		try{
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))){
+				out.writeInt(magic);
+				out.writeInt(version);
+				out.writeInt(stamps.length / 3);
+				for(long stamp : stamps){
+					out.writeLong(stamp);
+				}
+				body.write(out);
+			}
+			try{
+				Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch(AtomicMoveNotSupportedException e){
+				Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch(IOException | RuntimeException e){
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Memory-maps a snapshot, if it exists and is up to date with all of its source files.
+	 * @param snapshot path of the snapshot
+	 * @param magic expected magic number
+	 * @param version expected format version
+	 * @param sources source files the snapshot depends on
+	 * @return buffer positioned right after the header, or {@code null} if the snapshot is missing or stale
+	 * @throws IOException if the snapshot or a source file can't be read
+	 */
+	public static ByteBuffer open(Path snapshot, int magic, int version, List<Path> sources) throws IOException{
+		if(!Files.isRegularFile(snapshot)){
+			return null;
+		}
+		
+		ByteBuffer buffer;
+		try(FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)){
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		
+		if(buffer.remaining() < 12 || buffer.getInt() != magic || buffer.getInt() != version || buffer.getInt() != sources.size()){
+			return null;
+		}
+		if(buffer.remaining() < sources.size() * 24L){
+			return null;
+		}
+		
+		long[] stamps = new long[sources.size() * 3];
+		for(int i = 0; i < stamps.length; i++){
+			stamps[i] = buffer.getLong();
+		}
+		// checking sizes and modification times first, as they are much cheaper than checksums
+		for(int i = 0; i < sources.size(); i++){
+			Path source = sources.get(i);
+			if(Files.size(source) != stamps[3 * i] || Files.getLastModifiedTime(source).toMillis() != stamps[3 * i + 1]){
+				return null;
+			}
+		}
+		for(int i = 0; i < sources.size(); i++){
+			if(checksum(sources.get(i)) != stamps[3 * i + 2]){
+				return null;
+			}
+		}
+		
+		return buffer;
+	}
+	
+	/**
+	 * Computes the CRC32C checksum of a file.
+	 * @param path path of the file
+	 * @return the checksum
+	 * @throws IOException if the file can't be read
+	 */
+	public static long checksum(Path path) throws IOException{
+		CRC32C crc = new CRC32C();
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+			long size = channel.size();
+			for(long position = 0; position < size; position += CHECKSUM_REGION_SIZE){
+				crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(CHECKSUM_REGION_SIZE, size - position)));
+			}
+		}
+		return crc.getValue();
+	}
+	
+	/**
+	 * Writes a table of strings, each one as a length followed by its UTF-8 bytes.
+	 * @param out stream to write to
+	 * @param strings strings to write
+	 * @throws IOException if writing fails
+	 */
+	public static void writeStrings(DataOutputStream out, List<String> strings) throws IOException{
+		out.writeInt(strings.size());
+		for(String string : strings){
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+	
+	/**
+	 * Reads a table of strings written by {@link #writeStrings(DataOutputStream, List)}.
+	 * @param buffer buffer positioned at the start of the table
+	 * @return the strings, in the order they were written
+	 */
+	public static String[] readStrings(ByteBuffer buffer){
+		String[] strings = new String[buffer.getInt()];
+		for(int i = 0; i < strings.length; i++){
+			byte[] bytes = new byte[buffer.getInt()];
+			buffer.get(bytes);
+			strings[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return strings;
+	}
+	
+	/**
+	 * Returns a column of the specified length starting at the buffer's position, and moves the position past it.
+	 * @param buffer buffer positioned at the start of the column
+	 * @param length length of the column, in bytes
+	 * @return a buffer containing only the column
+	 */
+	public static ByteBuffer column(ByteBuffer buffer, int length){
+		ByteBuffer column = buffer.slice(buffer.position(), length);
+		buffer.position(buffer.position() + length);
+		return column;
+	}
+	
+	/**
+	 * Helper for building a table of interned strings, where each distinct string gets a dense index.
+	 */
+	public static class StringTable{
+		/** Indexes of the strings added so far. */
+		private Map<String,Integer> indexes = new HashMap<>();
+		
+		/** Distinct strings, in the order they were added. */
+		private List<String> strings = new ArrayList<>();
+		
+		/**
+		 * Returns the index of a string, adding it to the table if needed.
+		 * @param string string to intern
+		 * @return index of the string
+		 */
+		public int intern(String string){
+			Integer index = indexes.get(string);
+			if(index == null){
+				index = strings.size();
+				indexes.put(string, index);
+				strings.add(string);
+			}
+			return index;
+		}
+		
+		/**
+		 * Returns all distinct strings in the table.
+		 * @return a list of strings, ordered by their indexes
+		 */
+		public List<String> getStrings(){
+			return strings;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,292 @@
+package emobility.utility;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.text.ParseException;
+import java.nio.charset.StandardCharsets;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import java.time.temporal.*;
+import java.time.zone.ZoneRules;
+
+/**
+ * Thread-safe parsing and formatting of timestamps used in rental, vehicle and bill files.
+ * <p>Timestamps in the fixed {@code d.M.yyyy HH:mm} (rentals and bills) and {@code d.M.yyyy.} (purchase dates) layouts
+ * are parsed by a hand-written fast path, directly from characters or bytes, without creating any formatter objects.
+ * Anything else falls back to a {@link DateTimeFormatter}, which is created once per pattern and cached.
+ * The fallback resolves dates strictly, so an impossible date such as {@code 31.2.2024} is rejected by both paths
+ * instead of being adjusted to the last day of the month; its patterns therefore write years as {@code uuuu}.
+ * All values are returned as milliseconds since the epoch, interpreted in the system's default time zone,
+ * the same way {@link java.text.SimpleDateFormat} interprets them.</p>
+ * <p>The class holds no mutable state, so it can be used from any number of threads at once.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public class TimestampCodec{
+	/** Layout of rental and bill dates and times. */
+	public static final String DATE_TIME_PATTERN = "d.M.uuuu H:mm";
+	
+	/** Layout of vehicles' purchase dates. */
+	public static final String DATE_PATTERN = "d.M.uuuu.";
+	
+	/** Cache of formatters created for the fallback path, keyed by their patterns. */
+	private static final Map<String, DateTimeFormatter> formatters = new ConcurrentHashMap<>();
+	
+	/** Time zone in which the timestamps are interpreted. */
+	private static final ZoneId zone = ZoneId.systemDefault();
+	
+	/** Rules of the time zone, used to resolve offsets. */
+	private static final ZoneRules rules = zone.getRules();
+	
+	/** Offset in seconds if the time zone has a fixed offset, otherwise {@code null}. */
+	private static final Integer fixedOffsetSeconds = rules.isFixedOffset() ? rules.getOffset(Instant.EPOCH).getTotalSeconds() : null;
+	
+	/** Private constructor, as this class only provides static methods. */
+	private TimestampCodec(){
+	}
+	
+	/**
+	 * Parses a date and time in the {@code d.M.yyyy HH:mm} layout (e.g. {@code 1.6.2024 09:00}).
+	 * @param text text to parse
+	 * @return milliseconds since the epoch
+	 * @throws ParseException if the text is not a valid date and time
+	 */
+	public static long parseDateTime(CharSequence text) throws ParseException{
+		long value = parseFast(text, 0, text.length(), true);
+		return value != Long.MIN_VALUE ? value : parse(text.toString(), DATE_TIME_PATTERN);
+	}
+	
+	/**
+	 * Parses a date and time in the {@code d.M.yyyy HH:mm} layout directly from ASCII bytes.
+	 * @param bytes buffer containing the text
+	 * @param start offset of the first byte
+	 * @param end offset after the last byte
+	 * @return milliseconds since the epoch
+	 * @throws ParseException if the bytes are not a valid date and time
+	 */
+	public static long parseDateTime(byte[] bytes, int start, int end) throws ParseException{
+		long value = parseFast(new AsciiSequence(bytes, start, end), 0, end - start, true);
+		return value != Long.MIN_VALUE ? value : parse(new String(bytes, start, end - start, StandardCharsets.UTF_8), DATE_TIME_PATTERN);
+	}
+	
+	/**
+	 * Parses a date in the {@code d.M.yyyy.} layout (e.g. {@code 1.5.2024.}), at midnight.
+	 * @param text text to parse
+	 * @return milliseconds since the epoch
+	 * @throws ParseException if the text is not a valid date
+	 */
+	public static long parseDate(CharSequence text) throws ParseException{
+		long value = parseFast(text, 0, text.length(), false);
+		return value != Long.MIN_VALUE ? value : parse(text.toString(), DATE_PATTERN);
+	}
+	
+	/**
+	 * Parses a timestamp with an arbitrary pattern, using a cached {@link DateTimeFormatter}.
+	 * Patterns without a time component are resolved to midnight. Dates are resolved strictly,
+	 * so years must be written as {@code uuuu} rather than {@code yyyy}, which would also require an era.
+	 * @param text text to parse
+	 * @param pattern pattern in {@link DateTimeFormatter} syntax
+	 * @return milliseconds since the epoch
+	 * @throws ParseException if the text doesn't match the pattern or isn't a valid date
+	 */
+	public static long parse(String text, String pattern) throws ParseException{
+		try{
+			TemporalAccessor parsed = formatter(pattern).parse(text.trim());
+			LocalDate date = LocalDate.from(parsed);
+			LocalTime time = parsed.isSupported(ChronoField.HOUR_OF_DAY) ? LocalTime.from(parsed) : LocalTime.MIDNIGHT;
+			return date.atTime(time).atZone(zone).toInstant().toEpochMilli();
+		} catch(DateTimeException e){
+			ParseException exception = new ParseException("Unparseable date: \"" + text + "\"", 0);
+			exception.initCause(e);
+			throw exception;
+		}
+	}
+	
+	/**
+	 * Formats a timestamp with the specified pattern, using a cached {@link DateTimeFormatter}.
+	 * @param epochMillis milliseconds since the epoch
+	 * @param pattern pattern in {@link DateTimeFormatter} syntax
+	 * @return formatted timestamp
+	 */
+	public static String format(long epochMillis, String pattern){
+		return formatter(pattern).format(Instant.ofEpochMilli(epochMillis).atZone(zone));
+	}
+	
+	/**
+	 * Returns the cached formatter for the specified pattern, creating it if needed.
+	 * @param pattern pattern in {@link DateTimeFormatter} syntax
+	 * @return formatter for the pattern, resolving dates strictly
+	 */
+	private static DateTimeFormatter formatter(String pattern){
+		return formatters.computeIfAbsent(pattern, key -> DateTimeFormatter.ofPattern(key).withResolverStyle(ResolverStyle.STRICT));
+	}
+	
+	/**
+	 * Parses {@code d.M.yyyy HH:mm} or {@code d.M.yyyy.} character by character, without a formatter.
+	 * Leading and trailing spaces are ignored; days, months and hours may have one or two digits.
+	 * @param text text to parse
+	 * @param start index of the first character
+	 * @param end index after the last character
+	 * @param withTime {@code true} for the date and time layout, {@code false} for the date-only layout
+	 * @return milliseconds since the epoch, or {@link Long#MIN_VALUE} if the text doesn't match the layout
+	 */
+	private static long parseFast(CharSequence text, int start, int end, boolean withTime){
+		while(start < end && text.charAt(start) == ' ')
+			start++;
+		while(end > start && text.charAt(end - 1) == ' ')
+			end--;
+		
+		int[] position = {start};
+		int day = readNumber(text, position, end, 1, 2);
+		if(day < 0 || !expect(text, position, end, '.'))
+			return Long.MIN_VALUE;
+		int month = readNumber(text, position, end, 1, 2);
+		if(month < 0 || !expect(text, position, end, '.'))
+			return Long.MIN_VALUE;
+		int year = readNumber(text, position, end, 4, 4);
+		if(year < 0)
+			return Long.MIN_VALUE;
+		
+		int hour = 0;
+		int minute = 0;
+		if(withTime){
+			if(!expect(text, position, end, ' '))
+				return Long.MIN_VALUE;
+			hour = readNumber(text, position, end, 1, 2);
+			if(hour < 0 || !expect(text, position, end, ':'))
+				return Long.MIN_VALUE;
+			minute = readNumber(text, position, end, 2, 2);
+			if(minute < 0)
+				return Long.MIN_VALUE;
+		} else if(!expect(text, position, end, '.')){
+			return Long.MIN_VALUE;
+		}
+		
+		if(position[0] != end || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month) || hour > 23 || minute > 59)
+			return Long.MIN_VALUE;
+		
+		return toEpochMillis(year, month, day, hour, minute);
+	}
+	
+	/**
+	 * Reads a decimal number with the specified number of digits.
+	 * @param text text being parsed
+	 * @param position single-element array holding the current index, advanced past the number
+	 * @param end index after the last character
+	 * @param minDigits minimum number of digits
+	 * @param maxDigits maximum number of digits
+	 * @return the number, or {@code -1} if there aren't enough digits
+	 */
+	private static int readNumber(CharSequence text, int[] position, int end, int minDigits, int maxDigits){
+		int value = 0;
+		int digits = 0;
+		int i = position[0];
+		while(i < end && digits < maxDigits){
+			char c = text.charAt(i);
+			if(c < '0' || c > '9')
+				break;
+			value = value * 10 + (c - '0');
+			digits++;
+			i++;
+		}
+		position[0] = i;
+		return digits >= minDigits ? value : -1;
+	}
+	
+	/**
+	 * Consumes the expected character.
+	 * @param text text being parsed
+	 * @param position single-element array holding the current index, advanced past the character
+	 * @param end index after the last character
+	 * @param expected expected character
+	 * @return {@code true} if the character was found, otherwise {@code false}
+	 */
+	private static boolean expect(CharSequence text, int[] position, int end, char expected){
+		if(position[0] < end && text.charAt(position[0]) == expected){
+			position[0]++;
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns the number of days in a month of the proleptic Gregorian calendar.
+	 * @param year year
+	 * @param month month, from 1 to 12
+	 * @return number of days
+	 */
+	private static int daysInMonth(int year, int month){
+		switch(month){
+			case 2:
+				boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+				return leap ? 29 : 28;
+			case 4: case 6: case 9: case 11:
+				return 30;
+			default:
+				return 31;
+		}
+	}
+	
+	/**
+	 * Converts a local date and time in the codec's time zone to milliseconds since the epoch.
+	 * @param year year
+	 * @param month month, from 1 to 12
+	 * @param day day of the month
+	 * @param hour hour of the day
+	 * @param minute minute of the hour
+	 * @return milliseconds since the epoch
+	 */
+	private static long toEpochMillis(int year, int month, int day, int hour, int minute){
+		if(fixedOffsetSeconds != null){
+			long localSeconds = epochDay(year, month, day) * 86400L + hour * 3600L + minute * 60L;
+			return (localSeconds - fixedOffsetSeconds) * 1000L;
+		}
+		return LocalDateTime.of(year, month, day, hour, minute).atZone(zone).toInstant().toEpochMilli();
+	}
+	
+	/**
+	 * Computes the number of days since 1970-01-01 for a date of the proleptic Gregorian calendar.
+	 * @param year year
+	 * @param month month, from 1 to 12
+	 * @param day day of the month
+	 * @return epoch day
+	 */
+	private static long epochDay(int year, int month, int day){
+		long y = month <= 2 ? year - 1 : year;
+		long era = Math.floorDiv(y, 400);
+		long yearOfEra = y - era * 400;
+		long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+	
+	/**
+	 * Read-only view of ASCII bytes as a {@link CharSequence}, so the fast path can parse bytes without decoding them.
+	 * @param bytes buffer containing the text
+	 * @param start offset of the first byte
+	 * @param end offset after the last byte
+	 */
+	private record AsciiSequence(byte[] bytes, int start, int end) implements CharSequence{
+		@Override
+		public int length(){
+			return end - start;
+		}
+		
+		@Override
+		public char charAt(int index){
+			return (char) (bytes[start + index] & 0xFF);
+		}
+		
+		@Override
+		public CharSequence subSequence(int from, int to){
+			return new AsciiSequence(bytes, start + from, start + to);
+		}
+		
+		@Override
+		public String toString(){
+			return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,202 @@
+package emobility.utility;
+
+import java.util.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * Grid of the city and the pricing zones its cells belong to, shared by parsing, pricing and rendering.
+ * <p>The map is read from the main configuration: {@code MAP_GRID_SIZE} is the number of rows and columns,
+ * {@code MAP_ZONES} lists the names of the zones, and {@code MAP_ZONE_<NAME>} lists the rectangles of a zone
+ * as {@code x1,y1,x2,y2} corners, separated by {@code ;}. A zone without rectangles covers all cells which
+ * aren't in any other zone, and rectangles of zones listed later are laid over the earlier ones.
+ * Zones are listed by priority: a rental which starts and ends in different zones belongs to the one listed first.</p>
+ * <p>The zone of every cell is precomputed into a dense table, so looking up a cell's zone is a single array read.
+ * The map is read once, when it's first used, like the other values used at startup.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public final class ZoneMap{
+	/** Grid size used if the configuration doesn't specify one. */
+	public static final int DEFAULT_GRID_SIZE = 20;
+	
+	/** Zones used if the configuration doesn't specify any, with their rectangles. */
+	private static final String[][] DEFAULT_ZONES = {{"wide", ""}, {"narrow", "5,5,14,14"}};
+	
+	/** The map read from the configuration, or {@code null} until it's first used. */
+	private static volatile ZoneMap zoneMap;
+	
+	/** The number of rows and columns of the grid. */
+	private final int gridSize;
+	
+	/** Names of the zones, by zone index. */
+	private final String[] zoneNames;
+	
+	/** Zone index of each cell, indexed by {@code x * gridSize + y}. */
+	private final byte[] zones;
+	
+	/**
+	 * Constructs a {@code ZoneMap} with the specified zones.
+	 * @param gridSize the number of rows and columns of the grid
+	 * @param zoneNames names of the zones, by priority
+	 * @param zoneRectangles rectangles of each zone, in the same order as the names, each as {@code x1,y1,x2,y2} corners
+	 * separated by {@code ;}, or an empty string for the zone covering the rest of the grid
+	 */
+	public ZoneMap(int gridSize, List<String> zoneNames, List<String> zoneRectangles){
+		if(zoneNames.isEmpty() || zoneNames.size() > Byte.MAX_VALUE){
+			throw new IllegalArgumentException("A zone map needs between 1 and " + Byte.MAX_VALUE + " zones.");
+		}
+		this.gridSize = gridSize;
+		this.zoneNames = zoneNames.toArray(new String[0]);
+		this.zones = new byte[gridSize * gridSize];
+		
+		int defaultZone = Math.max(0, zoneRectangles.indexOf(""));
+		Arrays.fill(zones, (byte) defaultZone);
+		for(int zone = 0; zone < zoneRectangles.size(); zone++){
+			if(zoneRectangles.get(zone).isBlank()){
+				continue;
+			}
+			for(String rectangle : zoneRectangles.get(zone).split(";")){
+				fill(rectangle.trim(), (byte) zone);
+			}
+		}
+	}
+	
+	/**
+	 * Gets the zone map read from the main configuration, reading it the first time.
+	 * @return the shared {@code ZoneMap}
+	 */
+	public static ZoneMap get(){
+		ZoneMap map = zoneMap;
+		if(map == null){
+			synchronized(ZoneMap.class){
+				map = zoneMap;
+				if(map == null){
+					map = fromConfig(ConfigService.config());
+					zoneMap = map;
+				}
+			}
+		}
+		return map;
+	}
+	
+	/**
+	 * Reads a zone map from a configuration, using the default 20x20 grid with a narrow center and
+	 * a wide border for the values which aren't specified.
+	 * @param config the configuration
+	 * @return the {@code ZoneMap}
+	 */
+	public static ZoneMap fromConfig(ConfigSnapshot config){
+		int gridSize = config.getInteger("MAP_GRID_SIZE", DEFAULT_GRID_SIZE);
+		List<String> names = new ArrayList<>();
+		List<String> rectangles = new ArrayList<>();
+		String zones = config.getString("MAP_ZONES");
+		if(zones == null || zones.isBlank()){
+			for(String[] zone : DEFAULT_ZONES){
+				names.add(zone[0]);
+				rectangles.add(zone[1]);
+			}
+		} else{
+			for(String zone : zones.split(",")){
+				String name = zone.trim();
+				names.add(name);
+				rectangles.add(config.getString("MAP_ZONE_" + name.toUpperCase(), "").trim());
+			}
+		}
+		return new ZoneMap(gridSize, names, rectangles);
+	}
+	
+	/**
+	 * Assigns the cells of a rectangle to a zone. Parts of the rectangle outside of the grid are ignored.
+	 * @param rectangle corners of the rectangle as {@code x1,y1,x2,y2}, inclusive
+	 * @param zone index of the zone
+	 */
+	private void fill(String rectangle, byte zone){
+		String[] corners = rectangle.split(",");
+		if(corners.length != 4){
+			throw new IllegalArgumentException("Zone rectangle not formatted correctly: " + rectangle);
+		}
+		int x1 = Integer.parseInt(corners[0].trim());
+		int y1 = Integer.parseInt(corners[1].trim());
+		int x2 = Integer.parseInt(corners[2].trim());
+		int y2 = Integer.parseInt(corners[3].trim());
+		for(int x = Math.max(0, Math.min(x1, x2)); x <= Math.min(gridSize - 1, Math.max(x1, x2)); x++){
+			Arrays.fill(zones, x * gridSize + Math.max(0, Math.min(y1, y2)), x * gridSize + Math.min(gridSize - 1, Math.max(y1, y2)) + 1, zone);
+		}
+	}
+	
+	/**
+	 * Gets the number of rows and columns of the grid.
+	 * @return the size of the grid
+	 */
+	public int getGridSize(){
+		return gridSize;
+	}
+	
+	/**
+	 * Computes a checksum of the grid size, the names of the zones and the zone of every cell,
+	 * used to recognize data which was derived from a different map.
+	 * @return checksum of the map
+	 */
+	public long checksum(){
+		CRC32C checksum = new CRC32C();
+		checksum.update(ByteBuffer.allocate(8).putInt(gridSize).putInt(zoneNames.length).flip());
+		for(String zoneName : zoneNames){
+			checksum.update(zoneName.getBytes(StandardCharsets.UTF_8));
+			checksum.update(0);
+		}
+		checksum.update(zones);
+		return checksum.getValue();
+	}
+	
+	/**
+	 * Gets the number of zones.
+	 * @return number of zones
+	 */
+	public int getZoneCount(){
+		return zoneNames.length;
+	}
+	
+	/**
+	 * Gets the name of a zone.
+	 * @param zone index of the zone
+	 * @return zone's name
+	 */
+	public String getZoneName(int zone){
+		return zoneNames[zone];
+	}
+	
+	/**
+	 * Checks whether a position is on the grid.
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 * @return {@code true} if the position is on the grid, otherwise {@code false}
+	 */
+	public boolean contains(int x, int y){
+		return x >= 0 && x < gridSize && y >= 0 && y < gridSize;
+	}
+	
+	/**
+	 * Gets the zone of a cell.
+	 * @param x x-coordinate of the cell, which must be on the grid
+	 * @param y y-coordinate of the cell, which must be on the grid
+	 * @return index of the cell's zone
+	 */
+	public int getZone(int x, int y){
+		return zones[x * gridSize + y];
+	}
+	
+	/**
+	 * Gets the zone of a rental: the zone listed first among the zones of its start and goal location.
+	 * @param startX x-coordinate of the start location
+	 * @param startY y-coordinate of the start location
+	 * @param goalX x-coordinate of the goal location
+	 * @param goalY y-coordinate of the goal location
+	 * @return index of the rental's zone
+	 */
+	public int getRentalZone(int startX, int startY, int goalX, int goalY){
+		return Math.min(getZone(startX, startY), getZone(goalX, goalY));
+	}
+}
\ No newline at end of file
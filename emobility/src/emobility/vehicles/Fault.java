@@ -21,6 +21,9 @@ public class Fault implements Serializable{
 	/** The date and time of the rental in which the fault occurred. */
 	private Date dateTime;
 	
+	/** Seed from which the fault stream of each vehicle is derived. */
+	private static volatile long masterSeed = new SplittableRandom().nextLong();
+	
 	/**
 	 * Enum representing fault descriptions that could possibly occur in a vehicle.
 	 */
@@ -49,13 +52,46 @@ public class Fault implements Serializable{
 		this.dateTime = dateTime;
 	}
 	
+	/**
+	 * Sets the seed from which the fault streams of vehicles are derived. With the same seed, each vehicle's
+	 * faults get the same descriptions in every run, regardless of the order in which vehicles register them.
+	 * Only affects vehicles which haven't registered a fault yet.
+	 * @param seed the master seed
+	 */
+	public static void setMasterSeed(long seed){
+		masterSeed = seed;
+	}
+	
+	/**
+	 * Gets the seed from which the fault streams of vehicles are derived.
+	 * @return the master seed, chosen randomly unless it has been set
+	 */
+	public static long getMasterSeed(){
+		return masterSeed;
+	}
+	
+	/**
+	 * Creates the stream of random numbers used for the faults of a vehicle. The stream only depends on the
+	 * master seed and the vehicle's ID, so it's the same no matter which vehicles registered faults before.
+	 * @param vehicleID vehicle's ID
+	 * @return a new random number generator for the vehicle's faults
+	 */
+	public static SplittableRandom newFaultStream(String vehicleID){
+		long hash = 1125899906842597L;
+		for(int i = 0; i < vehicleID.length(); i++){
+			hash = 31 * hash + vehicleID.charAt(i);
+		}
+		return new SplittableRandom(masterSeed ^ hash * 0x9E3779B97F4A7C15L);
+	}
+	
 	/**
 	 * Generates a random fault description from the available {@link FaultDescription} enum values.
+	 * @param random vehicle's fault stream, see {@link #newFaultStream(String)}
 	 * @return a randomly selected fault description as a string
 	 */
-	public static String getRandomFaultDescription(){
+	public static String getRandomFaultDescription(SplittableRandom random){
 		FaultDescription descriptions[] = FaultDescription.values();
-		Integer randomIndex = new Random().nextInt(descriptions.length);
+		Integer randomIndex = random.nextInt(descriptions.length);
 		return descriptions[randomIndex].name().replace("_"," ").toLowerCase();
 	}
 	
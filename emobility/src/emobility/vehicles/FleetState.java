@@ -0,0 +1,255 @@
+package emobility.vehicles;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.*;
+
+/**
+ * Current battery level, position and status of every vehicle in the fleet, shared between the simulation
+ * and its readers, such as the user interface and the reports.
+ * <p>The state is kept in primitive arrays, one per attribute, indexed by a dense vehicle number which is
+ * assigned when the vehicle is registered. Each vehicle has a version which is odd while its state is being
+ * updated. Writers claim the version with an atomic compare-and-set and publish the new state by releasing
+ * the next even version, so updates of the same vehicle from different threads never interleave.
+ * Readers never lock: they read the state between two reads of the version, and read again if it changed,
+ * so a read never mixes the battery level of one update with the position of another.</p>
+ * <p>Vehicles are added while they are parsed, before the state is shared with other threads; only their
+ * state changes afterwards.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public final class FleetState{
+	/**
+	 * Defines the status of a vehicle.
+	 */
+	public enum Status{
+		/** The vehicle isn't rented. */
+		AVAILABLE,
+		
+		/** The vehicle is moving during a rental. */
+		MOVING,
+		
+		/** The vehicle stopped during a rental because of a fault. */
+		FAULTY,
+		
+		/** The rental is over, and the vehicle is being returned and charged. */
+		CHARGING
+	}
+	
+	/**
+	 * State of one vehicle, read at once.
+	 * @param batteryLevel vehicle's battery level, as a percentage
+	 * @param x x-coordinate of vehicle's position, or -1 if it hasn't been rented yet
+	 * @param y y-coordinate of vehicle's position, or -1 if it hasn't been rented yet
+	 * @param status vehicle's status
+	 */
+	public record Entry(Integer batteryLevel, Integer x, Integer y, Status status){}
+	
+	/** Position of a vehicle which hasn't been rented yet. */
+	public static final int UNKNOWN_POSITION = -1;
+	
+	/** Number of vehicles the arrays are created for. */
+	private static final int INITIAL_CAPACITY = 64;
+	
+	/** Access to the elements of the state arrays. */
+	private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+	
+	/** Access to the elements of the version array. */
+	private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+	
+	/** All statuses, by ordinal. */
+	private static final Status[] STATUSES = Status.values();
+	
+	/** Number of vehicles in the table. */
+	private volatile int size;
+	
+	/** Version of each vehicle's state, odd while it's being updated. */
+	private long[] versions;
+	
+	/** Battery level of each vehicle. */
+	private int[] batteryLevels;
+	
+	/** X-coordinate of each vehicle. */
+	private int[] xs;
+	
+	/** Y-coordinate of each vehicle. */
+	private int[] ys;
+	
+	/** Ordinal of each vehicle's {@link Status}. */
+	private int[] statuses;
+	
+	/** Constructs an empty {@code FleetState}. */
+	public FleetState(){
+		this.versions = new long[INITIAL_CAPACITY];
+		this.batteryLevels = new int[INITIAL_CAPACITY];
+		this.xs = new int[INITIAL_CAPACITY];
+		this.ys = new int[INITIAL_CAPACITY];
+		this.statuses = new int[INITIAL_CAPACITY];
+	}
+	
+	/**
+	 * Adds a vehicle, available and without a position.
+	 * @param batteryLevel vehicle's initial battery level
+	 * @return vehicle's number in the table
+	 */
+	synchronized int add(Integer batteryLevel){
+		int number = size;
+		if(number == versions.length){
+			int capacity = number * 2;
+			versions = Arrays.copyOf(versions, capacity);
+			batteryLevels = Arrays.copyOf(batteryLevels, capacity);
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			statuses = Arrays.copyOf(statuses, capacity);
+		}
+		batteryLevels[number] = batteryLevel == null ? 0 : batteryLevel;
+		xs[number] = UNKNOWN_POSITION;
+		ys[number] = UNKNOWN_POSITION;
+		statuses[number] = Status.AVAILABLE.ordinal();
+		size = number + 1;
+		return number;
+	}
+	
+	/**
+	 * Gets the number of vehicles in the table.
+	 * @return number of vehicles
+	 */
+	public int size(){
+		return size;
+	}
+	
+	/**
+	 * Sets the battery level of a vehicle.
+	 * @param number vehicle's number
+	 * @param batteryLevel the new battery level, as a percentage
+	 */
+	public void setBatteryLevel(int number, int batteryLevel){
+		long version = beginUpdate(number);
+		INTS.setOpaque(batteryLevels, number, batteryLevel);
+		endUpdate(number, version);
+	}
+	
+	/**
+	 * Adds charge to the battery of a vehicle, up to the specified maximum, in one atomic update.
+	 * @param number vehicle's number
+	 * @param charge charge to add, as a percentage
+	 * @param maxBatteryLevel the highest battery level the vehicle can reach
+	 * @return the new battery level
+	 */
+	public int charge(int number, int charge, int maxBatteryLevel){
+		long version = beginUpdate(number);
+		int batteryLevel = Math.min(maxBatteryLevel, (int) INTS.getOpaque(batteryLevels, number) + charge);
+		INTS.setOpaque(batteryLevels, number, batteryLevel);
+		endUpdate(number, version);
+		return batteryLevel;
+	}
+	
+	/**
+	 * Moves a vehicle to a position, with its battery level on the position, in one atomic update.
+	 * @param number vehicle's number
+	 * @param x x-coordinate of the position
+	 * @param y y-coordinate of the position
+	 * @param batteryLevel vehicle's battery level on the position
+	 * @param status vehicle's status on the position
+	 */
+	public void update(int number, int x, int y, int batteryLevel, Status status){
+		long version = beginUpdate(number);
+		INTS.setOpaque(xs, number, x);
+		INTS.setOpaque(ys, number, y);
+		INTS.setOpaque(batteryLevels, number, batteryLevel);
+		INTS.setOpaque(statuses, number, status.ordinal());
+		endUpdate(number, version);
+	}
+	
+	/**
+	 * Sets the status of a vehicle.
+	 * @param number vehicle's number
+	 * @param status the new status
+	 */
+	public void setStatus(int number, Status status){
+		long version = beginUpdate(number);
+		INTS.setOpaque(statuses, number, status.ordinal());
+		endUpdate(number, version);
+	}
+	
+	/**
+	 * Gets the battery level of a vehicle.
+	 * @param number vehicle's number
+	 * @return the battery level, as a percentage
+	 */
+	public int getBatteryLevel(int number){
+		return (int) INTS.getAcquire(batteryLevels, number);
+	}
+	
+	/**
+	 * Reads the whole state of a vehicle at once, without locking.
+	 * @param number vehicle's number
+	 * @return vehicle's state, as left by a single update
+	 */
+	public Entry get(int number){
+		while(true){
+			long version = (long) LONGS.getAcquire(versions, number);
+			int batteryLevel = (int) INTS.getOpaque(batteryLevels, number);
+			int x = (int) INTS.getOpaque(xs, number);
+			int y = (int) INTS.getOpaque(ys, number);
+			int status = (int) INTS.getOpaque(statuses, number);
+			if(isStable(number, version)){
+				return new Entry(batteryLevel, x, y, STATUSES[status]);
+			}
+			Thread.onSpinWait();
+		}
+	}
+	
+	/**
+	 * Copies the state of all vehicles, without locking. The state of each vehicle is consistent,
+	 * though different vehicles may have been copied between updates of the simulation.
+	 * @return the state of all vehicles, by vehicle's number
+	 */
+	public List<Entry> snapshot(){
+		int count = size;
+		List<Entry> entries = new ArrayList<>(count);
+		for(int number = 0; number < count; number++){
+			entries.add(get(number));
+		}
+		return entries;
+	}
+	
+	/**
+	 * Claims a vehicle's state for an update, waiting while another thread is updating it.
+	 * @param number vehicle's number
+	 * @return the version of the state before the update
+	 */
+	private long beginUpdate(int number){
+		while(true){
+			long version = (long) LONGS.getVolatile(versions, number);
+			if((version & 1) == 0 && LONGS.compareAndSet(versions, number, version, version + 1)){
+				// the writes of the update mustn't become visible before the odd version
+				VarHandle.storeStoreFence();
+				return version;
+			}
+			Thread.onSpinWait();
+		}
+	}
+	
+	/**
+	 * Publishes an update of a vehicle's state.
+	 * @param number vehicle's number
+	 * @param version the version returned by {@link #beginUpdate(int)}
+	 */
+	private void endUpdate(int number, long version){
+		LONGS.setRelease(versions, number, version + 2);
+	}
+	
+	/**
+	 * Checks whether a vehicle's state wasn't updated while it was read.
+	 * @param number vehicle's number
+	 * @param version the version read before the state
+	 * @return {@code true} if the state read after the version is consistent
+	 */
+	private boolean isStable(int number, long version){
+		// the reads of the state mustn't be moved after the second read of the version
+		VarHandle.loadLoadFence();
+		return (version & 1) == 0 && (long) LONGS.getOpaque(versions, number) == version;
+	}
+}
\ No newline at end of file
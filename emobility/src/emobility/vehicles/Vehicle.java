@@ -1,6 +1,8 @@
 package emobility.vehicles;
 
 import java.util.*;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
 /**
@@ -27,7 +29,10 @@ public abstract class Vehicle implements Serializable, Comparable<Vehicle>{
 	/** Vehicle's purchase price. */
 	protected Double purchasePrice;
 	
-	/** Vehicle's current battery level, represented as a percentage. */
+	/**
+	 * Vehicle's battery level, represented as a percentage. Once the vehicle is registered,
+	 * its current battery level is kept in the {@link FleetState} instead.
+	 */
 	protected Integer batteryLevel;
 	
 	/** List of faults that have occurred during rentals of this vehicle. */
@@ -36,6 +41,15 @@ public abstract class Vehicle implements Serializable, Comparable<Vehicle>{
 	/** Type of vehicle (e.g. car, bicycle, scooter). */
 	protected String type;
 	
+	/** Random numbers used for the descriptions of the vehicle's faults, created on the first fault. */
+	private transient SplittableRandom faultStream;
+	
+	/** Table holding the vehicle's current state, or {@code null} if the vehicle isn't registered. */
+	private transient FleetState fleetState;
+	
+	/** Vehicle's number in the {@link FleetState}. */
+	private transient int fleetNumber;
+	
 	/**
 	 * Constructs a new {@code Vehicle} object with specified details.
 	 * @param ID vehicle's unique identifier
@@ -92,22 +106,100 @@ public abstract class Vehicle implements Serializable, Comparable<Vehicle>{
         return this.ID.compareTo(vehicle.getID());
     }
 
+	/**
+	 * Keeps the vehicle's state in a fleet state table from now on, starting from its current battery level.
+	 * @param fleetState the table
+	 * @param fleetNumber vehicle's number in the table
+	 */
+	void attach(FleetState fleetState, int fleetNumber){
+		this.fleetNumber = fleetNumber;
+		this.fleetState = fleetState;
+	}
+	
+	/**
+	 * Gets the vehicle's number in the {@link FleetState} of its registry.
+	 * @return the vehicle's number, or -1 if the vehicle isn't registered
+	 */
+	public int getFleetNumber(){
+		return fleetState != null ? fleetNumber : -1;
+	}
+	
 	/**
 	 * Sets the battery level of the vehicle
 	 * @param batteryLevel the new battery level, as a percentage
 	 */
 	public void setBatteryLevel(Integer batteryLevel){
-		this.batteryLevel = batteryLevel;
+		if(fleetState != null){
+			fleetState.setBatteryLevel(fleetNumber, batteryLevel);
+		} else{
+			this.batteryLevel = batteryLevel;
+		}
 	}
 	
 	/**
-	 * Gets the current battery level of the vehicle.
+	 * Gets the current battery level of the vehicle. Can be called from any thread.
 	 * @return the battery level as a percentage
 	 */
 	public Integer getBatteryLevel(){
+		return fleetState != null ? fleetState.getBatteryLevel(fleetNumber) : batteryLevel;
+	}
+	
+	/**
+	 * Charges the vehicle's battery, up to 100%, in one atomic update.
+	 * @param charge charge to add, as a percentage
+	 * @return the new battery level
+	 */
+	public Integer chargeBattery(Integer charge){
+		if(fleetState != null){
+			return fleetState.charge(fleetNumber, charge, 100);
+		}
+		batteryLevel = Math.min(100, batteryLevel + charge);
 		return batteryLevel;
 	}
 	
+	/**
+	 * Moves the vehicle to a position during a rental, updating its position and battery level at once.
+	 * Nothing is recorded if the vehicle isn't registered.
+	 * @param x x-coordinate of the position
+	 * @param y y-coordinate of the position
+	 * @param batteryLevel vehicle's battery level on the position, as a percentage
+	 */
+	public void moveTo(Integer x, Integer y, Integer batteryLevel){
+		if(fleetState != null){
+			fleetState.update(fleetNumber, x, y, batteryLevel, FleetState.Status.MOVING);
+		} else{
+			this.batteryLevel = batteryLevel;
+		}
+	}
+	
+	/**
+	 * Sets the status of the vehicle. Nothing is recorded if the vehicle isn't registered.
+	 * @param status the new status
+	 */
+	public void setStatus(FleetState.Status status){
+		if(fleetState != null){
+			fleetState.setStatus(fleetNumber, status);
+		}
+	}
+	
+	/**
+	 * Reads the vehicle's battery level, position and status at once. Can be called from any thread.
+	 * @return the vehicle's state, or {@code null} if the vehicle isn't registered
+	 */
+	public FleetState.Entry getState(){
+		return fleetState != null ? fleetState.get(fleetNumber) : null;
+	}
+	
+	/**
+	 * Writes the vehicle with its current battery level.
+	 * @param out the stream the vehicle is written to
+	 * @throws IOException if the vehicle couldn't be written
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException{
+		batteryLevel = getBatteryLevel();
+		out.defaultWriteObject();
+	}
+	
 	/**
 	 * Gets the vehicle's unique identifier.
 	 * @return the vehicle's ID
@@ -150,12 +242,15 @@ public abstract class Vehicle implements Serializable, Comparable<Vehicle>{
 	
 	/**
 	 * Registers a fault that occurred on the vehicle at the specified date and time.
-	 * Description of the fault is generated randomly.
+	 * Description of the fault is generated randomly, from the vehicle's own fault stream.
 	 * @param dateTime the date and time when the fault occurred
 	 * @return the registered {@link Fault} object
 	 */
-	public Fault registerFault(Date dateTime){
-		String description = Fault.getRandomFaultDescription();
+	public synchronized Fault registerFault(Date dateTime){
+		if(faultStream == null){
+			faultStream = Fault.newFaultStream(ID);
+		}
+		String description = Fault.getRandomFaultDescription(faultStream);
 		Fault fault = new Fault(description, dateTime);
 		this.faults.add(fault);
 		return fault;
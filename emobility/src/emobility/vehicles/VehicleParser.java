@@ -1,8 +1,11 @@
 package emobility.vehicles;
 
 import java.util.*;
-import java.io.*;
-import java.text.*;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.text.ParseException;
+import emobility.utility.*;
 
 /**
  * Utility class for parsing vehicle data from a CSV file and managing the list of vehicles.
@@ -14,28 +17,35 @@ import java.text.*;
  * @version 1.0
  */
 public class VehicleParser{
-	/** A map that stores all vehicles by their IDs. */
-	private static Map<String,Vehicle> vehicles = new HashMap<>();
+	/** Indexed registry that stores all parsed vehicles. */
+	private static VehicleRegistry registry = new VehicleRegistry();
 	
-	/** A list that contains all valid vehicle IDs. */
-	private static List<String> validIDs = new ArrayList<>();
+	/** Path of the CSV file the vehicles were parsed from, or {@code null} if no file has been parsed yet. */
+	private static Path sourcePath;
 	
-	/** A list that contains all parsed cars. */
-	private static List<Car> cars = new ArrayList<>();
-	
-	/** A list that contains all parsed bicycles. */
-	private static List<ElectricBicycle> bicycles = new ArrayList<>();
+	/**
+	 * Returns the registry with all parsed vehicles.
+	 * @return {@link VehicleRegistry} object
+	 */
+	public static VehicleRegistry getRegistry(){
+		return registry;
+	}
 	
-	/** A list that contains all parsed scooters. */
-	private static List<ElectricScooter> scooters = new ArrayList<>();
+	/**
+	 * Returns the path of the CSV file the vehicles were parsed from.
+	 * @return path of the source file, or {@code null} if no file has been parsed yet
+	 */
+	public static Path getSourcePath(){
+		return sourcePath;
+	}
 	
 	/**
 	 * Returns a map of all vehicles parsed from the CSV file.
 	 * The map is keyed by the vehicles' IDs.
-	 * @return a map of all vehicles
+	 * @return a read-only map of all vehicles
 	 */
 	public static Map<String,Vehicle> getAllVehicles(){
-		return vehicles;
+		return registry.getVehiclesByID();
 	}
 	
 	/**
@@ -44,15 +54,24 @@ public class VehicleParser{
 	 * @return the vehicle with the specified ID, or null if no such vehicle exists
 	 */
 	public static Vehicle getVehicle(String ID){
-		return vehicles.get(ID);
+		return registry.get(ID);
+	}
+	
+	/**
+	 * Checks whether the specified ID belongs to a parsed vehicle.
+	 * @param ID vehicle's ID
+	 * @return {@code true} if the ID is valid, otherwise {@code false}
+	 */
+	public static boolean isValidID(String ID){
+		return registry.contains(ID);
 	}
 	
 	/**
 	 * Returns a list of all valid vehicle IDs.
-	 * @return a list of valid vehicle IDs
+	 * @return a read-only list of valid vehicle IDs
 	 */
 	public static List<String> getValidIDs(){
-		return validIDs;
+		return registry.getIDs();
 	}
 	
 	/**
@@ -60,7 +79,7 @@ public class VehicleParser{
 	 * @return a list of {@link Car} objects
 	 */
 	public static List<Car> getCars(){
-		return cars;
+		return registry.getCars();
 	}
 	
 	/**
@@ -68,7 +87,7 @@ public class VehicleParser{
 	 * @return a list of {@link ElectricBicycle} objects
 	 */
 	public static List<ElectricBicycle> getBicycles(){
-		return bicycles;
+		return registry.getBicycles();
 	}
 	
 	/**
@@ -76,58 +95,73 @@ public class VehicleParser{
 	 * @return a list of {@link ElectricScooter} objects
 	 */
 	public static List<ElectricScooter> getScooters(){
-		return scooters;
+		return registry.getScooters();
 	}
 	
 	/**
 	 * Parses vehicles data from a CSV file located at the specified file path.
 	 * The method reads the file, processes each line to create corresponding {@link Vehicle} objects based on their type, 
 	 * and stores these objects in the appropriate collections.
+	 * <p>If the file hasn't changed since it was last parsed, the vehicles are loaded from its binary snapshot instead.
+	 * Otherwise a new snapshot is written once the file has been parsed.</p>
+	 * <p>Invalid rows are recorded in {@link RejectedRows} with their line numbers.</p>
 	 * @param filePath the path to the CSV file containing vehicle data
 	 */
 	public static void parseVehicleCSV(String filePath){
-		SimpleDateFormat sdf = new SimpleDateFormat("dd.MM.yyyy.");
-
-		try(BufferedReader br = new BufferedReader(new FileReader(filePath))){
-			String line;
-			br.readLine(); // skipping header of the file
+		sourcePath = Paths.get(filePath);
+		try{
+			if(VehicleSnapshot.load(filePath, registry))
+				return;
+		} catch(IOException | RuntimeException e){
+			System.out.println("Vehicle snapshot couldn't be loaded, parsing " + filePath);
+			e.printStackTrace();
+		}
+		
+		// the file is stamped before it's read, so the snapshot can't claim rows added while it's being parsed
+		long[] stamps = null;
+		try{
+			stamps = SnapshotFile.stamp(List.of(sourcePath));
+		} catch(IOException e){
+			System.out.println("Vehicles file couldn't be stamped, its snapshot won't be written.");
+			e.printStackTrace();
+		}
+		
+		try(FileChannel channel = FileChannel.open(sourcePath, StandardOpenOption.READ)){
+			CsvTokenizer tokenizer = new CsvTokenizer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+			tokenizer.nextRow(); // skipping header of the file
 			
-			while((line = br.readLine()) != null){
-				if(line.isEmpty())
+			while(tokenizer.nextRow()){
+				if(tokenizer.isBlankRow())
 					continue;
 				
-				String data[] = line.split(",");
-				
-				if(data.length == 9){
-					String ID = data[0];
+				if(tokenizer.getFieldCount() == 9){
+					String ID = tokenizer.getString(0);
 					if(ID.isEmpty()){
-						System.out.println("Vehicle ID is empty.");
+						RejectedRows.reject(sourcePath, tokenizer.getLineNumber(), RejectReason.INVALID_ID, "Vehicle ID is empty.", tokenizer.getRow());
 						continue;
 					}
-					if(!validIDs.contains(ID)){
-						String manufacturer = data[1];
-						String model = data[2];
+					if(!registry.contains(ID)){
+						String manufacturer = tokenizer.getString(1);
+						String model = tokenizer.getString(2);
 						if(manufacturer.isEmpty() || model.isEmpty()){
-							System.out.println("Vehicle information missing.");
+							RejectedRows.reject(sourcePath, tokenizer.getLineNumber(), RejectReason.MISSING_FIELD, "Vehicle information missing.", tokenizer.getRow());
 							continue;
 						}
 						
 						try{
-							Double purchasePrice = Double.parseDouble(data[4]);
-							String type = data[8];
+							Double purchasePrice = tokenizer.getDouble(4);
+							String type = tokenizer.getString(8);
 							
 							switch(type.toLowerCase()){
 								case "automobil": 
 									try{
-										Date purchaseDate = sdf.parse(data[3]);
+										Date purchaseDate = new Date(TimestampCodec.parseDate(tokenizer.getString(3)));
 
-										String description = data[7];
+										String description = tokenizer.getString(7);
 										Car car = new Car(ID,manufacturer,model,purchasePrice,100,true,purchaseDate,description);
-										vehicles.put(ID, car);
-										cars.add(car);
+										registry.register(car);
 									} catch(ParseException e){
-										System.out.println("Invalid date format for purchase date: " + data[3]);
-										e.printStackTrace();
+										RejectedRows.reject(sourcePath, tokenizer.getLineNumber(), RejectReason.INVALID_DATE, "Invalid date format for purchase date: " + tokenizer.getString(3), tokenizer.getRow());
 										continue;
 									}
 									
@@ -135,13 +169,11 @@ public class VehicleParser{
 
 								case "bicikl":
 									try{
-										Integer autonomy = Integer.parseInt(data[5]);
+										Integer autonomy = tokenizer.getInt(5);
 										ElectricBicycle bicycle = new ElectricBicycle(ID,manufacturer,model,purchasePrice,100,autonomy);
-										vehicles.put(ID, bicycle);
-										bicycles.add(bicycle);
+										registry.register(bicycle);
 									} catch(NumberFormatException e){
-										System.out.println("Invalid number format for bicycle's autonomy: " + data[5]);
-										e.printStackTrace();
+										RejectedRows.reject(sourcePath, tokenizer.getLineNumber(), RejectReason.INVALID_NUMBER, "Invalid number format for bicycle's autonomy: " + tokenizer.getString(5), tokenizer.getRow());
 										continue;
 									}
 									
@@ -149,41 +181,47 @@ public class VehicleParser{
 								
 								case "trotinet":
 									try{
-										Integer maxSpeed = Integer.parseInt(data[6]);
+										Integer maxSpeed = tokenizer.getInt(6);
 										ElectricScooter scooter = new ElectricScooter(ID,manufacturer,model,purchasePrice,100,maxSpeed);
-										vehicles.put(ID, scooter);
-										scooters.add(scooter);
+										registry.register(scooter);
 									} catch(NumberFormatException e){
-										System.out.println("Invalid number format for scooter's max speed: " + data[6]);
-										e.printStackTrace();
+										RejectedRows.reject(sourcePath, tokenizer.getLineNumber(), RejectReason.INVALID_NUMBER, "Invalid number format for scooter's max speed: " + tokenizer.getString(6), tokenizer.getRow());
 										continue;
 									}
 									
 									break;
 								
 								default:
-									System.out.println("Unexpected type of vehicle: " + type);
+									RejectedRows.reject(sourcePath, tokenizer.getLineNumber(), RejectReason.UNKNOWN_TYPE, "Unexpected type of vehicle: " + type, tokenizer.getRow());
 									continue;
 							}
 							
-							validIDs.add(ID);
-							
 						} catch(NumberFormatException e){
-							System.out.println("Invalid number format for purchase price: " + data[4]);
-							e.printStackTrace();
+							RejectedRows.reject(sourcePath, tokenizer.getLineNumber(), RejectReason.INVALID_NUMBER, "Invalid number format for purchase price: " + tokenizer.getString(4), tokenizer.getRow());
 							continue;
 						}
 					} else{
-						System.out.println("Duplicate vehicle ID: " + ID);
+						RejectedRows.reject(sourcePath, tokenizer.getLineNumber(), RejectReason.DUPLICATE, "Duplicate vehicle ID: " + ID, tokenizer.getRow());
 						continue;
 					}
 				} else{
-					System.out.println("Data not formatted correctly: " + line);
+					RejectedRows.reject(sourcePath, tokenizer.getLineNumber(), RejectReason.MALFORMED_ROW, "Data not formatted correctly.", tokenizer.getRow());
 					continue;
 				}
 			}
 		} catch(IOException e){
 			e.printStackTrace();
+			return;
+		}
+		RejectedRows.printSummary();
+		
+		if(stamps == null)
+			return;
+		try{
+			VehicleSnapshot.write(filePath, stamps, registry);
+		} catch(IOException e){
+			System.out.println("Vehicle snapshot couldn't be written.");
+			e.printStackTrace();
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,194 @@
+package emobility.vehicles;
+
+import java.util.*;
+
+/**
+ * Indexed registry of all vehicles in the eMobility system.
+ * <p>Vehicles are stored in a hash index keyed by their IDs, so validity and duplicate checks take constant time.
+ * Secondary indexes by type, manufacturer and model, as well as typed lists of cars, bicycles and scooters,
+ * are maintained on registration, so queries over one group of vehicles never have to scan the whole fleet.</p>
+ * <p>The registry is filled while the vehicles are parsed and is only read afterwards,
+ * so it can be safely shared between threads once parsing is done. Each registered vehicle gets a number in the
+ * registry's {@link FleetState}, which holds the vehicles' current state and can be updated from any thread.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+public class VehicleRegistry{
+	/** Primary index - all vehicles keyed by their IDs. */
+	private Map<String,Vehicle> vehiclesByID;
+	
+	/** IDs of all registered vehicles, in the order of registration. */
+	private List<String> IDs;
+	
+	/** Secondary index - vehicles grouped by their type. */
+	private Map<String,List<Vehicle>> vehiclesByType;
+	
+	/** Secondary index - vehicles grouped by their manufacturer. */
+	private Map<String,List<Vehicle>> vehiclesByManufacturer;
+	
+	/** Secondary index - vehicles grouped by their model. */
+	private Map<String,List<Vehicle>> vehiclesByModel;
+	
+	/** A list that contains all registered cars. */
+	private List<Car> cars;
+	
+	/** A list that contains all registered bicycles. */
+	private List<ElectricBicycle> bicycles;
+	
+	/** A list that contains all registered scooters. */
+	private List<ElectricScooter> scooters;
+	
+	/** Current state of the registered vehicles, indexed by their numbers. */
+	private FleetState fleetState;
+	
+	/** Constructs an empty {@code VehicleRegistry}. */
+	public VehicleRegistry(){
+		this.vehiclesByID = new HashMap<>();
+		this.IDs = new ArrayList<>();
+		this.vehiclesByType = new HashMap<>();
+		this.vehiclesByManufacturer = new HashMap<>();
+		this.vehiclesByModel = new HashMap<>();
+		this.cars = new ArrayList<>();
+		this.bicycles = new ArrayList<>();
+		this.scooters = new ArrayList<>();
+		this.fleetState = new FleetState();
+	}
+	
+	/**
+	 * Registers a vehicle and adds it to all indexes.
+	 * @param vehicle the vehicle to register
+	 * @return {@code true} if the vehicle was registered, {@code false} if a vehicle with the same ID already exists
+	 */
+	public boolean register(Vehicle vehicle){
+		if(vehiclesByID.putIfAbsent(vehicle.getID(), vehicle) != null){
+			return false;
+		}
+		
+		IDs.add(vehicle.getID());
+		vehicle.attach(fleetState, fleetState.add(vehicle.getBatteryLevel()));
+		vehiclesByType.computeIfAbsent(vehicle.getType(), key -> new ArrayList<>()).add(vehicle);
+		vehiclesByManufacturer.computeIfAbsent(vehicle.getManufacturer(), key -> new ArrayList<>()).add(vehicle);
+		vehiclesByModel.computeIfAbsent(vehicle.getModel(), key -> new ArrayList<>()).add(vehicle);
+		
+		if(vehicle instanceof Car car){
+			cars.add(car);
+		} else if(vehicle instanceof ElectricBicycle bicycle){
+			bicycles.add(bicycle);
+		} else if(vehicle instanceof ElectricScooter scooter){
+			scooters.add(scooter);
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Checks whether a vehicle with the specified ID is registered.
+	 * @param ID vehicle's ID
+	 * @return {@code true} if the vehicle exists, otherwise {@code false}
+	 */
+	public boolean contains(String ID){
+		return vehiclesByID.containsKey(ID);
+	}
+	
+	/**
+	 * Returns a specific vehicle by its ID.
+	 * @param ID vehicle's ID
+	 * @return the vehicle with the specified ID, or null if no such vehicle exists
+	 */
+	public Vehicle get(String ID){
+		return vehiclesByID.get(ID);
+	}
+	
+	/**
+	 * Returns the current state of the registered vehicles, such as their battery levels and positions.
+	 * @return the {@link FleetState} of the registered vehicles
+	 */
+	public FleetState getFleetState(){
+		return fleetState;
+	}
+	
+	/**
+	 * Returns the number of registered vehicles.
+	 * @return number of vehicles
+	 */
+	public int size(){
+		return vehiclesByID.size();
+	}
+	
+	/**
+	 * Returns a read-only view of all vehicles, keyed by their IDs.
+	 * @return a map of all vehicles
+	 */
+	public Map<String,Vehicle> getVehiclesByID(){
+		return Collections.unmodifiableMap(vehiclesByID);
+	}
+	
+	/**
+	 * Returns a read-only view of all registered IDs, in the order of registration.
+	 * @return a list of vehicle IDs
+	 */
+	public List<String> getIDs(){
+		return Collections.unmodifiableList(IDs);
+	}
+	
+	/**
+	 * Returns all vehicles of the specified type.
+	 * @param type vehicle's type (e.g. car, bicycle, scooter)
+	 * @return a read-only list of vehicles, empty if there are none
+	 */
+	public List<Vehicle> getByType(String type){
+		return readOnly(vehiclesByType.get(type));
+	}
+	
+	/**
+	 * Returns all vehicles made by the specified manufacturer.
+	 * @param manufacturer vehicle's manufacturer
+	 * @return a read-only list of vehicles, empty if there are none
+	 */
+	public List<Vehicle> getByManufacturer(String manufacturer){
+		return readOnly(vehiclesByManufacturer.get(manufacturer));
+	}
+	
+	/**
+	 * Returns all vehicles of the specified model.
+	 * @param model model of the vehicle
+	 * @return a read-only list of vehicles, empty if there are none
+	 */
+	public List<Vehicle> getByModel(String model){
+		return readOnly(vehiclesByModel.get(model));
+	}
+	
+	/**
+	 * Returns a list of registered cars.
+	 * @return a list of {@link Car} objects
+	 */
+	public List<Car> getCars(){
+		return cars;
+	}
+	
+	/**
+	 * Returns a list of registered bicycles.
+	 * @return a list of {@link ElectricBicycle} objects
+	 */
+	public List<ElectricBicycle> getBicycles(){
+		return bicycles;
+	}
+	
+	/**
+	 * Returns a list of registered scooters.
+	 * @return a list of {@link ElectricScooter} objects
+	 */
+	public List<ElectricScooter> getScooters(){
+		return scooters;
+	}
+	
+	/**
+	 * Wraps a list from one of the secondary indexes into a read-only view.
+	 * @param vehicles list from the index, possibly {@code null}
+	 * @return a read-only list, empty if the specified list is {@code null}
+	 */
+	private static List<Vehicle> readOnly(List<Vehicle> vehicles){
+		return vehicles == null ? Collections.emptyList() : Collections.unmodifiableList(vehicles);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,155 @@
+package emobility.vehicles;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import emobility.utility.*;
+
+/**
+ * Binary columnar snapshot of the vehicles parsed from a CSV file.
+ * <p>All strings (IDs, manufacturers, models and descriptions) are interned into one table, and every attribute
+ * of the vehicles is stored as its own column of fixed-size values. The snapshot is written next to the CSV file
+ * after it has been parsed, and is loaded instead of parsing the file again as long as the file doesn't change.</p>
+ *
+ * @author Aleksandra Vucicevic
+ * @version 1.0
+ */
+class VehicleSnapshot{
+	/** Magic number of vehicle snapshots ({@code EMVS}). */
+	private static final int MAGIC = 0x454D5653;
+	
+	/** Version of the snapshot format. */
+	private static final int VERSION = 1;
+	
+	/** Value of the kind column for cars. */
+	private static final byte CAR = 0;
+	
+	/** Value of the kind column for bicycles. */
+	private static final byte BICYCLE = 1;
+	
+	/** Value of the kind column for scooters. */
+	private static final byte SCOOTER = 2;
+	
+	/** Private constructor, as this class only provides static methods. */
+	private VehicleSnapshot(){
+	}
+	
+	/**
+	 * Writes a snapshot of all vehicles in the registry, in the order of their registration.
+	 * @param filePath the path to the CSV file the vehicles were parsed from
+	 * @param stamps stamps of the CSV file, taken before it was read
+	 * @param registry registry containing the parsed vehicles
+	 * @throws IOException if the snapshot can't be written
+	 */
+	static void write(String filePath, long[] stamps, VehicleRegistry registry) throws IOException{
+		List<Vehicle> vehicles = new ArrayList<>();
+		for(String ID : registry.getIDs()){
+			vehicles.add(registry.get(ID));
+		}
+		
+		SnapshotFile.StringTable strings = new SnapshotFile.StringTable();
+		int count = vehicles.size();
+		byte[] kinds = new byte[count];
+		int[] IDs = new int[count];
+		int[] manufacturers = new int[count];
+		int[] models = new int[count];
+		int[] descriptions = new int[count];
+		long[] purchaseDates = new long[count];
+		int[] specifications = new int[count];
+		
+		for(int i = 0; i < count; i++){
+			Vehicle vehicle = vehicles.get(i);
+			IDs[i] = strings.intern(vehicle.getID());
+			manufacturers[i] = strings.intern(vehicle.getManufacturer());
+			models[i] = strings.intern(vehicle.getModel());
+			descriptions[i] = -1;
+			purchaseDates[i] = Long.MIN_VALUE;
+			
+			if(vehicle instanceof Car car){
+				kinds[i] = CAR;
+				descriptions[i] = strings.intern(car.getDescription());
+				purchaseDates[i] = car.getPurchaseDate().getTime();
+			} else if(vehicle instanceof ElectricBicycle bicycle){
+				kinds[i] = BICYCLE;
+				specifications[i] = bicycle.getAutonomy();
+			} else if(vehicle instanceof ElectricScooter scooter){
+				kinds[i] = SCOOTER;
+				specifications[i] = scooter.getMaxSpeed();
+			}
+		}
+		
+		SnapshotFile.write(SnapshotFile.snapshotPath(filePath), MAGIC, VERSION, stamps, out -> {
+			SnapshotFile.writeStrings(out, strings.getStrings());
+			out.writeInt(count);
+			out.write(kinds);
+			for(int value : IDs)
+				out.writeInt(value);
+			for(int value : manufacturers)
+				out.writeInt(value);
+			for(int value : models)
+				out.writeInt(value);
+			for(int value : descriptions)
+				out.writeInt(value);
+			for(Vehicle vehicle : vehicles)
+				out.writeDouble(vehicle.getPurchasePrice());
+			for(long value : purchaseDates)
+				out.writeLong(value);
+			for(int value : specifications)
+				out.writeInt(value);
+		});
+	}
+	
+	/**
+	 * Loads vehicles from the snapshot of the specified CSV file into the registry, if the snapshot is up to date.
+	 * Nothing is registered if the snapshot is missing or stale.
+	 * @param filePath the path to the CSV file containing vehicle data
+	 * @param registry registry which receives the vehicles
+	 * @return {@code true} if the vehicles were loaded from the snapshot, otherwise {@code false}
+	 * @throws IOException if the snapshot can't be read
+	 */
+	static boolean load(String filePath, VehicleRegistry registry) throws IOException{
+		ByteBuffer buffer = SnapshotFile.open(SnapshotFile.snapshotPath(filePath), MAGIC, VERSION, List.of(Paths.get(filePath)));
+		if(buffer == null){
+			return false;
+		}
+		
+		String[] strings = SnapshotFile.readStrings(buffer);
+		int count = buffer.getInt();
+		ByteBuffer kinds = SnapshotFile.column(buffer, count);
+		IntBuffer IDs = SnapshotFile.column(buffer, count * 4).asIntBuffer();
+		IntBuffer manufacturers = SnapshotFile.column(buffer, count * 4).asIntBuffer();
+		IntBuffer models = SnapshotFile.column(buffer, count * 4).asIntBuffer();
+		IntBuffer descriptions = SnapshotFile.column(buffer, count * 4).asIntBuffer();
+		DoubleBuffer prices = SnapshotFile.column(buffer, count * 8).asDoubleBuffer();
+		LongBuffer purchaseDates = SnapshotFile.column(buffer, count * 8).asLongBuffer();
+		IntBuffer specifications = SnapshotFile.column(buffer, count * 4).asIntBuffer();
+		
+		List<Vehicle> vehicles = new ArrayList<>(count);
+		for(int i = 0; i < count; i++){
+			String ID = strings[IDs.get(i)];
+			String manufacturer = strings[manufacturers.get(i)];
+			String model = strings[models.get(i)];
+			Double purchasePrice = prices.get(i);
+			
+			switch(kinds.get(i)){
+				case CAR:
+					vehicles.add(new Car(ID,manufacturer,model,purchasePrice,100,true,new Date(purchaseDates.get(i)),strings[descriptions.get(i)]));
+					break;
+				case BICYCLE:
+					vehicles.add(new ElectricBicycle(ID,manufacturer,model,purchasePrice,100,specifications.get(i)));
+					break;
+				case SCOOTER:
+					vehicles.add(new ElectricScooter(ID,manufacturer,model,purchasePrice,100,specifications.get(i)));
+					break;
+				default:
+					return false;
+			}
+		}
+		
+		for(Vehicle vehicle : vehicles){
+			registry.register(vehicle);
+		}
+		return true;
+	}
+}
\ No newline at end of file